@@ -0,0 +1,255 @@
+package com.inout.app.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.auth.AuthResult;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+import com.inout.app.models.AttendanceRecord;
+import com.inout.app.models.MonthlySummary;
+import com.inout.app.models.User;
+import com.inout.app.utils.EncryptionHelper;
+import com.inout.app.utils.FirebaseManager;
+import com.inout.app.utils.TimeUtils;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.text.SimpleDateFormat;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The organisation FirestoreBudgetTest runs against, in the local Firestore and Auth emulators:
+ * ReadBudget.OFFICES offices, ReadBudget.EMPLOYEES approved employees who all checked in today,
+ * an admin, and one employee (the subject) with a year of history. The oldest
+ * UNSUMMARISED_MONTHS of that year have no monthly summary, so the profile dialog and the export
+ * take their raw-records fallback too.
+ *
+ * Data is written through a FirebaseApp of its own, so neither the app's caches nor
+ * FirestoreMeter see the seeding.
+ */
+final class EmulatorOrg {
+
+    private static final String TAG = "EmulatorOrg";
+
+    // The host machine as seen from the Android emulator
+    static final String HOST = "10.0.2.2";
+    static final int FIRESTORE_PORT = 8080;
+    static final int AUTH_PORT = 9099;
+
+    // "demo-" projects exist only in the emulators and can never reach a real backend
+    static final String PROJECT_ID = "demo-inout";
+    static final String COMPANY = "Budget Test Co";
+
+    static final String PASSWORD = "budget-test";
+    static final String ADMIN_EMAIL = "admin@budget.test";
+    static final String SUBJECT_EMAIL = "subject@budget.test";
+
+    static final int HISTORY_MONTHS = ReadBudget.BROWSED_MONTHS;
+    static final int UNSUMMARISED_MONTHS = 2;
+
+    private static final String SEED_APP = "budget_seed";
+    private static final int BATCH = 450;     // Firestore allows 500 writes per batch
+
+    private static final String GOOGLE_SERVICES_JSON = "{"
+            + "\"project_info\":{\"project_id\":\"" + PROJECT_ID + "\"},"
+            + "\"client\":[{"
+            + "\"client_info\":{\"mobilesdk_app_id\":\"1:000000000000:android:0000000000000000\"},"
+            + "\"api_key\":[{\"current_key\":\"emulator-api-key\"}]}]}";
+
+    static User subject;
+    static List<String> officeIds = new ArrayList<>();
+
+    private EmulatorOrg() {
+    }
+
+    /**
+     * Makes the emulator project the current company: local state of earlier runs is dropped and
+     * FirebaseManager re-creates the tenant app against the emulators.
+     */
+    static void connect(Context context) throws Exception {
+        InOutDatabase.getInstance(context).clearAllTables();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            EncryptionHelper.getInstance(context).clearAllData();
+            FirebaseManager.useEmulator(HOST, FIRESTORE_PORT, AUTH_PORT);
+            FirebaseManager.setConfiguration(context, GOOGLE_SERVICES_JSON, COMPANY, PROJECT_ID);
+            FirebaseManager.initialize(context);
+        });
+        if (!PROJECT_ID.equals(FirebaseManager.getCurrentProjectId())) {
+            throw new IllegalStateException("Emulator project did not become current");
+        }
+        Tasks.await(FirebaseManager.firestore().clearPersistence());
+    }
+
+    /**
+     * Deletes every document and account of the emulator project.
+     */
+    static void clear() throws IOException {
+        delete("http://" + HOST + ":" + FIRESTORE_PORT + "/emulator/v1/projects/" + PROJECT_ID
+                + "/databases/(default)/documents");
+        delete("http://" + HOST + ":" + AUTH_PORT + "/emulator/v1/projects/" + PROJECT_ID + "/accounts");
+    }
+
+    private static void delete(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setRequestMethod("DELETE");
+            connection.setRequestProperty("Authorization", "Bearer owner");
+            int code = connection.getResponseCode();
+            if (code != HttpURLConnection.HTTP_OK) {
+                throw new IOException("DELETE " + url + " answered " + code + "; are the emulators running?");
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Writes the organisation. Call after connect().
+     */
+    static void seed(Context context) throws Exception {
+        String adminUid = createAccount(ADMIN_EMAIL);
+        String subjectUid = createAccount(SUBJECT_EMAIL);
+        FirebaseManager.auth().signOut();
+
+        FirebaseFirestore db = seedDb(context);
+        List<Map.Entry<String, Object>> docs = new ArrayList<>();
+
+        officeIds.clear();
+        for (int i = 0; i < ReadBudget.OFFICES; i++) {
+            String id = String.format(Locale.US, "office_%02d", i);
+            officeIds.add(id);
+            Map<String, Object> office = new HashMap<>();
+            office.put("name", "Office " + i);
+            office.put("latitude", 12.9716 + 0.05 * i);
+            office.put("longitude", 77.5946);
+            office.put("radius", 100.0);
+            docs.add(doc("locations/" + id, office));
+        }
+
+        Map<String, Object> admin = new HashMap<>();
+        admin.put("uid", adminUid);
+        admin.put("name", "Budget Admin");
+        admin.put("email", ADMIN_EMAIL);
+        admin.put("role", "admin");
+        admin.put("approved", true);
+        docs.add(doc("users/" + adminUid, admin));
+
+        String today = TimeUtils.getCurrentDateId();
+        for (int i = 0; i < ReadBudget.EMPLOYEES; i++) {
+            String uid = i == 0 ? subjectUid : String.format(Locale.US, "employee_%03d", i);
+            User user = new User(uid, i == 0 ? SUBJECT_EMAIL : uid + "@budget.test", "employee");
+            user.setName("Employee " + i);
+            user.setEmployeeId(String.format(Locale.US, "EMP%03d", i));
+            user.setPhone(String.format(Locale.US, "+1555000%04d", i));
+            user.setPhotoUrl("https://example.com/" + uid + ".png");
+            user.setApproved(true);
+            user.setAssignedLocationId(officeIds.get(i % ReadBudget.OFFICES));
+            user.setAllowedLocationIds(Collections.singletonList(user.getAssignedLocationId()));
+            docs.add(doc("users/" + uid, user));
+
+            if (i == 0) {
+                subject = user;
+            } else {
+                // The subject checks in during the test
+                AttendanceRecord record = record(user, Calendar.getInstance());
+                docs.add(doc("attendance/" + record.getRecordId(), record));
+            }
+        }
+
+        for (int back = 0; back < HISTORY_MONTHS; back++) {
+            Calendar month = TimeUtils.getMonthStart(Calendar.getInstance());
+            month.add(Calendar.MONTH, -back);
+            String monthId = TimeUtils.getMonthId(month);
+
+            List<AttendanceRecord> records = new ArrayList<>();
+            for (Calendar day = (Calendar) month.clone(); day.get(Calendar.MONTH) == month.get(Calendar.MONTH);
+                 day.add(Calendar.DAY_OF_MONTH, 1)) {
+                String dateId = TimeUtils.formatTimestampToDate(day.getTimeInMillis());
+                if (dateId.compareTo(today) >= 0) break;
+                int weekday = day.get(Calendar.DAY_OF_WEEK);
+                if (weekday == Calendar.SATURDAY || weekday == Calendar.SUNDAY) continue;
+                AttendanceRecord record = record(subject, day);
+                record.setCheckOutTime("06:00 PM");
+                record.setTotalHours("9h 0m");
+                records.add(record);
+                docs.add(doc("attendance/" + record.getRecordId(), record));
+            }
+
+            if (back < HISTORY_MONTHS - UNSUMMARISED_MONTHS) {
+                MonthlySummary summary = MonthlySummaryRepository.buildSummary(subject.getEmployeeId(), monthId, records);
+                docs.add(doc("attendance_monthly/" + MonthlySummaryRepository.summaryId(subject.getEmployeeId(), monthId), summary));
+            }
+        }
+
+        for (int start = 0; start < docs.size(); start += BATCH) {
+            WriteBatch batch = db.batch();
+            for (Map.Entry<String, Object> entry : docs.subList(start, Math.min(docs.size(), start + BATCH))) {
+                batch.set(db.document(entry.getKey()), entry.getValue());
+            }
+            Tasks.await(batch.commit());
+        }
+        Log.d(TAG, "Seeded " + docs.size() + " documents");
+    }
+
+    /**
+     * Signs in as one of the seeded accounts, as LoginActivity does.
+     */
+    static void signIn(Context context, String email, String role) throws Exception {
+        FirebaseManager.auth().signOut();
+        Tasks.await(FirebaseManager.auth().signInWithEmailAndPassword(email, PASSWORD));
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            SessionStore.getInstance(context).stop();
+            EncryptionHelper.getInstance(context).saveUserRole(role);
+        });
+    }
+
+    private static String createAccount(String email) throws Exception {
+        AuthResult result = Tasks.await(FirebaseManager.auth().createUserWithEmailAndPassword(email, PASSWORD));
+        return result.getUser().getUid();
+    }
+
+    /**
+     * Unmetered access to the emulator, for seeding and for checking what the app wrote.
+     */
+    static FirebaseFirestore seedDb(Context context) {
+        for (FirebaseApp app : FirebaseApp.getApps(context)) {
+            if (app.getName().equals(SEED_APP)) return FirebaseFirestore.getInstance(app);
+        }
+        FirebaseApp app = FirebaseApp.initializeApp(context, FirebaseManager.getApp().getOptions(), SEED_APP);
+        FirebaseFirestore db = FirebaseFirestore.getInstance(app);
+        db.useEmulator(HOST, FIRESTORE_PORT);
+        return db;
+    }
+
+    private static AttendanceRecord record(User user, Calendar day) {
+        Calendar checkIn = (Calendar) day.clone();
+        checkIn.set(Calendar.HOUR_OF_DAY, 9);
+        checkIn.set(Calendar.MINUTE, 0);
+        String dateId = TimeUtils.formatTimestampToDate(checkIn.getTimeInMillis());
+
+        AttendanceRecord record = new AttendanceRecord(user.getEmployeeId(), user.getName(), dateId, checkIn.getTimeInMillis());
+        record.setRecordId(user.getEmployeeId() + "_" + dateId);
+        record.setDayOfWeek(new SimpleDateFormat("EEEE", Locale.US).format(checkIn.getTime()));
+        record.setCheckInTime("09:00 AM");
+        record.setLocationName("Office " + officeIds.indexOf(user.getAssignedLocationId()));
+        record.setLastVerifiedLocationId(user.getAssignedLocationId());
+        return record;
+    }
+
+    private static Map.Entry<String, Object> doc(String path, Object data) {
+        return new AbstractMap.SimpleEntry<>(path, data);
+    }
+}
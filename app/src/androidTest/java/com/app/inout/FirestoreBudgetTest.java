@@ -0,0 +1,337 @@
+package com.inout.app.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+import androidx.fragment.app.DialogFragment;
+import androidx.navigation.Navigation;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.inout.app.AdminDashboardActivity;
+import com.inout.app.AttendanceProfileDialog;
+import com.inout.app.EmployeeDashboardActivity;
+import com.inout.app.ExportWorker;
+import com.inout.app.R;
+import com.inout.app.models.PunchEvent;
+import com.inout.app.utils.TimeUtils;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drives the main flows against the Firestore and Auth emulators, seeded with an organisation of
+ * the size ReadBudget is sized for (see EmulatorOrg), and checks what FirestoreMeter counted
+ * against ReadBudget: every screen against its visit budget, background jobs against theirs.
+ * A change that makes a screen read the whole history fails here instead of on the bill.
+ *
+ * Needs the emulators on the host, reachable from the Android emulator as 10.0.2.2:
+ *
+ *     firebase emulators:start --only firestore,auth --project demo-inout
+ *
+ * then ./gradlew connectedDebugAndroidTest. Each test starts from a zeroed meter; the seeded data
+ * is shared, which the budgets allow for (they are upper bounds, and every flow only adds to it).
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class FirestoreBudgetTest {
+
+    private static final long POLL_MS = 250;
+    private static final long QUIET_MS = 3_000;       // No new Firestore work for this long = flow settled
+    private static final long TIMEOUT_MS = 120_000;
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+
+    @BeforeClass
+    public static void seedOrganisation() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        EmulatorOrg.clear();
+        EmulatorOrg.connect(context);
+        EmulatorOrg.seed(context);
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Employee
+    // ---------------------------------------------------------------------------------------
+
+    @Test
+    public void employeeDashboardOpen() throws Exception {
+        EmulatorOrg.signIn(context, EmulatorOrg.SUBJECT_EMAIL, "employee");
+        resetMeter();
+
+        try (ActivityScenario<EmployeeDashboardActivity> ignored = ActivityScenario.launch(EmployeeDashboardActivity.class)) {
+            awaitQuiet();
+            Map<String, long[]> totals = assertWithinBudgets(null);
+            assertRead(totals, "EmployeeCheckInFragment");
+        }
+    }
+
+    /**
+     * The punch is handed to PunchJournal the way EmployeeCheckInFragment does once GPS and the
+     * fingerprint agree; those two need a real device. The flush is the app's own PunchFlushWorker.
+     */
+    @Test
+    public void checkIn() throws Exception {
+        EmulatorOrg.signIn(context, EmulatorOrg.SUBJECT_EMAIL, "employee");
+        resetMeter();
+
+        try (ActivityScenario<EmployeeDashboardActivity> ignored = ActivityScenario.launch(EmployeeDashboardActivity.class)) {
+            awaitQuiet();
+
+            PunchEntity punch = checkInPunch();
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> PunchJournal.getInstance(context).record(punch));
+            awaitRecord(punch.recordId);
+            awaitQuiet();
+
+            Map<String, long[]> totals = assertWithinBudgets(ReadBudget.forPunchFlush(1, 1));
+            assertRead(totals, "EmployeeCheckInFragment");
+            assertTrue("The flush was not metered", totals.containsKey(FirestoreMeter.BACKGROUND));
+        }
+    }
+
+    @Test
+    public void employeeHistory() throws Exception {
+        EmulatorOrg.signIn(context, EmulatorOrg.SUBJECT_EMAIL, "employee");
+
+        try (ActivityScenario<EmployeeDashboardActivity> scenario = ActivityScenario.launch(EmployeeDashboardActivity.class)) {
+            awaitQuiet();
+            resetMeter();
+
+            scenario.onActivity(activity -> Navigation.findNavController(activity, R.id.nav_host_fragment_employee)
+                    .navigate(R.id.nav_employee_history));
+            awaitQuiet();
+
+            Map<String, long[]> totals = assertWithinBudgets(null);
+            assertRead(totals, "EmployeeHistoryFragment");
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Admin
+    // ---------------------------------------------------------------------------------------
+
+    @Test
+    public void adminEmployeeList() throws Exception {
+        EmulatorOrg.signIn(context, EmulatorOrg.ADMIN_EMAIL, "admin");
+        resetMeter();
+
+        try (ActivityScenario<AdminDashboardActivity> ignored = ActivityScenario.launch(AdminDashboardActivity.class)) {
+            awaitQuiet();
+            Map<String, long[]> totals = assertWithinBudgets(null);
+            assertRead(totals, "AdminEmployeesFragment");
+        }
+    }
+
+    @Test
+    public void adminAttendanceBoard() throws Exception {
+        EmulatorOrg.signIn(context, EmulatorOrg.ADMIN_EMAIL, "admin");
+
+        try (ActivityScenario<AdminDashboardActivity> scenario = ActivityScenario.launch(AdminDashboardActivity.class)) {
+            awaitQuiet();
+            resetMeter();
+
+            scenario.onActivity(activity -> Navigation.findNavController(activity, R.id.nav_host_fragment_admin)
+                    .navigate(R.id.nav_admin_attendance));
+            awaitQuiet();
+
+            Map<String, long[]> totals = assertWithinBudgets(null);
+            assertRead(totals, "AdminAttendanceFragment");
+        }
+    }
+
+    /**
+     * Opens the subject's profile and flips back through every month of their history, the
+     * oldest of which have no summary yet.
+     */
+    @Test
+    public void profileDialog() throws Exception {
+        EmulatorOrg.signIn(context, EmulatorOrg.ADMIN_EMAIL, "admin");
+
+        try (ActivityScenario<AdminDashboardActivity> scenario = ActivityScenario.launch(AdminDashboardActivity.class)) {
+            awaitQuiet();
+            resetMeter();
+
+            scenario.onActivity(activity -> AttendanceProfileDialog.newInstance(EmulatorOrg.subject)
+                    .show(activity.getSupportFragmentManager(), "profile"));
+            awaitQuiet();
+            for (int i = 1; i < EmulatorOrg.HISTORY_MONTHS; i++) {
+                scenario.onActivity(activity -> {
+                    DialogFragment dialog = (DialogFragment) activity.getSupportFragmentManager().findFragmentByTag("profile");
+                    dialog.requireDialog().findViewById(R.id.btn_prev_month).performClick();
+                });
+                awaitQuiet();
+            }
+
+            Map<String, long[]> totals = assertWithinBudgets(null);
+            assertRead(totals, "AttendanceProfileDialog");
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Export (the app's own WorkManager runs ExportWorker)
+    // ---------------------------------------------------------------------------------------
+
+    @Test
+    public void employeeExport() throws Exception {
+        EmulatorOrg.signIn(context, EmulatorOrg.ADMIN_EMAIL, "admin");
+
+        try (ActivityScenario<AdminDashboardActivity> ignored = ActivityScenario.launch(AdminDashboardActivity.class)) {
+            awaitQuiet();
+            resetMeter();
+
+            Calendar firstMonth = Calendar.getInstance();
+            firstMonth.add(Calendar.MONTH, -(EmulatorOrg.HISTORY_MONTHS - 1));
+            String jobName = ExportWorker.enqueueEmployeeExport(context, EmulatorOrg.subject.getEmployeeId(),
+                    EmulatorOrg.subject.getName(), firstMonth, EmulatorOrg.HISTORY_MONTHS);
+            assertEquals(WorkInfo.State.SUCCEEDED, awaitWork(jobName));
+            awaitQuiet();
+
+            Map<String, long[]> totals = assertWithinBudgets(ReadBudget.forEmployeeExport(EmulatorOrg.HISTORY_MONTHS));
+            assertRead(totals, FirestoreMeter.BACKGROUND);
+        }
+    }
+
+    @Test
+    public void orgExport() throws Exception {
+        EmulatorOrg.signIn(context, EmulatorOrg.ADMIN_EMAIL, "admin");
+
+        try (ActivityScenario<AdminDashboardActivity> ignored = ActivityScenario.launch(AdminDashboardActivity.class)) {
+            awaitQuiet();
+            resetMeter();
+
+            String jobName = ExportWorker.enqueueOrgExport(context, Calendar.getInstance(), 1);
+            assertEquals(WorkInfo.State.SUCCEEDED, awaitWork(jobName));
+            awaitQuiet();
+
+            Map<String, long[]> totals = assertWithinBudgets(ReadBudget.forOrgExport(1));
+            assertRead(totals, FirestoreMeter.BACKGROUND);
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------
+
+    private static void resetMeter() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> FirestoreMeter.getInstance().reset());
+    }
+
+    /**
+     * Waits until FirestoreMeter has counted nothing new for QUIET_MS.
+     */
+    private static void awaitQuiet() {
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MS;
+        long last = -1;
+        long quietSince = SystemClock.uptimeMillis();
+        while (SystemClock.uptimeMillis() < deadline) {
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+            long total = 0;
+            for (FirestoreMeter.Usage usage : FirestoreMeter.getInstance().getDay(TimeUtils.getCurrentDateId())) {
+                total += usage.reads + usage.writes + usage.listenerEvents;
+            }
+            if (total != last) {
+                last = total;
+                quietSince = SystemClock.uptimeMillis();
+            } else if (SystemClock.uptimeMillis() - quietSince >= QUIET_MS) {
+                return;
+            }
+            SystemClock.sleep(POLL_MS);
+        }
+        fail("Firestore traffic did not settle within " + TIMEOUT_MS + " ms");
+    }
+
+    private void awaitRecord(String recordId) throws Exception {
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MS;
+        while (SystemClock.uptimeMillis() < deadline) {
+            DocumentSnapshot doc = Tasks.await(EmulatorOrg.seedDb(context).collection("attendance").document(recordId).get());
+            Long punchCount = doc.getLong("punchCount");
+            if (punchCount != null && punchCount > 0) return;
+            SystemClock.sleep(POLL_MS);
+        }
+        fail("The punch never reached " + recordId);
+    }
+
+    private WorkInfo.State awaitWork(String jobName) throws Exception {
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MS;
+        while (SystemClock.uptimeMillis() < deadline) {
+            List<WorkInfo> infos = WorkManager.getInstance(context).getWorkInfosForUniqueWork(jobName).get();
+            WorkInfo latest = infos.isEmpty() ? null : infos.get(infos.size() - 1);
+            if (latest != null && latest.getState().isFinished()) return latest.getState();
+            SystemClock.sleep(POLL_MS);
+        }
+        fail(jobName + " did not finish within " + TIMEOUT_MS + " ms");
+        return null;
+    }
+
+    /**
+     * Sums today's usage per screen and checks each screen that has a budget. BACKGROUND is
+     * checked against the given job budget, if any.
+     *
+     * @return Reads and writes per screen.
+     */
+    private static Map<String, long[]> assertWithinBudgets(@Nullable ReadBudget background) {
+        Map<String, long[]> totals = new HashMap<>();
+        for (FirestoreMeter.Usage usage : FirestoreMeter.getInstance().getDay(TimeUtils.getCurrentDateId())) {
+            long[] counts = totals.get(usage.screen);
+            if (counts == null) {
+                counts = new long[2];
+                totals.put(usage.screen, counts);
+            }
+            counts[0] += usage.reads;
+            counts[1] += usage.writes;
+        }
+
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+            String screen = entry.getKey();
+            ReadBudget budget = FirestoreMeter.BACKGROUND.equals(screen) ? background : ReadBudget.forScreen(screen);
+            if (budget == null) continue;
+            long[] counts = entry.getValue();
+            assertTrue(screen + " read " + counts[0] + " (budget " + budget.reads + ")", counts[0] <= budget.reads);
+            assertTrue(screen + " wrote " + counts[1] + " (budget " + budget.writes + ")", counts[1] <= budget.writes);
+        }
+        return totals;
+    }
+
+    /**
+     * Guards against a vacuous pass: the flow must have reached Firestore at all.
+     */
+    private static void assertRead(Map<String, long[]> totals, String screen) {
+        long[] counts = totals.get(screen);
+        assertTrue(screen + " read nothing; did the flow run?", counts != null && counts[0] > 0);
+    }
+
+    private PunchEntity checkInPunch() {
+        String dateId = TimeUtils.getCurrentDateId();
+        String officeId = EmulatorOrg.subject.getAssignedLocationId();
+
+        PunchEntity punch = new PunchEntity();
+        punch.type = PunchEvent.TYPE_IN;
+        punch.recordId = EmulatorOrg.subject.getEmployeeId() + "_" + dateId;
+        punch.employeeId = EmulatorOrg.subject.getEmployeeId();
+        punch.employeeName = EmulatorOrg.subject.getName();
+        punch.date = dateId;
+        punch.time = TimeUtils.getCurrentTime();
+        punch.timestamp = TimeUtils.getCurrentTimestamp();
+        punch.lat = 12.9716;
+        punch.lng = 77.5946;
+        punch.locationId = officeId;
+        punch.locationName = "Office " + EmulatorOrg.officeIds.indexOf(officeId);
+        return punch;
+    }
+}
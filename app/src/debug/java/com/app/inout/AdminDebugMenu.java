@@ -0,0 +1,67 @@
+package com.inout.app;
+
+import android.app.Activity;
+import android.app.AlertDialog;
+import android.view.Menu;
+import android.view.MenuItem;
+
+import androidx.annotation.NonNull;
+
+import com.inout.app.utils.QrDecoderBenchmark;
+
+/**
+ * Debug-only entries of the admin menu. Release builds get a version of this class without any.
+ */
+final class AdminDebugMenu {
+
+    private static final int QR_BENCHMARK_REPETITIONS = 3;
+
+    private AdminDebugMenu() {
+    }
+
+    static void onCreateOptionsMenu(@NonNull Activity activity, @NonNull Menu menu) {
+        activity.getMenuInflater().inflate(R.menu.admin_debug_menu, menu);
+    }
+
+    /**
+     * @return True if the item was one of the debug entries and has been handled.
+     */
+    static boolean onOptionsItemSelected(@NonNull Activity activity, @NonNull MenuItem item) {
+        if (item.getItemId() == R.id.action_qr_benchmark) {
+            runQrBenchmark(activity);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Replays the QR frame corpus through every decoder backend on this device (takes a few seconds).
+     * ZXing alone is also covered on the JVM by ZxingQrDecoderTest; ML Kit needs a device.
+     */
+    private static void runQrBenchmark(Activity activity) {
+        AlertDialog progress = new AlertDialog.Builder(activity)
+                .setTitle("QR Decoder Benchmark")
+                .setMessage("Decoding the frame corpus with every backend...")
+                .setCancelable(false)
+                .show();
+
+        new Thread(() -> {
+            String report;
+            try {
+                report = QrDecoderBenchmark.format(QrDecoderBenchmark.run(activity.getApplicationContext(), QR_BENCHMARK_REPETITIONS));
+            } catch (Exception e) {
+                report = "Benchmark failed: " + e;
+            }
+            String message = report;
+            activity.runOnUiThread(() -> {
+                progress.dismiss();
+                if (activity.isFinishing()) return;
+                new AlertDialog.Builder(activity)
+                        .setTitle("QR Decoder Benchmark")
+                        .setMessage(message)
+                        .setPositiveButton("Close", null)
+                        .show();
+            });
+        }, "QrDecoderBenchmark").start();
+    }
+}
@@ -0,0 +1,182 @@
+package com.inout.app.utils;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The generated part of the QR corpus: the company QR of both payload formats rendered into
+ * 640x480 grey frames, clean and with the conditions that defeat scans in practice (glare, blur,
+ * small codes, dim light with sensor noise). Plain Java, so QrDecoderBenchmark on the device and
+ * ZxingQrDecoderTest on the JVM decode the very same frames.
+ */
+final class SyntheticQrFrames {
+
+    static final int FRAME_WIDTH = 640;
+    static final int FRAME_HEIGHT = 480;
+    static final int FRAMES_PER_CASE = 6;
+
+    private static final long SEED = 42; // Same corpus on every run
+    private static final int DENSE_LENGTH = 2000; // Size of the first JSON + AES/ECB payload
+
+    enum Degradation {
+        NONE,
+        BLUR,
+        GLARE,
+        DIM_NOISE
+    }
+
+    /**
+     * One case of the corpus; FRAMES_PER_CASE frames are rendered for each.
+     */
+    static final class Case {
+        final String name;
+        final boolean dense;
+        final int moduleSize;
+        final Degradation degradation;
+
+        Case(String name, boolean dense, int moduleSize, Degradation degradation) {
+            this.name = name;
+            this.dense = dense;
+            this.moduleSize = moduleSize;
+            this.degradation = degradation;
+        }
+    }
+
+    static final List<Case> CASES = Collections.unmodifiableList(Arrays.asList(
+            new Case("compact", false, 5, Degradation.NONE),
+            new Case("dense_legacy", true, 2, Degradation.NONE),
+            new Case("small", false, 2, Degradation.NONE),
+            new Case("blur", false, 4, Degradation.BLUR),
+            new Case("glare", false, 5, Degradation.GLARE),
+            new Case("dim_noisy", false, 5, Degradation.DIM_NOISE)));
+
+    /**
+     * One rendered frame: a raw luma plane of FRAME_WIDTH x FRAME_HEIGHT and the text it encodes.
+     */
+    static final class Frame {
+        final String caseName;
+        final byte[] luma;
+        final String expected;
+
+        Frame(String caseName, byte[] luma, String expected) {
+            this.caseName = caseName;
+            this.luma = luma;
+            this.expected = expected;
+        }
+    }
+
+    private SyntheticQrFrames() {
+    }
+
+    /**
+     * @param compact The current "IO2:" payload; the dense legacy one is generated.
+     */
+    static List<Frame> generate(String compact) {
+        Random random = new Random(SEED);
+        String dense = randomString(random, "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/",
+                DENSE_LENGTH);
+
+        List<Frame> frames = new ArrayList<>();
+        for (int i = 0; i < FRAMES_PER_CASE; i++) {
+            for (Case c : CASES) {
+                String content = c.dense ? dense : compact;
+                frames.add(new Frame(c.name, render(content, c.moduleSize, c.degradation, random), content));
+            }
+        }
+        return frames;
+    }
+
+    static String randomString(Random random, String alphabet, int length) {
+        StringBuilder out = new StringBuilder(length);
+        for (int i = 0; i < length; i++) out.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        return out.toString();
+    }
+
+    private static byte[] render(String content, int moduleSize, Degradation degradation, Random random) {
+        BitMatrix matrix;
+        try {
+            matrix = new QRCodeWriter().encode(content, BarcodeFormat.QR_CODE, 0, 0); // One pixel per module
+        } catch (WriterException e) {
+            throw new IllegalStateException(e);
+        }
+        int codeSize = matrix.getWidth() * moduleSize;
+        // Centred, give or take a quarter of the free space
+        int jitter = Math.max(0, Math.min(FRAME_WIDTH, FRAME_HEIGHT) - codeSize) / 4;
+        int originX = (FRAME_WIDTH - codeSize) / 2 + random.nextInt(2 * jitter + 1) - jitter;
+        int originY = (FRAME_HEIGHT - codeSize) / 2 + random.nextInt(2 * jitter + 1) - jitter;
+
+        // Paper on a grey table
+        int[] pixels = new int[FRAME_WIDTH * FRAME_HEIGHT];
+        Arrays.fill(pixels, 110);
+        for (int y = 0; y < codeSize; y++) {
+            for (int x = 0; x < codeSize; x++) {
+                int px = originX + x;
+                int py = originY + y;
+                if (px < 0 || py < 0 || px >= FRAME_WIDTH || py >= FRAME_HEIGHT) continue;
+                pixels[py * FRAME_WIDTH + px] = matrix.get(x / moduleSize, y / moduleSize) ? 30 : 225;
+            }
+        }
+
+        switch (degradation) {
+            case BLUR:
+                pixels = boxBlur(boxBlur(pixels));
+                break;
+            case GLARE: {
+                // Bright specular spot over a quarter of the code
+                int cx = originX + codeSize / 3 + random.nextInt(Math.max(1, codeSize / 3));
+                int cy = originY + codeSize / 3 + random.nextInt(Math.max(1, codeSize / 3));
+                double radius = codeSize / 4.0;
+                for (int y = 0; y < FRAME_HEIGHT; y++) {
+                    for (int x = 0; x < FRAME_WIDTH; x++) {
+                        double d = Math.hypot(x - cx, y - cy) / radius;
+                        if (d < 1) pixels[y * FRAME_WIDTH + x] += (int) (200 * (1 - d * d));
+                    }
+                }
+                break;
+            }
+            case DIM_NOISE:
+                for (int i = 0; i < pixels.length; i++) {
+                    pixels[i] = 40 + pixels[i] * 50 / 255 + (int) (random.nextGaussian() * 12);
+                }
+                break;
+            default:
+                break;
+        }
+
+        byte[] luma = new byte[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            int noisy = pixels[i] + (int) (random.nextGaussian() * 4);
+            luma[i] = (byte) Math.max(0, Math.min(255, noisy));
+        }
+        return luma;
+    }
+
+    private static int[] boxBlur(int[] pixels) {
+        int[] out = new int[pixels.length];
+        for (int y = 0; y < FRAME_HEIGHT; y++) {
+            for (int x = 0; x < FRAME_WIDTH; x++) {
+                int sum = 0;
+                int count = 0;
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        int px = x + dx;
+                        int py = y + dy;
+                        if (px < 0 || py < 0 || px >= FRAME_WIDTH || py >= FRAME_HEIGHT) continue;
+                        sum += pixels[py * FRAME_WIDTH + px];
+                        count++;
+                    }
+                }
+                out[y * FRAME_WIDTH + x] = sum / count;
+            }
+        }
+        return out;
+    }
+}
@@ -1,6 +1,9 @@
 package com.inout.app;
 
+import android.app.AlertDialog;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -12,19 +15,42 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.LinearLayoutManager;
 
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.inout.app.adapters.LiveBoardAdapter;
+import com.inout.app.data.FirestoreMeter;
+import com.inout.app.data.ListenerHub;
+import com.inout.app.data.LocationRegistry;
 import com.inout.app.databinding.FragmentAdminAttendanceBinding;
+import com.inout.app.models.AttendanceRecord;
+import com.inout.app.models.CompanyConfig;
 import com.inout.app.models.User;
+import com.inout.app.utils.FirebaseManager;
+import com.inout.app.utils.SnapshotListSync;
+import com.inout.app.utils.TimeUtils;
 
+import java.io.File;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Admin view for Attendance.
  * 1. Select employee from Spinner.
  * 2. Opens the Professional Attendance Profile Pop-up (CV-style).
+ * 3. Live "who's in now" board: today's status of every employee, grouped by office.
+ *    Fed by a single date == today listener joined in memory with the employee list,
+ *    moved to the new date at midnight (or on return to the screen after it).
  */
 public class AdminAttendanceFragment extends Fragment {
 
@@ -33,6 +59,19 @@ public class AdminAttendanceFragment extends Fragment {
     private FirebaseFirestore db;
     
     private List<User> employees;
+    private boolean employeesLoaded = false;
+
+    // LIVE BOARD: today's records keyed by employeeId, updated from document changes only
+    private final Map<String, AttendanceRecord> todayRecords = new HashMap<>();
+    private final List<LiveBoardAdapter.Row> boardRows = new ArrayList<>();
+    private SnapshotListSync<LiveBoardAdapter.Row> boardSync;
+    private LocationRegistry.OnLocationsChangedListener locationsListener;
+
+    // Date the board listens to; the listener is replaced when the day changes
+    private String boardDateId;
+    private ListenerHub.Subscription todaySubscription;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable midnightCheck = this::onDateMaybeChanged;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -44,11 +83,28 @@ public class AdminAttendanceFragment extends Fragment {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        db = FirebaseFirestore.getInstance();
+        db = FirebaseManager.firestore();
         employees = new ArrayList<>();
 
+        setupBoard();
+        binding.btnExportOrgMonth.setOnClickListener(v -> chooseExportMonth());
+
         // Load the list of employees into the spinner first
         loadEmployeeList();
+        listenForTodayRecords();
+
+        // Office names on the board follow edits made on the Locations tab
+        locationsListener = locations -> renderBoard();
+        LocationRegistry.getInstance().addListener(locationsListener);
+    }
+
+    private void setupBoard() {
+        binding.rvLiveBoard.setLayoutManager(new LinearLayoutManager(getContext()));
+        LiveBoardAdapter boardAdapter = new LiveBoardAdapter(boardRows, this::openAttendanceProfileDialog);
+        binding.rvLiveBoard.setAdapter(boardAdapter);
+
+        // Rows are rebuilt on every event; unchanged ones are reused so only real changes rebind
+        boardSync = new SnapshotListSync<>(boardRows, LiveBoardAdapter.Row::getKey).attachAdapter(boardAdapter);
     }
 
     /**
@@ -57,10 +113,10 @@ public class AdminAttendanceFragment extends Fragment {
      */
     private void loadEmployeeList() {
         binding.progressBar.setVisibility(View.VISIBLE);
-        db.collection("users")
+        Query approved = db.collection("users")
                 .whereEqualTo("role", "employee")
-                .whereEqualTo("approved", true)
-                .get()
+                .whereEqualTo("approved", true);
+        FirestoreMeter.getInstance().read("AdminAttendanceFragment.loadEmployeeList", approved.get())
                 .addOnSuccessListener(queryDocumentSnapshots -> {
                     binding.progressBar.setVisibility(View.GONE);
                     employees.clear();
@@ -78,6 +134,8 @@ public class AdminAttendanceFragment extends Fragment {
                     }
 
                     setupSpinner(employeeNames);
+                    employeesLoaded = true;
+                    renderBoard();
                 })
                 .addOnFailureListener(e -> {
                     binding.progressBar.setVisibility(View.GONE);
@@ -116,6 +174,239 @@ public class AdminAttendanceFragment extends Fragment {
         });
     }
 
+    @Override
+    public void onResume() {
+        super.onResume();
+        onDateMaybeChanged();
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        mainHandler.removeCallbacks(midnightCheck);
+    }
+
+    /**
+     * Moves the board to the new day if the date changed (screen left open over midnight, or
+     * resumed the next day), then re-arms the check for the next midnight.
+     */
+    private void onDateMaybeChanged() {
+        mainHandler.removeCallbacks(midnightCheck);
+        if (binding == null) return;
+        if (!TimeUtils.getCurrentDateId().equals(boardDateId)) listenForTodayRecords();
+
+        Calendar midnight = Calendar.getInstance();
+        midnight.add(Calendar.DAY_OF_MONTH, 1);
+        midnight.set(Calendar.HOUR_OF_DAY, 0);
+        midnight.set(Calendar.MINUTE, 0);
+        midnight.set(Calendar.SECOND, 1);
+        midnight.set(Calendar.MILLISECOND, 0);
+        mainHandler.postDelayed(midnightCheck, midnight.getTimeInMillis() - System.currentTimeMillis());
+    }
+
+    /**
+     * One listener for the whole org: today's attendance documents. Only added/modified
+     * documents are decoded; the board is then re-joined with the employee list in memory.
+     */
+    private void listenForTodayRecords() {
+        String today = TimeUtils.getCurrentDateId();
+        if (todaySubscription != null) todaySubscription.remove();
+        boardDateId = today;
+        todayRecords.clear();
+        renderBoard();
+
+        Query todayQuery = db.collection("attendance").whereEqualTo("date", today);
+        todaySubscription = ListenerHub.getInstance().<QuerySnapshot>subscribe(getViewLifecycleOwner(),
+                "AdminAttendanceFragment.listenForTodayRecords", "attendance?date=" + today,
+                todayQuery::addSnapshotListener,
+                (value, error, reset) -> {
+                    if (error != null) {
+                        Log.e(TAG, "Live board listener failed", error);
+                        return;
+                    }
+                    if (value == null) return;
+
+                    if (reset) {
+                        // Full state (first event, or after a re-attach): rows deleted meanwhile must go
+                        todayRecords.clear();
+                        for (DocumentSnapshot doc : value.getDocuments()) putTodayRecord(doc);
+                        renderBoard();
+                        return;
+                    }
+                    for (DocumentChange change : value.getDocumentChanges()) {
+                        DocumentSnapshot doc = change.getDocument();
+                        if (change.getType() == DocumentChange.Type.REMOVED) {
+                            String employeeId = doc.getString("employeeId");
+                            if (employeeId != null) todayRecords.remove(employeeId);
+                        } else {
+                            putTodayRecord(doc);
+                        }
+                    }
+                    renderBoard();
+                });
+    }
+
+    private void putTodayRecord(DocumentSnapshot doc) {
+        AttendanceRecord record = doc.toObject(AttendanceRecord.class);
+        if (record != null && record.getEmployeeId() != null) {
+            record.setRecordId(doc.getId());
+            todayRecords.put(record.getEmployeeId(), record);
+        }
+    }
+
+    private void renderBoard() {
+        if (binding == null || !employeesLoaded) return;
+
+        // Group key -> employee rows; counts are [in, transit, out, absent]
+        Map<String, List<LiveBoardAdapter.Row>> groups = new HashMap<>();
+        Map<String, int[]> groupCounts = new HashMap<>();
+        Map<String, String> groupNames = new HashMap<>();
+        int[] totals = new int[4];
+
+        for (User user : employees) {
+            AttendanceRecord record = user.getEmployeeId() != null ? todayRecords.get(user.getEmployeeId()) : null;
+            LiveBoardAdapter.Status status = statusOf(user, record);
+
+            // Present employees are listed where they last verified; absent or moving ones under their assignment
+            String groupId = user.getAssignedLocationId();
+            if (record != null && status != LiveBoardAdapter.Status.IN_TRANSIT && record.getLastVerifiedLocationId() != null) {
+                groupId = record.getLastVerifiedLocationId();
+            }
+            String groupKey = groupId != null ? groupId : "";
+
+            if (!groups.containsKey(groupKey)) {
+                groups.put(groupKey, new ArrayList<>());
+                groupCounts.put(groupKey, new int[4]);
+                groupNames.put(groupKey, locationNameOf(groupId, status == LiveBoardAdapter.Status.IN_TRANSIT ? null : record));
+            }
+            groups.get(groupKey).add(LiveBoardAdapter.Row.employee(user, status, detailOf(status, record)));
+            groupCounts.get(groupKey)[status.ordinal()]++;
+            totals[status.ordinal()]++;
+        }
+
+        List<String> groupKeys = new ArrayList<>(groups.keySet());
+        Collections.sort(groupKeys, (a, b) -> groupNames.get(a).compareToIgnoreCase(groupNames.get(b)));
+
+        // Reuse the previous instance of every row that renders the same
+        Map<String, LiveBoardAdapter.Row> previous = new HashMap<>();
+        for (LiveBoardAdapter.Row row : boardRows) previous.put(row.key, row);
+
+        List<LiveBoardAdapter.Row> rows = new ArrayList<>();
+        for (String groupKey : groupKeys) {
+            List<LiveBoardAdapter.Row> members = groups.get(groupKey);
+            Collections.sort(members, (a, b) -> a.status != b.status
+                    ? a.status.compareTo(b.status)
+                    : a.title.compareToIgnoreCase(b.title));
+
+            rows.add(reuse(previous, LiveBoardAdapter.Row.header(groupKey, groupNames.get(groupKey),
+                    formatCounts(groupCounts.get(groupKey)))));
+            for (LiveBoardAdapter.Row member : members) rows.add(reuse(previous, member));
+        }
+
+        boardSync.replaceAll(rows);
+        binding.tvBoardSummary.setText("Today: " + formatCounts(totals));
+        binding.tvNoData.setVisibility(employees.isEmpty() ? View.VISIBLE : View.GONE);
+    }
+
+    private static LiveBoardAdapter.Row reuse(Map<String, LiveBoardAdapter.Row> previous, LiveBoardAdapter.Row row) {
+        LiveBoardAdapter.Row old = previous.get(row.key);
+        return row.sameContentAs(old) ? old : row;
+    }
+
+    /**
+     * Same rules as the employee check-in screen: a checked-in employee last verified at an
+     * office they are no longer allowed at has been sent elsewhere and is in transit.
+     */
+    private static LiveBoardAdapter.Status statusOf(User user, @Nullable AttendanceRecord record) {
+        if (record == null || record.getCheckInTime() == null) return LiveBoardAdapter.Status.ABSENT;
+        if (record.getCheckOutTime() != null && !record.getCheckOutTime().isEmpty()) return LiveBoardAdapter.Status.CHECKED_OUT;
+
+        String lastLocId = record.getLastVerifiedLocationId();
+        if (lastLocId != null && user.getAssignedLocationId() != null && !user.getAllLocationIds().contains(lastLocId)) {
+            return LiveBoardAdapter.Status.IN_TRANSIT;
+        }
+        return LiveBoardAdapter.Status.CHECKED_IN;
+    }
+
+    private static String detailOf(LiveBoardAdapter.Status status, @Nullable AttendanceRecord record) {
+        switch (status) {
+            case CHECKED_IN:
+                List<String> route = record.getMovementLog();
+                return "In " + record.getCheckInTime()
+                        + (route != null && route.size() > 1 ? " · " + record.getTransitSummary() : "");
+            case IN_TRANSIT:
+                return "In " + record.getCheckInTime() + " · Moving from " + record.getLocationName();
+            case CHECKED_OUT:
+                return "In " + record.getCheckInTime() + " · Out " + record.getCheckOutTime()
+                        + " · " + record.getTotalHours();
+            default:
+                return "No check-in yet";
+        }
+    }
+
+    private static String locationNameOf(@Nullable String locationId, @Nullable AttendanceRecord record) {
+        if (locationId == null) return "Unassigned";
+        CompanyConfig location = LocationRegistry.getInstance().get(locationId);
+        if (location != null && location.getName() != null) return location.getName();
+        if (record != null && record.getLocationName() != null) return record.getLocationName();
+        return "Unknown Office";
+    }
+
+    private static String formatCounts(int[] counts) {
+        return "In " + counts[0] + " · Transit " + counts[1] + " · Out " + counts[2] + " · Absent " + counts[3];
+    }
+
+    /**
+     * Payroll usually wants the month that just ended, so both months are offered.
+     */
+    private void chooseExportMonth() {
+        Calendar thisMonth = Calendar.getInstance();
+        Calendar lastMonth = Calendar.getInstance();
+        lastMonth.add(Calendar.MONTH, -1);
+
+        SimpleDateFormat format = new SimpleDateFormat("MMMM yyyy", Locale.US);
+        String[] options = {format.format(lastMonth.getTime()), format.format(thisMonth.getTime())};
+
+        new AlertDialog.Builder(requireContext())
+                .setTitle("Export all employees")
+                .setItems(options, (dialog, which) -> exportOrgMonth(which == 0 ? lastMonth : thisMonth))
+                .show();
+    }
+
+    private void exportOrgMonth(Calendar month) {
+        binding.progressBar.setVisibility(View.VISIBLE);
+        binding.btnExportOrgMonth.setEnabled(false);
+
+        // Durable background job: keeps running (with a progress notification) if the admin leaves
+        String jobName = ExportWorker.enqueueOrgExport(requireActivity(), month, 1);
+        ExportWorker.observe(getViewLifecycleOwner(), requireContext(), jobName, new ExportWorker.JobListener() {
+            @Override
+            public void onProgress(String message) {
+                if (binding != null) binding.btnExportOrgMonth.setText(message);
+            }
+
+            @Override
+            public void onComplete(File file) {
+                if (binding == null) return;
+                resetExportButton();
+                CsvExportHelper.shareCsvFile(requireContext(), file);
+            }
+
+            @Override
+            public void onError(String errorMsg) {
+                if (binding == null) return;
+                resetExportButton();
+                Toast.makeText(getContext(), errorMsg, Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    private void resetExportButton() {
+        binding.progressBar.setVisibility(View.GONE);
+        binding.btnExportOrgMonth.setEnabled(true);
+        binding.btnExportOrgMonth.setText("Export Month (All Employees)");
+    }
+
     /**
      * This method initializes and displays the new CV-style Attendance Profile window.
      * @param user The employee whose attendance is being viewed.
@@ -130,6 +421,10 @@ public class AdminAttendanceFragment extends Fragment {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        LocationRegistry.getInstance().removeListener(locationsListener);
+        mainHandler.removeCallbacks(midnightCheck);
+        todaySubscription = null;   // Removed with the view lifecycle by ListenerHub
+        boardDateId = null;
         binding = null;
     }
 }
\ No newline at end of file
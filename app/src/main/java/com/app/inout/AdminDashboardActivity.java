@@ -1,9 +1,11 @@
 package com.inout.app;
 
+import android.app.AlertDialog;
 import android.content.Intent;
 import android.os.Bundle;
 import android.view.Menu;
 import android.view.MenuItem; 
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
@@ -16,11 +18,27 @@ import com.google.android.gms.auth.api.signin.GoogleSignIn;
 import com.google.android.gms.auth.api.signin.GoogleSignInClient;
 import com.google.android.gms.auth.api.signin.GoogleSignInOptions;
 import com.google.firebase.auth.FirebaseAuth;
+import com.inout.app.data.FirestoreMeter;
+import com.inout.app.data.LocationRegistry;
+import com.inout.app.data.MonthlySummaryRepository;
+import com.inout.app.data.SessionStore;
 import com.inout.app.databinding.ActivityAdminDashboardBinding;
 import com.inout.app.utils.EncryptionHelper;
+import com.inout.app.utils.FirebaseManager;
+import com.inout.app.utils.TimeUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class AdminDashboardActivity extends AppCompatActivity {
 
+    private static final int SUMMARY_REBUILD_MONTHS = 12;
+    private static final int USAGE_TOP_SITES = 8;
+
     private ActivityAdminDashboardBinding binding;
     private FirebaseAuth mAuth;
 
@@ -30,7 +48,7 @@ public class AdminDashboardActivity extends AppCompatActivity {
         binding = ActivityAdminDashboardBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
-        mAuth = FirebaseAuth.getInstance();
+        mAuth = FirebaseManager.auth();
         setSupportActionBar(binding.toolbar);
 
         // Setup Navigation Component
@@ -58,6 +76,7 @@ public class AdminDashboardActivity extends AppCompatActivity {
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.admin_top_menu, menu);
+        AdminDebugMenu.onCreateOptionsMenu(this, menu);
         return true;
     }
 
@@ -70,6 +89,14 @@ public class AdminDashboardActivity extends AppCompatActivity {
         } else if (item.getItemId() == R.id.action_switch_company) {
             switchCompany();
             return true;
+        } else if (item.getItemId() == R.id.action_rebuild_summaries) {
+            confirmRebuildSummaries();
+            return true;
+        } else if (item.getItemId() == R.id.action_firestore_usage) {
+            showFirestoreUsage();
+            return true;
+        } else if (AdminDebugMenu.onOptionsItemSelected(this, item)) {
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
@@ -83,6 +110,8 @@ public class AdminDashboardActivity extends AppCompatActivity {
      */
     private void logout() {
         // 1. Sign out from Firebase
+        LocationRegistry.getInstance().stop();
+        SessionStore.getInstance(this).stop();
         mAuth.signOut();
         
         // 2. Configure and sign out from Google to allow picking a different Gmail next time
@@ -104,9 +133,152 @@ public class AdminDashboardActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * Repair tool: recomputes the monthly summary documents of the last
+     * SUMMARY_REBUILD_MONTHS months (current month included) from raw attendance.
+     */
+    private void confirmRebuildSummaries() {
+        new AlertDialog.Builder(this)
+                .setTitle("Rebuild Monthly Summaries")
+                .setMessage("Recompute the summaries of the last " + SUMMARY_REBUILD_MONTHS
+                        + " months from the raw attendance records? This reads every record of those months once.")
+                .setPositiveButton("Rebuild", (dialog, which) -> {
+                    Toast.makeText(this, "Rebuilding summaries...", Toast.LENGTH_SHORT).show();
+                    rebuildSummaries(Calendar.getInstance(), SUMMARY_REBUILD_MONTHS, 0);
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    /**
+     * Rebuilds one month at a time, newest first, so only one month of records is in memory.
+     */
+    private void rebuildSummaries(Calendar month, int monthsLeft, int summariesSoFar) {
+        if (monthsLeft == 0) {
+            Toast.makeText(this, "Rebuilt " + summariesSoFar + " monthly summaries.", Toast.LENGTH_LONG).show();
+            return;
+        }
+
+        MonthlySummaryRepository.getInstance().rebuildMonth(month, new MonthlySummaryRepository.RebuildCallback() {
+            @Override
+            public void onRebuilt(int summaryCount) {
+                Calendar previous = (Calendar) month.clone();
+                previous.add(Calendar.MONTH, -1);
+                rebuildSummaries(previous, monthsLeft - 1, summariesSoFar + summaryCount);
+            }
+
+            @Override
+            public void onError(String errorMsg) {
+                Toast.makeText(AdminDashboardActivity.this, errorMsg, Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    /**
+     * Today's Firestore cost per screen and the most expensive call sites; the CSV covers every stored day.
+     */
+    private void showFirestoreUsage() {
+        FirestoreMeter meter = FirestoreMeter.getInstance();
+        List<FirestoreMeter.Usage> today = meter.getDay(TimeUtils.getCurrentDateId());
+
+        long reads = 0, writes = 0, events = 0, bytes = 0;
+        Map<String, Long> readsByScreen = new LinkedHashMap<>();
+        for (FirestoreMeter.Usage usage : today) {
+            reads += usage.reads;
+            writes += usage.writes;
+            events += usage.listenerEvents;
+            bytes += usage.bytes;
+            Long soFar = readsByScreen.get(usage.screen);
+            readsByScreen.put(usage.screen, (soFar != null ? soFar : 0) + usage.reads);
+        }
+
+        StringBuilder message = new StringBuilder();
+        message.append("Today: ").append(reads).append(" reads, ").append(writes).append(" writes, ")
+                .append(events).append(" listener events, ~").append(bytes / 1024).append(" KB\n\nReads by screen:\n");
+        for (Map.Entry<String, Long> entry : readsByScreen.entrySet()) {
+            message.append("• ").append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+        message.append("\nTop call sites:\n");
+        for (int i = 0; i < Math.min(USAGE_TOP_SITES, today.size()); i++) {
+            FirestoreMeter.Usage usage = today.get(i);
+            message.append("• ").append(usage.site).append(": ").append(usage.reads).append(" R / ")
+                    .append(usage.writes).append(" W\n");
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle("Firestore Usage")
+                .setMessage(message.toString())
+                .setPositiveButton("Export CSV", (dialog, which) -> exportFirestoreUsage())
+                .setNegativeButton("Close", null)
+                .show();
+    }
+
+    private void exportFirestoreUsage() {
+        File dir = new File(getCacheDir(), "reports");
+        if (!dir.exists() && !dir.mkdirs()) {
+            Toast.makeText(this, "Could not create the reports folder.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        File file = new File(dir, "Firestore_Usage_" + TimeUtils.getCurrentDateId() + ".csv");
+        FirestoreMeter.getInstance().exportCsv(file, new FirestoreMeter.ExportCallback() {
+            @Override
+            public void onExported(File exported) {
+                CsvExportHelper.shareCsvFile(AdminDashboardActivity.this, exported);
+            }
+
+            @Override
+            public void onError(String errorMsg) {
+                Toast.makeText(AdminDashboardActivity.this, errorMsg, Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    /**
+     * Offers the companies set up on this device before, plus setting up a new one.
+     * Every company keeps its own signed-in account, so nobody is signed out here.
+     */
     private void switchCompany() {
-        // To switch company, we go back to the Setup screen
-        mAuth.signOut();
+        String currentProjectId = FirebaseManager.getCurrentProjectId();
+        List<EncryptionHelper.KnownTenant> others = new ArrayList<>();
+        for (EncryptionHelper.KnownTenant tenant : EncryptionHelper.getInstance(this).getKnownTenants()) {
+            if (!tenant.projectId.equals(currentProjectId)) others.add(tenant);
+        }
+        if (others.isEmpty()) {
+            openCompanySetup();
+            return;
+        }
+
+        String[] items = new String[others.size() + 1];
+        for (int i = 0; i < others.size(); i++) items[i] = others.get(i).companyName;
+        items[others.size()] = "Set up another company...";
+
+        new AlertDialog.Builder(this)
+                .setTitle("Switch Company")
+                .setItems(items, (dialog, which) -> {
+                    if (which == others.size()) {
+                        openCompanySetup();
+                    } else {
+                        switchToCompany(others.get(which));
+                    }
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void switchToCompany(EncryptionHelper.KnownTenant tenant) {
+        if (!FirebaseManager.switchTo(this, tenant.projectId)) {
+            Toast.makeText(this, "The saved setup of " + tenant.companyName + " is unusable. Please set it up again.",
+                    Toast.LENGTH_LONG).show();
+            return;
+        }
+        // Goes straight on to the dashboard if this company's account is still signed in
+        Intent intent = new Intent(this, LoginActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        startActivity(intent);
+        finish();
+    }
+
+    private void openCompanySetup() {
         // Note: For switching company, we might not clear the role, 
         // just go back to AdminSetupActivity.
         Intent intent = new Intent(this, AdminSetupActivity.class);
@@ -8,6 +8,7 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
+import android.widget.Button;
 import android.widget.EditText;
 import android.widget.LinearLayout;
 import android.widget.Spinner;
@@ -18,15 +19,20 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
+import com.google.android.gms.tasks.Task;
 import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.EventListener;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.firestore.WriteBatch;
+import com.inout.app.data.FirestoreMeter;
+import com.inout.app.data.ListenerHub;
+import com.inout.app.data.LocationRegistry;
 import com.inout.app.databinding.FragmentAdminEmployeesBinding;
 import com.inout.app.models.User;
 import com.inout.app.models.CompanyConfig;
+import com.inout.app.utils.FirebaseManager;
+import com.inout.app.utils.SnapshotListSync;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -43,6 +49,7 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
     private EmployeeListAdapter adapter;
     private List<User> employeeList;
     private List<CompanyConfig> locationList; 
+    private LocationRegistry.OnLocationsChangedListener locationsListener;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -54,7 +61,7 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        db = FirebaseFirestore.getInstance();
+        db = FirebaseManager.firestore();
         employeeList = new ArrayList<>();
         locationList = new ArrayList<>();
         
@@ -71,47 +78,44 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
     }
 
     private void fetchLocations() {
-        db.collection("locations").addSnapshotListener((value, error) -> {
-            if (error != null) return;
-            if (value != null) {
-                locationList.clear();
-                for (DocumentSnapshot doc : value) {
-                    CompanyConfig loc = doc.toObject(CompanyConfig.class);
-                    if (loc != null) {
-                        loc.setId(doc.getId());
-                        locationList.add(loc);
-                    }
-                }
-            }
-        });
+        // Backs the approval spinners only; the shared registry owns the 'locations' listener
+        locationsListener = locations -> {
+            locationList.clear();
+            locationList.addAll(locations);
+        };
+        LocationRegistry.getInstance().addListener(locationsListener);
     }
 
     private void listenForEmployees() {
         binding.progressBar.setVisibility(View.VISIBLE);
-        db.collection("users")
-                .whereEqualTo("role", "employee")
-                .addSnapshotListener(new EventListener<QuerySnapshot>() {
-                    @Override
-                    public void onEvent(@Nullable QuerySnapshot value, @Nullable FirebaseFirestoreException error) {
-                        binding.progressBar.setVisibility(View.GONE);
-                        if (error != null) return;
-
-                        if (value != null) {
-                            employeeList.clear();
-                            for (DocumentSnapshot doc : value) {
-                                User user = doc.toObject(User.class);
-                                if (user != null) {
-                                    user.setUid(doc.getId());
-                                    employeeList.add(user);
-                                }
-                            }
-                            adapter.notifyDataSetChanged();
-                            binding.tvEmptyView.setVisibility(employeeList.isEmpty() ? View.VISIBLE : View.GONE);
-                        }
+
+        // Only added/modified users are decoded and only their rows are rebound
+        SnapshotListSync<User> employeeSync = new SnapshotListSync<>(employeeList,
+                AdminEmployeesFragment::decodeUser, User::getUid).attachAdapter(adapter);
+
+        Query employees = db.collection("users").whereEqualTo("role", "employee");
+        ListenerHub.getInstance().<QuerySnapshot>subscribe(getViewLifecycleOwner(),
+                "AdminEmployeesFragment.listenForEmployees", "users?role=employee",
+                employees::addSnapshotListener,
+                (value, error, reset) -> {
+                    binding.progressBar.setVisibility(View.GONE);
+                    if (error != null) return;
+
+                    if (value != null) {
+                        employeeSync.apply(value, reset);
+                        binding.tvEmptyView.setVisibility(employeeList.isEmpty() ? View.VISIBLE : View.GONE);
                     }
                 });
     }
 
+    @NonNull
+    private static User decodeUser(@NonNull DocumentSnapshot doc) {
+        User user = doc.toObject(User.class);
+        if (user == null) user = new User();
+        user.setUid(doc.getId());
+        return user;
+    }
+
     /**
      * FIXED: Implements the interface method for individual "Approve" button.
      * It ensures a location is assigned even for single approvals.
@@ -156,16 +160,28 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
         spinner.setSelection(currentSelection);
         layout.addView(spinner);
 
+        // Employees who rotate between sites may also punch at further offices
+        final List<String> extraIds = new ArrayList<>();
+        if (user.getAllowedLocationIds() != null) extraIds.addAll(user.getAllowedLocationIds());
+        final Button btnExtra = new Button(requireContext());
+        btnExtra.setText(allowedLocationsLabel(extraIds));
+        btnExtra.setOnClickListener(v -> showAllowedLocationsPicker(extraIds,
+                () -> btnExtra.setText(allowedLocationsLabel(extraIds))));
+        layout.addView(btnExtra);
+
         builder.setView(layout);
         builder.setPositiveButton("Approve", (dialog, which) -> {
             String empId = inputId.getText().toString().trim();
             int selectedIndex = spinner.getSelectedItemPosition();
             if (!empId.isEmpty() && selectedIndex >= 0) {
                 String locId = locationList.get(selectedIndex).getId();
-                db.collection("users").document(user.getUid())
+                extraIds.remove(locId); // The assigned office is always allowed
+                Task<Void> approve = db.collection("users").document(user.getUid())
                         .update("approved", true, 
                                 "employeeId", empId, 
-                                "assignedLocationId", locId)
+                                "assignedLocationId", locId,
+                                "allowedLocationIds", extraIds);
+                FirestoreMeter.getInstance().write("AdminEmployeesFragment.onApproveClicked", 1, approve)
                         .addOnSuccessListener(aVoid -> Toast.makeText(getContext(), "Approved and Assigned!", Toast.LENGTH_SHORT).show());
             } else {
                 Toast.makeText(getContext(), "ID and Location required!", Toast.LENGTH_SHORT).show();
@@ -175,6 +191,39 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
         builder.show();
     }
 
+    /**
+     * Multi-choice list of all offices; selected holds the chosen IDs and is updated on OK.
+     */
+    private void showAllowedLocationsPicker(List<String> selected, Runnable onChanged) {
+        String[] names = new String[locationList.size()];
+        boolean[] checked = new boolean[locationList.size()];
+        for (int i = 0; i < locationList.size(); i++) {
+            names[i] = locationList.get(i).getName();
+            checked[i] = selected.contains(locationList.get(i).getId());
+        }
+
+        new AlertDialog.Builder(requireContext())
+                .setTitle("Also allowed at")
+                .setMultiChoiceItems(names, checked, (dialog, which, isChecked) -> checked[which] = isChecked)
+                .setPositiveButton("OK", (dialog, which) -> {
+                    selected.clear();
+                    for (int i = 0; i < checked.length; i++) {
+                        if (checked[i]) selected.add(locationList.get(i).getId());
+                    }
+                    onChanged.run();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private String allowedLocationsLabel(List<String> ids) {
+        int known = 0;
+        for (CompanyConfig location : locationList) {
+            if (ids.contains(location.getId())) known++;
+        }
+        return known == 0 ? "Other offices: none" : "Other offices: " + known;
+    }
+
     /**
      * FIXED: Implements the interface method for individual delete action.
      */
@@ -184,7 +233,8 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
                 .setTitle("Remove Employee")
                 .setMessage("Delete " + user.getName() + "? This cannot be undone.")
                 .setPositiveButton("Delete", (dialog, which) -> {
-                    db.collection("users").document(user.getUid()).delete()
+                    FirestoreMeter.getInstance().write("AdminEmployeesFragment.onDeleteClicked", 1,
+                                    db.collection("users").document(user.getUid()).delete())
                             .addOnSuccessListener(aVoid -> Toast.makeText(getContext(), "Employee removed.", Toast.LENGTH_SHORT).show());
                 }).setNegativeButton("Cancel", null).show();
     }
@@ -224,7 +274,8 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
         for (User user : selectedUsers) {
             batch.delete(db.collection("users").document(user.getUid()));
         }
-        batch.commit().addOnSuccessListener(aVoid -> {
+        FirestoreMeter.getInstance().write("AdminEmployeesFragment.performBulkDelete", selectedUsers.size(),
+                batch.commit()).addOnSuccessListener(aVoid -> {
             Toast.makeText(getContext(), "Selected employees removed.", Toast.LENGTH_SHORT).show();
             adapter.clearSelection();
         });
@@ -272,7 +323,8 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
                     "approved", true);
         }
         
-        batch.commit().addOnSuccessListener(aVoid -> {
+        FirestoreMeter.getInstance().write("AdminEmployeesFragment.performBulkAssignment", selectedUsers.size(),
+                batch.commit()).addOnSuccessListener(aVoid -> {
             Toast.makeText(getContext(), "Location assigned to selection.", Toast.LENGTH_SHORT).show();
             adapter.clearSelection();
         }).addOnFailureListener(e -> {
@@ -283,6 +335,7 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        LocationRegistry.getInstance().removeListener(locationsListener);
         binding = null;
     }
 }
\ No newline at end of file
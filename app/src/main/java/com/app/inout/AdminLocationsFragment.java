@@ -17,15 +17,16 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.EventListener;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.FirebaseFirestoreException;
-import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.GeoPoint;
 import com.google.firebase.firestore.WriteBatch;
+import com.inout.app.data.FirestoreMeter;
+import com.inout.app.data.LocationRegistry;
 import com.inout.app.databinding.FragmentAdminLocationsBinding;
 import com.inout.app.models.CompanyConfig;
+import com.inout.app.utils.FirebaseManager;
 import com.inout.app.utils.LocationHelper;
+import com.inout.app.utils.SnapshotListSync;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -45,10 +46,14 @@ public class AdminLocationsFragment extends Fragment implements LocationAdapter.
     
     private LocationAdapter adapter;
     private List<CompanyConfig> savedLocations;
+    private LocationRegistry.OnLocationsChangedListener locationsListener;
     
     private double capturedLat = 0;
     private double capturedLng = 0;
 
+    // Corners captured by walking the site; 3 or more make a polygon boundary instead of the circle
+    private final List<GeoPoint> capturedCorners = new ArrayList<>();
+
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         binding = FragmentAdminLocationsBinding.inflate(inflater, container, false);
@@ -59,7 +64,7 @@ public class AdminLocationsFragment extends Fragment implements LocationAdapter.
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        db = FirebaseFirestore.getInstance();
+        db = FirebaseManager.firestore();
         locationHelper = new LocationHelper(requireContext());
         savedLocations = new ArrayList<>();
 
@@ -88,6 +93,15 @@ public class AdminLocationsFragment extends Fragment implements LocationAdapter.
         // Capture current GPS logic
         binding.btnCaptureGps.setOnClickListener(v -> captureCurrentLocation());
 
+        // Boundary logic: one fix per corner, in walking order; long press starts over
+        binding.btnAddCorner.setOnClickListener(v -> captureCorner());
+        binding.btnAddCorner.setOnLongClickListener(v -> {
+            capturedCorners.clear();
+            showCorners();
+            Toast.makeText(getContext(), "Boundary cleared", Toast.LENGTH_SHORT).show();
+            return true;
+        });
+
         // Save logic
         binding.btnSaveLocation.setOnClickListener(v -> saveLocationToFirestore());
     }
@@ -148,22 +162,70 @@ public class AdminLocationsFragment extends Fragment implements LocationAdapter.
         });
     }
 
+    private void captureCorner() {
+        binding.progressBar.setVisibility(View.VISIBLE);
+        binding.btnAddCorner.setEnabled(false);
+
+        locationHelper.getCurrentLocation(new LocationHelper.LocationResultCallback() {
+            @Override
+            public void onLocationResult(Location location) {
+                if (binding == null) return;
+                binding.progressBar.setVisibility(View.GONE);
+                binding.btnAddCorner.setEnabled(true);
+
+                if (location != null) {
+                    capturedCorners.add(new GeoPoint(location.getLatitude(), location.getLongitude()));
+                    showCorners();
+                }
+            }
+
+            @Override
+            public void onError(String errorMsg) {
+                if (binding == null) return;
+                binding.progressBar.setVisibility(View.GONE);
+                binding.btnAddCorner.setEnabled(true);
+                Toast.makeText(getContext(), "GPS Error: " + errorMsg, Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    private void showCorners() {
+        if (capturedCorners.isEmpty()) {
+            binding.tvCapturedCoords.setVisibility(View.GONE);
+            return;
+        }
+        GeoPoint last = capturedCorners.get(capturedCorners.size() - 1);
+        int count = capturedCorners.size();
+        binding.tvCapturedCoords.setText(String.format(Locale.US, "Boundary: %d %s%s\nLast: %.6f | %.6f",
+                count, count == 1 ? "corner" : "corners", count < 3 ? " (3 or more needed)" : "",
+                last.getLatitude(), last.getLongitude()));
+        binding.tvCapturedCoords.setVisibility(View.VISIBLE);
+    }
+
     private void saveLocationToFirestore() {
         String locName = binding.etLocationName.getText().toString().trim();
         if (TextUtils.isEmpty(locName)) {
             binding.etLocationName.setError("Location Name required");
             return;
         }
-        if (capturedLat == 0 || capturedLng == 0) {
+        CompanyConfig config;
+        if (!capturedCorners.isEmpty()) {
+            if (capturedCorners.size() < 3) {
+                Toast.makeText(getContext(), "A boundary needs at least 3 corners", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            config = boundaryConfig(locName, capturedCorners);
+        } else if (capturedLat == 0 || capturedLng == 0) {
             Toast.makeText(getContext(), "Capture coordinates first", Toast.LENGTH_SHORT).show();
             return;
+        } else {
+            config = new CompanyConfig(locName, capturedLat, capturedLng);
         }
 
         binding.progressBar.setVisibility(View.VISIBLE);
-        CompanyConfig config = new CompanyConfig(locName, capturedLat, capturedLng);
 
-        db.collection("locations")
-                .add(config)
+        FirestoreMeter.getInstance().write("AdminLocationsFragment.saveLocationToFirestore", 1,
+                        db.collection("locations").add(config))
                 .addOnSuccessListener(doc -> {
                     binding.progressBar.setVisibility(View.GONE);
                     Toast.makeText(getContext(), "Location Saved", Toast.LENGTH_SHORT).show();
@@ -171,30 +233,46 @@ public class AdminLocationsFragment extends Fragment implements LocationAdapter.
                 });
     }
 
+    /**
+     * The centre and radius of a polygon office are the mean of its corners and the circle through
+     * the farthest one: they serve distance messages and app versions that only know circles.
+     */
+    private static CompanyConfig boundaryConfig(String name, List<GeoPoint> corners) {
+        double lat = 0, lng = 0;
+        for (GeoPoint corner : corners) {
+            lat += corner.getLatitude();
+            lng += corner.getLongitude();
+        }
+        lat /= corners.size();
+        lng /= corners.size();
+
+        float radius = 0;
+        for (GeoPoint corner : corners) {
+            radius = Math.max(radius, LocationHelper.calculateDistance(lat, lng, corner.getLatitude(), corner.getLongitude()));
+        }
+
+        CompanyConfig config = new CompanyConfig(name, lat, lng);
+        config.setRadius(Math.max(config.getRadius(), radius));
+        config.setBoundary(new ArrayList<>(corners));
+        return config;
+    }
+
     private void clearInputs() {
         binding.etLocationName.setText("");
         binding.etSearchAddress.setText("");
         binding.tvCapturedCoords.setText("");
         binding.tvCapturedCoords.setVisibility(View.GONE);
         capturedLat = 0; capturedLng = 0;
+        capturedCorners.clear();
     }
 
     private void listenForLocations() {
-        db.collection("locations")
-                .addSnapshotListener((value, error) -> {
-                    if (error != null) return;
-                    if (value != null) {
-                        savedLocations.clear();
-                        for (DocumentSnapshot doc : value) {
-                            CompanyConfig config = doc.toObject(CompanyConfig.class);
-                            if (config != null) {
-                                config.setId(doc.getId());
-                                savedLocations.add(config);
-                            }
-                        }
-                        adapter.notifyDataSetChanged();
-                    }
-                });
+        // The registry reuses instances for unchanged offices, so only edited rows are rebound
+        SnapshotListSync<CompanyConfig> locationSync = new SnapshotListSync<>(savedLocations,
+                CompanyConfig::getId).attachAdapter(adapter);
+
+        locationsListener = locationSync::replaceAll;
+        LocationRegistry.getInstance().addListener(locationsListener);
     }
 
     /**
@@ -220,7 +298,8 @@ public class AdminLocationsFragment extends Fragment implements LocationAdapter.
             batch.delete(db.collection("locations").document(loc.getId()));
         }
 
-        batch.commit().addOnSuccessListener(aVoid -> {
+        FirestoreMeter.getInstance().write("AdminLocationsFragment.performBulkDelete", selections.size(),
+                batch.commit()).addOnSuccessListener(aVoid -> {
             binding.progressBar.setVisibility(View.GONE);
             Toast.makeText(getContext(), "Locations deleted successfully.", Toast.LENGTH_SHORT).show();
             adapter.clearSelection();
@@ -233,6 +312,7 @@ public class AdminLocationsFragment extends Fragment implements LocationAdapter.
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        LocationRegistry.getInstance().removeListener(locationsListener);
         binding = null;
     }
 }
\ No newline at end of file
@@ -1,7 +1,6 @@
 package com.inout.app;
 
 import android.content.Intent;
-import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Bundle;
 import android.util.Log;
@@ -15,21 +14,12 @@ import androidx.annotation.Nullable;
 import androidx.core.content.FileProvider;
 import androidx.fragment.app.Fragment;
 
-import com.google.zxing.BarcodeFormat;
-import com.google.zxing.MultiFormatWriter;
-import com.google.zxing.WriterException;
-import com.google.zxing.common.BitMatrix;
-import com.journeyapps.barcodescanner.BarcodeEncoder;
-
 import com.inout.app.databinding.FragmentAdminQrBinding;
 import com.inout.app.utils.EncryptionHelper;
-
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.inout.app.utils.QrImageCache;
+import com.inout.app.utils.TenantConfig;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
 
 /**
  * Fragment responsible for generating and sharing the Company QR Code.
@@ -38,7 +28,7 @@ public class AdminQrFragment extends Fragment {
 
     private static final String TAG = "AdminQrFragment";
     private FragmentAdminQrBinding binding;
-    private Bitmap generatedQrBitmap; 
+    private QrImageCache.Entry generatedQr;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -54,96 +44,106 @@ public class AdminQrFragment extends Fragment {
 
         // FIXED: Using CamelCase 'btnShareQr' generated from XML ID 'btn_share_qr'
         binding.btnShareQr.setOnClickListener(v -> {
-            if (generatedQrBitmap != null) {
+            if (generatedQr != null) {
                 shareQrImage();
             } else {
                 Toast.makeText(getContext(), "Generate a QR code first", Toast.LENGTH_SHORT).show();
             }
         });
+
+        restoreCachedQr();
     }
 
     private void generateCompanyQr() {
-        EncryptionHelper encryptionHelper = EncryptionHelper.getInstance(requireContext());
+        TenantConfig config = EncryptionHelper.getInstance(requireContext()).getTenantConfig();
 
-        String configJson = encryptionHelper.getFirebaseConfig();
-        String companyName = encryptionHelper.getCompanyName();
-        String projectId = encryptionHelper.getProjectId();
-
-        if (configJson == null || projectId == null) {
+        if (config == null) {
             Toast.makeText(getContext(), "Error: Config not found. Please re-setup.", Toast.LENGTH_LONG).show();
             return;
         }
 
-        try {
-            JSONObject payload = new JSONObject();
-            payload.put("firebaseConfig", configJson);
-            payload.put("companyName", companyName);
-            payload.put("projectId", projectId);
-            payload.put("timestamp", System.currentTimeMillis());
+        // Encrypting and encoding run in the background; an unchanged config reuses the cached code
+        binding.btnGenerateQr.setEnabled(false);
+        QrImageCache.getInstance(requireContext()).get(requireContext(), config, new QrImageCache.Callback() {
+            @Override
+            public void onReady(@NonNull QrImageCache.Entry entry) {
+                if (binding == null) return;
+                binding.btnGenerateQr.setEnabled(true);
+                showQr(entry, config.companyName);
+                Toast.makeText(getContext(), "QR Generated Successfully", Toast.LENGTH_SHORT).show();
+            }
 
-            String encryptedPayload = encryptionHelper.encryptQrPayload(payload.toString());
+            @Override
+            public void onError(@NonNull Exception e) {
+                Log.e(TAG, "QR Generation failed", e);
+                if (binding == null) return;
+                binding.btnGenerateQr.setEnabled(true);
+                Toast.makeText(getContext(), "Failed to generate QR", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
 
-            if (encryptedPayload != null) {
-                generatedQrBitmap = encodeAsBitmap(encryptedPayload);
+    /**
+     * Shows the code rendered earlier for the current company, if any, without encoding a new one.
+     */
+    private void restoreCachedQr() {
+        TenantConfig config = EncryptionHelper.getInstance(requireContext()).getTenantConfig();
+        if (config == null) return;
+
+        QrImageCache.getInstance(requireContext()).peek(requireContext(), config, new QrImageCache.Callback() {
+            @Override
+            public void onReady(@NonNull QrImageCache.Entry entry) {
+                if (binding != null) showQr(entry, config.companyName);
+            }
 
-                if (generatedQrBitmap != null) {
-                    binding.ivQrCode.setImageBitmap(generatedQrBitmap);
-                    binding.ivQrCode.setVisibility(View.VISIBLE);
-                    binding.tvPlaceholder.setVisibility(View.GONE);
+            @Override
+            public void onError(@NonNull Exception e) {
+                Log.w(TAG, "Cached QR unavailable", e);
+            }
+        });
+    }
 
-                    // FIXED: Using CamelCase 'btnShareQr'
-                    binding.btnShareQr.setVisibility(View.VISIBLE); 
+    private void showQr(QrImageCache.Entry entry, String companyName) {
+        generatedQr = entry;
+        binding.ivQrCode.setImageBitmap(entry.bitmap);
+        binding.ivQrCode.setVisibility(View.VISIBLE);
+        binding.tvPlaceholder.setVisibility(View.GONE);
 
-                    binding.tvInstruction.setText("Company: " + companyName);
-                    Toast.makeText(getContext(), "QR Generated Successfully", Toast.LENGTH_SHORT).show();
-                }
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "QR Generation failed", e);
-            Toast.makeText(getContext(), "Failed to generate QR", Toast.LENGTH_SHORT).show();
-        }
+        // FIXED: Using CamelCase 'btnShareQr'
+        binding.btnShareQr.setVisibility(View.VISIBLE);
+
+        binding.tvInstruction.setText("Company: " + companyName);
     }
 
     private void shareQrImage() {
-        try {
-            // 1. Create a temporary file in the app's cache
-            File cachePath = new File(requireContext().getCacheDir(), "images");
-            cachePath.mkdirs(); 
-            File newFile = new File(cachePath, "company_qr.png");
-            FileOutputStream stream = new FileOutputStream(newFile);
-
-            // 2. Write the bitmap to the file
-            generatedQrBitmap.compress(Bitmap.CompressFormat.PNG, 100, stream);
-            stream.close();
-
-            // 3. Get URI using the authority defined in AndroidManifest.xml
-            Uri contentUri = FileProvider.getUriForFile(requireContext(), "com.inout.app.fileprovider", newFile);
-
-            if (contentUri != null) {
-                // 4. Launch the Android Share Sheet
+        // The PNG is written (once per code) on the cache's executor, not here
+        String companyName = EncryptionHelper.getInstance(requireContext()).getCompanyName();
+        QrImageCache.getInstance(requireContext()).exportPng(generatedQr, new QrImageCache.ShareCallback() {
+            @Override
+            public void onExported(@NonNull File png) {
+                if (!isAdded()) return;
+
+                // Get URI using the authority defined in AndroidManifest.xml
+                Uri contentUri = FileProvider.getUriForFile(requireContext(), "com.inout.app.fileprovider", png);
+
+                // Launch the Android Share Sheet
                 Intent shareIntent = new Intent();
                 shareIntent.setAction(Intent.ACTION_SEND);
-                shareIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION); 
+                shareIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
                 shareIntent.setDataAndType(contentUri, requireContext().getContentResolver().getType(contentUri));
                 shareIntent.putExtra(Intent.EXTRA_STREAM, contentUri);
                 shareIntent.putExtra(Intent.EXTRA_SUBJECT, "Company Registration QR");
-                shareIntent.putExtra(Intent.EXTRA_TEXT, "Scan this QR code to join " + 
-                        EncryptionHelper.getInstance(getContext()).getCompanyName());
+                shareIntent.putExtra(Intent.EXTRA_TEXT, "Scan this QR code to join " + companyName);
 
                 startActivity(Intent.createChooser(shareIntent, "Share QR via:"));
             }
-        } catch (IOException e) {
-            Log.e(TAG, "Sharing failed", e);
-            Toast.makeText(getContext(), "Could not share image", Toast.LENGTH_SHORT).show();
-        }
-    }
 
-    private Bitmap encodeAsBitmap(String content) throws WriterException {
-        MultiFormatWriter multiFormatWriter = new MultiFormatWriter();
-        // QR Code Size 512x512
-        BitMatrix bitMatrix = multiFormatWriter.encode(content, BarcodeFormat.QR_CODE, 512, 512);
-        BarcodeEncoder barcodeEncoder = new BarcodeEncoder();
-        return barcodeEncoder.createBitmap(bitMatrix);
+            @Override
+            public void onError(@NonNull Exception e) {
+                Log.e(TAG, "Sharing failed", e);
+                if (isAdded()) Toast.makeText(getContext(), "Could not share image", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     @Override
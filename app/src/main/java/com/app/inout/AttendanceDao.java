@@ -0,0 +1,56 @@
+package com.inout.app.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.util.List;
+
+/**
+ * Disk access for the local attendance cache.
+ * All methods block and must be called off the main thread
+ * (AttendanceRepository's disk executor, or an export's worker thread).
+ */
+@Dao
+public abstract class AttendanceDao {
+
+    @Query("SELECT * FROM attendance WHERE recordId = :recordId LIMIT 1")
+    public abstract AttendanceEntity getById(String recordId);
+
+    @Query("SELECT * FROM attendance WHERE employeeId = :employeeId AND timestamp < :beforeTimestamp"
+            + " ORDER BY timestamp DESC LIMIT :pageSize")
+    public abstract List<AttendanceEntity> getForEmployeePage(String employeeId, long beforeTimestamp, int pageSize);
+
+    @Query("SELECT * FROM attendance WHERE employeeId = :employeeId"
+            + " AND timestamp >= :startMillis AND timestamp < :endMillis ORDER BY timestamp DESC")
+    public abstract List<AttendanceEntity> getForEmployeeInRange(String employeeId, long startMillis, long endMillis);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void upsert(AttendanceEntity entity);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void upsertAll(List<AttendanceEntity> entities);
+
+    @Query("DELETE FROM attendance WHERE recordId = :recordId")
+    public abstract void delete(String recordId);
+
+    @Query("DELETE FROM attendance")
+    public abstract void deleteAll();
+
+    @Query("DELETE FROM attendance WHERE employeeId = :employeeId"
+            + " AND timestamp >= :startMillis AND timestamp < :endMillis")
+    public abstract void deleteForEmployeeInRange(String employeeId, long startMillis, long endMillis);
+
+    /**
+     * Replaces what is cached for an employee inside [startMillis, endMillis) with an
+     * authoritative server result, so documents deleted on the server also disappear locally.
+     */
+    @Transaction
+    public void replaceForEmployeeInRange(String employeeId, long startMillis, long endMillis,
+                                          List<AttendanceEntity> entities) {
+        deleteForEmployeeInRange(employeeId, startMillis, endMillis);
+        upsertAll(entities);
+    }
+}
@@ -0,0 +1,101 @@
+package com.inout.app.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import com.inout.app.models.AttendanceRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Room row mirroring one document of the 'attendance' collection.
+ * Kept separate from the Firestore model so that AttendanceRecord stays a plain POJO.
+ */
+@Entity(tableName = "attendance",
+        indices = {@Index({"employeeId", "timestamp"}), @Index("date")})
+public class AttendanceEntity {
+
+    @PrimaryKey
+    @NonNull
+    public String recordId = "";
+
+    public String employeeId;
+    public String employeeName;
+    public String date;             // YYYY-MM-DD
+
+    public String checkInTime;
+    public double checkInLat;
+    public double checkInLng;
+
+    public String checkOutTime;
+    public double checkOutLat;
+    public double checkOutLng;
+
+    public String totalHours;
+    public String locationName;
+    public float distanceMeters;
+
+    public List<String> movementLog;
+    public String lastVerifiedLocationId;
+
+    public boolean fingerprintVerified;
+    public boolean gpsVerified;
+
+    public long timestamp;
+
+    public long lastPunchAt;
+    public int punchCount;
+
+    public static AttendanceEntity fromRecord(@NonNull String recordId, AttendanceRecord record) {
+        AttendanceEntity entity = new AttendanceEntity();
+        entity.recordId = recordId;
+        entity.employeeId = record.getEmployeeId();
+        entity.employeeName = record.getEmployeeName();
+        entity.date = record.getDate();
+        entity.checkInTime = record.getCheckInTime();
+        entity.checkInLat = record.getCheckInLat();
+        entity.checkInLng = record.getCheckInLng();
+        entity.checkOutTime = record.getCheckOutTime();
+        entity.checkOutLat = record.getCheckOutLat();
+        entity.checkOutLng = record.getCheckOutLng();
+        entity.totalHours = record.getTotalHours();
+        entity.locationName = record.getLocationName();
+        entity.distanceMeters = record.getDistanceMeters();
+        entity.movementLog = record.getMovementLog();
+        entity.lastVerifiedLocationId = record.getLastVerifiedLocationId();
+        entity.fingerprintVerified = record.isFingerprintVerified();
+        entity.gpsVerified = record.isGpsVerified();
+        entity.timestamp = record.getTimestamp();
+        entity.lastPunchAt = record.getLastPunchAt();
+        entity.punchCount = record.getPunchCount();
+        return entity;
+    }
+
+    public AttendanceRecord toRecord() {
+        AttendanceRecord record = new AttendanceRecord();
+        record.setRecordId(recordId);
+        record.setEmployeeId(employeeId);
+        record.setEmployeeName(employeeName);
+        record.setDate(date);
+        record.setCheckInTime(checkInTime);
+        record.setCheckInLat(checkInLat);
+        record.setCheckInLng(checkInLng);
+        record.setCheckOutTime(checkOutTime);
+        record.setCheckOutLat(checkOutLat);
+        record.setCheckOutLng(checkOutLng);
+        record.setTotalHours(totalHours);
+        record.setLocationName(locationName);
+        record.setDistanceMeters(distanceMeters);
+        record.setMovementLog(movementLog != null ? movementLog : new ArrayList<>());
+        record.setLastVerifiedLocationId(lastVerifiedLocationId);
+        record.setFingerprintVerified(fingerprintVerified);
+        record.setGpsVerified(gpsVerified);
+        record.setTimestamp(timestamp);
+        record.setLastPunchAt(lastPunchAt);
+        record.setPunchCount(punchCount);
+        return record;
+    }
+}
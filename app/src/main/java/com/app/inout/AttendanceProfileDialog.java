@@ -17,15 +17,17 @@ import androidx.fragment.app.DialogFragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.bumptech.glide.Glide;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
 import com.inout.app.adapters.AttendanceAdapter;
+import com.inout.app.data.AttendanceRepository;
+import com.inout.app.data.MonthlySummaryRepository;
 import com.inout.app.databinding.DialogAttendanceProfileBinding;
 import com.inout.app.models.AttendanceRecord;
+import com.inout.app.models.MonthlySummary;
 import com.inout.app.models.User;
 import com.inout.app.utils.EncryptionHelper;
+import com.inout.app.utils.TimeUtils;
 
+import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -43,10 +45,12 @@ public class AttendanceProfileDialog extends DialogFragment {
     private static final String TAG = "AttendanceDialog";
     private DialogAttendanceProfileBinding binding;
     private User employee;
-    private FirebaseFirestore db;
     private AttendanceAdapter adapter;
     private List<AttendanceRecord> fullMonthList;
 
+    // Month currently shown in the table (any day inside that month)
+    private Calendar displayedMonth;
+
     public static AttendanceProfileDialog newInstance(User user) {
         AttendanceProfileDialog frag = new AttendanceProfileDialog();
         frag.employee = user;
@@ -75,25 +79,45 @@ public class AttendanceProfileDialog extends DialogFragment {
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
-        db = FirebaseFirestore.getInstance();
         fullMonthList = new ArrayList<>();
+        displayedMonth = TimeUtils.getMonthStart(Calendar.getInstance());
 
         setupHeader();
         setupTable();
         loadAttendanceData();
 
         binding.btnClose.setOnClickListener(v -> dismiss());
+        binding.btnPrevMonth.setOnClickListener(v -> shiftMonth(-1));
+        binding.btnNextMonth.setOnClickListener(v -> shiftMonth(1));
 
-        // FIXED: Connected Export button to the CsvExportHelper logic
-        binding.btnExportCsv.setOnClickListener(v -> {
-            if (fullMonthList != null && !fullMonthList.isEmpty()) {
-                String fileName = employee.getName().replace(" ", "_") + "_" + 
-                                 new SimpleDateFormat("MMM_yyyy", Locale.US).format(Calendar.getInstance().getTime());
-                CsvExportHelper.exportAttendanceToCsv(requireContext(), fullMonthList, fileName);
-            } else {
-                Toast.makeText(getContext(), "No data available to export.", Toast.LENGTH_SHORT).show();
-            }
-        });
+        // Exports run as durable background jobs; the dialog can be closed while they finish
+        binding.btnExportCsv.setOnClickListener(v -> CsvExportHelper.chooseMonthRange(requireContext(), displayedMonth,
+                (firstMonth, monthCount) -> {
+                    String jobName = ExportWorker.enqueueEmployeeExport(requireActivity(),
+                            employee.getEmployeeId(), employee.getName(), firstMonth, monthCount);
+                    binding.btnExportCsv.setEnabled(false);
+                    Toast.makeText(getContext(), "Export started. You can close this window.", Toast.LENGTH_SHORT).show();
+
+                    ExportWorker.observe(getViewLifecycleOwner(), requireContext(), jobName, new ExportWorker.JobListener() {
+                        @Override
+                        public void onProgress(String message) {
+                        }
+
+                        @Override
+                        public void onComplete(File file) {
+                            if (binding == null) return;
+                            binding.btnExportCsv.setEnabled(true);
+                            CsvExportHelper.shareCsvFile(requireContext(), file);
+                        }
+
+                        @Override
+                        public void onError(String errorMsg) {
+                            if (binding == null) return;
+                            binding.btnExportCsv.setEnabled(true);
+                            Toast.makeText(getContext(), errorMsg, Toast.LENGTH_SHORT).show();
+                        }
+                    });
+                }));
     }
 
     private void setupHeader() {
@@ -101,10 +125,7 @@ public class AttendanceProfileDialog extends DialogFragment {
         binding.tvHeaderId.setText("ID: " + employee.getEmployeeId());
         binding.tvHeaderPhone.setText("Phone: " + employee.getPhone());
         binding.tvHeaderCompany.setText(EncryptionHelper.getInstance(getContext()).getCompanyName());
-
-        Calendar cal = Calendar.getInstance();
-        String currentMonthYear = new SimpleDateFormat("MMMM yyyy", Locale.US).format(cal.getTime());
-        binding.tvHeaderMonth.setText(currentMonthYear);
+        updateMonthHeader();
 
         if (employee.getPhotoUrl() != null && !employee.getPhotoUrl().isEmpty()) {
             Glide.with(this)
@@ -115,6 +136,24 @@ public class AttendanceProfileDialog extends DialogFragment {
         }
     }
 
+    private void updateMonthHeader() {
+        binding.tvHeaderMonth.setText(new SimpleDateFormat("MMMM yyyy", Locale.US).format(displayedMonth.getTime()));
+
+        // No navigation into the future: there is nothing to show there yet
+        boolean isCurrentMonth = TimeUtils.getMonthId(displayedMonth).equals(TimeUtils.getMonthId(Calendar.getInstance()));
+        binding.btnNextMonth.setEnabled(!isCurrentMonth);
+        binding.btnNextMonth.setAlpha(isCurrentMonth ? 0.3f : 1.0f);
+    }
+
+    /**
+     * Moves the table one month back (-1) or forward (+1).
+     */
+    private void shiftMonth(int delta) {
+        displayedMonth.add(Calendar.MONTH, delta);
+        updateMonthHeader();
+        loadAttendanceData();
+    }
+
     private void setupTable() {
         binding.rvAttendanceTable.setLayoutManager(new LinearLayoutManager(getContext()));
         adapter = new AttendanceAdapter(fullMonthList);
@@ -124,33 +163,76 @@ public class AttendanceProfileDialog extends DialogFragment {
     private void loadAttendanceData() {
         binding.progressBar.setVisibility(View.VISIBLE);
 
-        // FIXED: Changed Direction to DESCENDING to match the required Firestore Index
-        db.collection("attendance")
-                .whereEqualTo("employeeId", employee.getEmployeeId())
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    Map<String, AttendanceRecord> existingLogs = new HashMap<>();
-                    for (DocumentSnapshot doc : queryDocumentSnapshots) {
-                        AttendanceRecord record = doc.toObject(AttendanceRecord.class);
-                        if (record != null) {
+        // One read of the month's summary document; raw records are only the fallback
+        final String requestedMonth = TimeUtils.getMonthId(displayedMonth);
+        final Calendar month = (Calendar) displayedMonth.clone();
+        MonthlySummaryRepository summaries = MonthlySummaryRepository.getInstance();
+
+        summaries.fetchSummary(employee.getEmployeeId(), month,
+                new MonthlySummaryRepository.SummaryCallback() {
+                    @Override
+                    public void onSummaryLoaded(@Nullable MonthlySummary summary, boolean fromCache) {
+                        // Ignore late answers for a month the admin has already navigated away from
+                        if (binding == null || !requestedMonth.equals(TimeUtils.getMonthId(displayedMonth))) return;
+                        if (summary != null && summary.isComplete()) {
+                            generateFullMonthReport(summary.toRecordsByDate());
+                        } else {
+                            loadRawRecords(requestedMonth, month);
+                        }
+                    }
+
+                    @Override
+                    public void onError(String errorMsg) {
+                        if (binding == null || !requestedMonth.equals(TimeUtils.getMonthId(displayedMonth))) return;
+                        loadRawRecords(requestedMonth, month);
+                    }
+                });
+
+        // Warm the neighbouring months so back/forward navigation is instant
+        Calendar previous = (Calendar) month.clone();
+        previous.add(Calendar.MONTH, -1);
+        summaries.prefetchSummary(employee.getEmployeeId(), previous);
+
+        Calendar next = (Calendar) month.clone();
+        next.add(Calendar.MONTH, 1);
+        summaries.prefetchSummary(employee.getEmployeeId(), next);
+    }
+
+    /**
+     * Months recorded before summaries existed, or whose summary was started by a punch and
+     * misses earlier days: rebuild the table from the raw documents (timestamp-bounded, cached
+     * copy first) and store the complete summary for the next visit.
+     */
+    private void loadRawRecords(String requestedMonth, Calendar month) {
+        AttendanceRepository.getInstance(requireContext()).fetchMonthRecords(employee.getEmployeeId(), month,
+                new AttendanceRepository.RecordsCallback() {
+                    @Override
+                    public void onRecordsLoaded(List<AttendanceRecord> records, boolean fromCache) {
+                        if (!fromCache && !records.isEmpty()) {
+                            MonthlySummaryRepository.getInstance().saveFromRecords(employee.getEmployeeId(), month, records);
+                        }
+
+                        if (binding == null || !requestedMonth.equals(TimeUtils.getMonthId(displayedMonth))) return;
+                        Map<String, AttendanceRecord> existingLogs = new HashMap<>();
+                        for (AttendanceRecord record : records) {
                             existingLogs.put(record.getDate(), record);
                         }
+                        generateFullMonthReport(existingLogs);
+                    }
+
+                    @Override
+                    public void onError(String errorMsg) {
+                        if (binding == null) return;
+                        binding.progressBar.setVisibility(View.GONE);
+                        Log.e(TAG, "Data fetch failed: " + errorMsg);
+                        Toast.makeText(getContext(), errorMsg, Toast.LENGTH_SHORT).show();
                     }
-                    generateFullMonthReport(existingLogs);
-                })
-                .addOnFailureListener(e -> {
-                    binding.progressBar.setVisibility(View.GONE);
-                    Log.e(TAG, "Data fetch failed", e);
-                    // This error is now handled by matching the Index direction
-                    Toast.makeText(getContext(), "Error loading month records", Toast.LENGTH_SHORT).show();
                 });
     }
 
     private void generateFullMonthReport(Map<String, AttendanceRecord> logs) {
         fullMonthList.clear();
-        Calendar cal = Calendar.getInstance();
-        cal.set(Calendar.DAY_OF_MONTH, 1);
+        Calendar cal = TimeUtils.getMonthStart(displayedMonth);
         int maxDay = cal.getActualMaximum(Calendar.DAY_OF_MONTH);
 
         SimpleDateFormat dateIdFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
@@ -39,6 +39,10 @@ public class AttendanceRecord {
     
     private long timestamp; 
 
+    // Event sourcing: the record is materialized from attendance/{recordId}/punches (see PunchLog)
+    private long lastPunchAt;       // Timestamp of the newest punch folded into this record (0 = legacy record)
+    private int punchCount;         // Number of punches folded into this record
+
     /**
      * Default constructor required for Firestore.
      */
@@ -158,4 +162,10 @@ public class AttendanceRecord {
 
     public long getTimestamp() { return timestamp; }
     public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
-}
\ No newline at end of file
+
+    public long getLastPunchAt() { return lastPunchAt; }
+    public void setLastPunchAt(long lastPunchAt) { this.lastPunchAt = lastPunchAt; }
+
+    public int getPunchCount() { return punchCount; }
+    public void setPunchCount(int punchCount) { this.punchCount = punchCount; }
+}
@@ -24,12 +24,21 @@ public class AttendanceReportManager {
      * @return A full list of AttendanceRecords for the entire month.
      */
     public static List<AttendanceRecord> generateFullMonthList(Map<String, AttendanceRecord> logs) {
+        return generateFullMonthList(logs, Calendar.getInstance());
+    }
+
+    /**
+     * Same as above for any month (used by the org-wide export).
+     *
+     * @param month Any day inside the wanted month.
+     */
+    public static List<AttendanceRecord> generateFullMonthList(Map<String, AttendanceRecord> logs, Calendar month) {
         List<AttendanceRecord> fullList = new ArrayList<>();
         
-        // 1. Get the current calendar instance
-        Calendar calendar = Calendar.getInstance();
+        // 1. Copy the requested month so the caller's calendar is untouched
+        Calendar calendar = (Calendar) month.clone();
         
-        // 2. Set to the first day of the current month
+        // 2. Set to the first day of the month
         calendar.set(Calendar.DAY_OF_MONTH, 1);
         
         // 3. Determine how many days are in this month (28, 29, 30, or 31)
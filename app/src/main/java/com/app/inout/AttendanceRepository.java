@@ -0,0 +1,415 @@
+package com.inout.app.data;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+import com.inout.app.models.AttendanceRecord;
+import com.inout.app.utils.FirebaseManager;
+import com.inout.app.utils.TimeUtils;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Single entry point for reading the 'attendance' collection.
+ *
+ * Two cache tiers sit in front of Firestore:
+ * 1. Memory: an LRU of already decoded AttendanceRecord objects keyed by recordId.
+ * 2. Disk: a Room table that survives restarts and works without coverage.
+ *
+ * Callers get the cached copy immediately (fromCache = true) and the reconciled
+ * Firestore copy once the network answers (fromCache = false).
+ * Only documents reported as added/modified are decoded again.
+ */
+public class AttendanceRepository {
+
+    private static final String TAG = "AttendanceRepository";
+    private static final String COLLECTION = "attendance";
+    private static final int MEMORY_CACHE_SIZE = 256; // ~8 months of one employee, plenty for a session
+
+    private static AttendanceRepository instance;
+
+    private final AttendanceDao dao;
+    private final LruCache<String, AttendanceRecord> memoryCache;
+    private final ExecutorService diskExecutor;
+    private final Handler mainHandler;
+
+    // "employeeId_yyyy-MM" of past months already confirmed by the server this session.
+    // Past months no longer change, so these are served from cache without a network read.
+    private final Set<String> settledMonths = Collections.synchronizedSet(new HashSet<>());
+
+    public interface RecordCallback {
+        void onRecordLoaded(@Nullable AttendanceRecord record, boolean fromCache);
+    }
+
+    public interface RecordsCallback {
+        void onRecordsLoaded(List<AttendanceRecord> records, boolean fromCache);
+        void onError(String errorMsg);
+    }
+
+    private AttendanceRepository(Context context) {
+        this.dao = InOutDatabase.getInstance(context).attendanceDao();
+        this.memoryCache = new LruCache<>(MEMORY_CACHE_SIZE);
+        this.diskExecutor = Executors.newSingleThreadExecutor();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    public static synchronized AttendanceRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new AttendanceRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private FirebaseFirestore db() {
+        return FirebaseManager.firestore();
+    }
+
+    /**
+     * @return The decoded record if it is in the memory tier, otherwise null. Never touches disk or network.
+     */
+    @Nullable
+    public AttendanceRecord getCachedRecord(String recordId) {
+        return memoryCache.get(recordId);
+    }
+
+    /**
+     * Stores a record the app has just written, so screens see it before Firestore echoes it back.
+     */
+    public void putRecord(@NonNull AttendanceRecord record) {
+        if (record.getRecordId() == null) return;
+        memoryCache.put(record.getRecordId(), record);
+        AttendanceEntity entity = AttendanceEntity.fromRecord(record.getRecordId(), record);
+        diskExecutor.execute(() -> dao.upsert(entity));
+    }
+
+    /**
+     * Watches a single daily record (e.g. today's check-in document) until the owner is destroyed.
+     * Delivers the cached copy first if one exists, then every Firestore change.
+     */
+    public ListenerHub.Subscription observeRecord(@NonNull LifecycleOwner owner, @NonNull String recordId,
+                                                  @NonNull RecordCallback callback) {
+        AtomicBoolean snapshotArrived = new AtomicBoolean(false);
+        AttendanceRecord cached = memoryCache.get(recordId);
+        if (cached != null) {
+            callback.onRecordLoaded(cached, true);
+        } else {
+            diskExecutor.execute(() -> {
+                AttendanceEntity entity = dao.getById(recordId);
+                if (entity == null) return;
+                AttendanceRecord record = entity.toRecord();
+                mainHandler.post(() -> {
+                    // The listener may have won the race; never overwrite its copy with the disk one
+                    if (snapshotArrived.get()) return;
+                    memoryCache.put(recordId, record);
+                    callback.onRecordLoaded(record, true);
+                });
+            });
+        }
+
+        return ListenerHub.getInstance().<DocumentSnapshot>subscribe(owner,
+                "AttendanceRepository.observeRecord", COLLECTION + "/" + recordId,
+                listener -> db().collection(COLLECTION).document(recordId).addSnapshotListener(listener),
+                (snapshot, error, reset) -> {
+                    if (error != null) {
+                        Log.e(TAG, "Record listener failed: " + recordId, error);
+                        return;
+                    }
+                    if (snapshot == null) return;
+                    boolean fromCache = snapshot.getMetadata().isFromCache();
+                    if (snapshot.exists()) {
+                        snapshotArrived.set(true);
+                        AttendanceRecord record = decode(snapshot);
+                        if (record != null) {
+                            cache(record);
+                        }
+                        callback.onRecordLoaded(record, fromCache);
+                    } else if (fromCache && memoryCache.get(recordId) != null) {
+                        // Offline and Firestore's own cache has never seen this document: keep ours
+                        Log.d(TAG, "Offline miss for " + recordId + ", serving local copy.");
+                    } else {
+                        // An offline miss leaves the pending disk copy free to arrive
+                        if (!fromCache) snapshotArrived.set(true);
+                        evict(recordId);
+                        callback.onRecordLoaded(null, fromCache);
+                    }
+                });
+    }
+
+    /**
+     * Live feed of the newest page of an employee's history (newest first), until the owner is destroyed.
+     * Only this page carries a snapshot listener; older pages are read once via fetchHistoryPage.
+     */
+    public ListenerHub.Subscription observeLatestHistoryPage(@NonNull LifecycleOwner owner, @NonNull String employeeId,
+                                                             int pageSize, @NonNull RecordsCallback callback) {
+        AtomicBoolean serverAnswered = new AtomicBoolean(false);
+        deliverPageFromDisk(employeeId, Long.MAX_VALUE, pageSize, serverAnswered, callback);
+
+        String key = COLLECTION + "?employeeId=" + employeeId + "&orderBy=timestamp&limit=" + pageSize;
+        return ListenerHub.getInstance().<QuerySnapshot>subscribe(owner,
+                "AttendanceRepository.observeLatestHistoryPage", key,
+                listener -> employeeQuery(employeeId).limit(pageSize).addSnapshotListener(listener),
+                (value, error, reset) -> {
+                    if (error != null) {
+                        Log.e(TAG, "History listener failed for " + employeeId, error);
+                        callback.onError("Error syncing logs.");
+                        return;
+                    }
+                    if (value != null) {
+                        serverAnswered.set(true);
+                        callback.onRecordsLoaded(reconcilePage(employeeId, Long.MAX_VALUE, pageSize, value), false);
+                    }
+                });
+    }
+
+    /**
+     * One-shot read of the page of history strictly older than the given timestamp cursor.
+     * A page shorter than pageSize means the end of the history was reached.
+     */
+    public void fetchHistoryPage(@NonNull String employeeId, long beforeTimestamp, int pageSize,
+                                 @NonNull RecordsCallback callback) {
+        AtomicBoolean serverAnswered = new AtomicBoolean(false);
+        deliverPageFromDisk(employeeId, beforeTimestamp, pageSize, serverAnswered, callback);
+
+        Query page = employeeQuery(employeeId).startAfter(beforeTimestamp).limit(pageSize);
+        FirestoreMeter.getInstance().read("AttendanceRepository.fetchHistoryPage", page.get())
+                .addOnSuccessListener(value -> {
+                    serverAnswered.set(true);
+                    callback.onRecordsLoaded(reconcilePage(employeeId, beforeTimestamp, pageSize, value), false);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "History page fetch failed for " + employeeId, e);
+                    callback.onError("Error loading older records.");
+                });
+    }
+
+    private void deliverPageFromDisk(String employeeId, long beforeTimestamp, int pageSize,
+                                     AtomicBoolean serverAnswered, RecordsCallback callback) {
+        diskExecutor.execute(() -> {
+            List<AttendanceRecord> records = toRecords(dao.getForEmployeePage(employeeId, beforeTimestamp, pageSize));
+            if (records.isEmpty()) return;
+            mainHandler.post(() -> {
+                // The network may have won the race; never overwrite fresher data with the cache
+                if (!serverAnswered.get()) callback.onRecordsLoaded(records, true);
+            });
+        });
+    }
+
+    /**
+     * Reconciles one history page. The disk range it replaces runs from the page's oldest
+     * record (or the very beginning, when the page is the last one) up to the cursor.
+     */
+    private List<AttendanceRecord> reconcilePage(String employeeId, long beforeTimestamp, int pageSize,
+                                                 QuerySnapshot value) {
+        return reconcile(value, entities -> {
+            long from = entities.size() < pageSize ? 0 : entities.get(entities.size() - 1).timestamp;
+            dao.replaceForEmployeeInRange(employeeId, from, beforeTimestamp, entities);
+        });
+    }
+
+    /**
+     * One-shot read of a single calendar month, bounded by timestamp so only that month's
+     * documents (at most 31) are transferred. Past months already fetched this session
+     * are answered from cache alone.
+     *
+     * @param month Any day inside the wanted month.
+     */
+    public void fetchMonthRecords(@NonNull String employeeId, @NonNull Calendar month, @NonNull RecordsCallback callback) {
+        long start = TimeUtils.getMonthStart(month).getTimeInMillis();
+        long end = nextMonthStart(month);
+        String monthKey = employeeId + "_" + TimeUtils.getMonthId(month);
+
+        diskExecutor.execute(() -> {
+            List<AttendanceRecord> cached = toRecords(dao.getForEmployeeInRange(employeeId, start, end));
+            boolean settled = settledMonths.contains(monthKey);
+            if (!cached.isEmpty() || settled) {
+                mainHandler.post(() -> callback.onRecordsLoaded(cached, true));
+            }
+            if (settled) return;
+
+            mainHandler.post(() -> FirestoreMeter.getInstance()
+                    .read("AttendanceRepository.fetchMonthRecords", monthQuery(employeeId, start, end).get())
+                    .addOnSuccessListener(value -> {
+                        List<AttendanceRecord> records = reconcile(value,
+                                entities -> dao.replaceForEmployeeInRange(employeeId, start, end, entities));
+                        markSettledIfPast(monthKey, value, end);
+                        callback.onRecordsLoaded(records, false);
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Month fetch failed for " + monthKey, e);
+                        callback.onError("Error loading month records");
+                    }));
+        });
+    }
+
+    /**
+     * Blocking variant of fetchMonthRecords for background jobs (ExportWorker): the server copy,
+     * or the cached one for a month already settled this session. Never a cache-only answer, so
+     * the result is complete enough to back-fill a summary from; offline it fails instead.
+     * Must be called off the main thread.
+     *
+     * @param month Any day inside the wanted month.
+     */
+    @WorkerThread
+    public List<AttendanceRecord> loadMonthRecords(@NonNull String employeeId, @NonNull Calendar month)
+            throws ExecutionException, InterruptedException {
+        long start = TimeUtils.getMonthStart(month).getTimeInMillis();
+        long end = nextMonthStart(month);
+        String monthKey = employeeId + "_" + TimeUtils.getMonthId(month);
+
+        if (settledMonths.contains(monthKey)) {
+            return toRecords(dao.getForEmployeeInRange(employeeId, start, end));
+        }
+
+        QuerySnapshot value = Tasks.await(FirestoreMeter.getInstance()
+                .read("AttendanceRepository.loadMonthRecords", monthQuery(employeeId, start, end).get(Source.SERVER)));
+        List<AttendanceRecord> records = reconcile(value,
+                entities -> dao.replaceForEmployeeInRange(employeeId, start, end, entities));
+        markSettledIfPast(monthKey, value, end);
+        return records;
+    }
+
+    private void markSettledIfPast(String monthKey, QuerySnapshot value, long monthEnd) {
+        if (!value.getMetadata().isFromCache() && monthEnd <= System.currentTimeMillis()) {
+            settledMonths.add(monthKey);
+        }
+    }
+
+    private static long nextMonthStart(Calendar month) {
+        Calendar next = TimeUtils.getMonthStart(month);
+        next.add(Calendar.MONTH, 1);
+        return next.getTimeInMillis();
+    }
+
+    private Query monthQuery(String employeeId, long startMillis, long endMillis) {
+        // Same (employeeId, timestamp DESC) composite index as the history query
+        return db().collection(COLLECTION)
+                .whereEqualTo("employeeId", employeeId)
+                .whereGreaterThanOrEqualTo("timestamp", startMillis)
+                .whereLessThan("timestamp", endMillis)
+                .orderBy("timestamp", Query.Direction.DESCENDING);
+    }
+
+    private Query employeeQuery(String employeeId) {
+        return db().collection(COLLECTION)
+                .whereEqualTo("employeeId", employeeId)
+                .orderBy("timestamp", Query.Direction.DESCENDING);
+    }
+
+    /**
+     * Converts disk rows to records, reusing already decoded instances from memory.
+     */
+    private List<AttendanceRecord> toRecords(List<AttendanceEntity> entities) {
+        List<AttendanceRecord> records = new ArrayList<>(entities.size());
+        for (AttendanceEntity entity : entities) {
+            AttendanceRecord record = memoryCache.get(entity.recordId);
+            if (record == null) {
+                record = entity.toRecord();
+                memoryCache.put(entity.recordId, record);
+            }
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * Receives the rows of a server-confirmed result so the matching disk range can be replaced.
+     */
+    private interface DiskReplacer {
+        void replace(List<AttendanceEntity> entities);
+    }
+
+    /**
+     * Applies a query result to both cache tiers and returns the records in query order.
+     * Unchanged documents are served from memory instead of being decoded again.
+     */
+    private List<AttendanceRecord> reconcile(QuerySnapshot value, DiskReplacer replacer) {
+        for (DocumentChange change : value.getDocumentChanges()) {
+            DocumentSnapshot doc = change.getDocument();
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                memoryCache.remove(doc.getId());
+            } else {
+                AttendanceRecord record = decode(doc);
+                if (record != null) memoryCache.put(record.getRecordId(), record);
+            }
+        }
+
+        List<AttendanceRecord> records = new ArrayList<>(value.size());
+        List<AttendanceEntity> entities = new ArrayList<>(value.size());
+        for (DocumentSnapshot doc : value.getDocuments()) {
+            AttendanceRecord record = memoryCache.get(doc.getId());
+            if (record == null) {
+                // Evicted from the LRU since the last event
+                record = decode(doc);
+                if (record == null) continue;
+                memoryCache.put(record.getRecordId(), record);
+            }
+            records.add(record);
+            entities.add(AttendanceEntity.fromRecord(record.getRecordId(), record));
+        }
+
+        // Only a server-confirmed result may delete rows; a cache-only snapshot can be partial
+        boolean authoritative = !value.getMetadata().isFromCache();
+        diskExecutor.execute(() -> {
+            if (authoritative) {
+                replacer.replace(entities);
+            } else {
+                dao.upsertAll(entities);
+            }
+        });
+        return records;
+    }
+
+    @Nullable
+    private AttendanceRecord decode(DocumentSnapshot doc) {
+        AttendanceRecord record = doc.toObject(AttendanceRecord.class);
+        if (record != null) {
+            // The document ID is the source of truth; older documents may lack the field
+            record.setRecordId(doc.getId());
+        }
+        return record;
+    }
+
+    private void cache(AttendanceRecord record) {
+        memoryCache.put(record.getRecordId(), record);
+        AttendanceEntity entity = AttendanceEntity.fromRecord(record.getRecordId(), record);
+        diskExecutor.execute(() -> dao.upsert(entity));
+    }
+
+    /**
+     * Forgets every cached record, in memory and on disk (the company changed).
+     */
+    public void clear() {
+        memoryCache.evictAll();
+        settledMonths.clear();
+        diskExecutor.execute(dao::deleteAll);
+    }
+
+    private void evict(String recordId) {
+        memoryCache.remove(recordId);
+        diskExecutor.execute(() -> dao.delete(recordId));
+    }
+}
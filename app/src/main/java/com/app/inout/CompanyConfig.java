@@ -1,8 +1,12 @@
 package com.inout.app.models;
 
+import com.google.firebase.firestore.Exclude;
+import com.google.firebase.firestore.GeoPoint;
 import com.google.firebase.firestore.IgnoreExtraProperties;
 import com.google.firebase.firestore.PropertyName;
 
+import java.util.List;
+
 /**
  * Model class representing an Office Location / Company Configuration.
  * Stored in Firestore under 'locations' collection.
@@ -16,6 +20,12 @@ public class CompanyConfig {
     private double latitude;
     private double longitude;
     private float radius;       // Allowed radius in meters (default 100)
+    private List<GeoPoint> boundary;    // Optional polygon corners; replaces the circle when set
+
+    // Derived from boundary on first use: corner arrays and bounding box, for the point-in-polygon test
+    private double[] boundaryLats;
+    private double[] boundaryLngs;
+    private double minLat, maxLat, minLng, maxLng;
 
     public CompanyConfig() {
         // Default constructor required for Firestore
@@ -80,4 +90,78 @@ public class CompanyConfig {
     public void setRadius(float radius) {
         this.radius = radius;
     }
+
+    @PropertyName("boundary")
+    public List<GeoPoint> getBoundary() {
+        return boundary;
+    }
+
+    @PropertyName("boundary")
+    public void setBoundary(List<GeoPoint> boundary) {
+        this.boundary = boundary;
+        this.boundaryLats = null;
+    }
+
+    /**
+     * @return True if the office has a polygon of at least 3 corners; otherwise the circle applies.
+     */
+    @Exclude
+    public boolean hasBoundary() {
+        return boundary != null && boundary.size() >= 3;
+    }
+
+    @Exclude
+    public double[] getBoundaryLats() {
+        computeBoundary();
+        return boundaryLats;
+    }
+
+    @Exclude
+    public double[] getBoundaryLngs() {
+        computeBoundary();
+        return boundaryLngs;
+    }
+
+    @Exclude
+    public double getMinLat() {
+        computeBoundary();
+        return minLat;
+    }
+
+    @Exclude
+    public double getMaxLat() {
+        computeBoundary();
+        return maxLat;
+    }
+
+    @Exclude
+    public double getMinLng() {
+        computeBoundary();
+        return minLng;
+    }
+
+    @Exclude
+    public double getMaxLng() {
+        computeBoundary();
+        return maxLng;
+    }
+
+    private void computeBoundary() {
+        if (boundaryLats != null || !hasBoundary()) return;
+        int n = boundary.size();
+        double[] lats = new double[n];
+        double[] lngs = new double[n];
+        minLat = minLng = Double.POSITIVE_INFINITY;
+        maxLat = maxLng = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            lats[i] = boundary.get(i).getLatitude();
+            lngs[i] = boundary.get(i).getLongitude();
+            minLat = Math.min(minLat, lats[i]);
+            maxLat = Math.max(maxLat, lats[i]);
+            minLng = Math.min(minLng, lngs[i]);
+            maxLng = Math.max(maxLng, lngs[i]);
+        }
+        boundaryLngs = lngs;
+        boundaryLats = lats; // Set last: it marks the derived fields as ready
+    }
 }
\ No newline at end of file
@@ -1,106 +1,131 @@
 package com.inout.app;
 
+import android.app.Activity;
+import android.app.AlertDialog;
 import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
-import android.util.Log;
-import android.widget.Toast;
 
 import androidx.core.content.FileProvider;
 
 import com.inout.app.models.AttendanceRecord;
+import com.inout.app.utils.TimeUtils;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.util.List;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
 
 /**
  * Utility to generate and share professional attendance reports.
  * UPDATED: Matches the 11-column table layout (Includes Transit Route).
+ * Files are streamed through CsvWriter by ExportWorker jobs; this class holds the columns and the share flow.
  */
 public class CsvExportHelper {
 
-    private static final String TAG = "CsvExportHelper";
+    // The 11 columns shared by the single-employee and the org-wide export
+    static final String[] CSV_HEADER = {"Date", "Day", "CheckIn", "TransitRoute", "CheckOut", "TotalHours",
+            "Location", "DistanceMeters", "FingerprintVerified", "GPSVerified", "Status"};
+
+    public interface MonthRangeCallback {
+        void onRangeChosen(Calendar firstMonth, int monthCount);
+    }
 
     /**
-     * Converts the full month list into a CSV-formatted string and opens the share menu.
-     * 
-     * @param context   Activity or Fragment context.
-     * @param records   The list of 30/31 records (including Absents).
-     * @param fileName  Suggested name for the file (e.g., "Josy_Vine_Jan_2026.csv").
+     * Formats one record as CSV fields, in CSV_HEADER column order. Escaping is left to CsvWriter.
      */
-    public static void exportAttendanceToCsv(Context context, List<AttendanceRecord> records, String fileName) {
-        
-        // 1. Create the CSV Header Row (11 Columns)
-        StringBuilder csvData = new StringBuilder();
-        csvData.append("Date,Day,CheckIn,TransitRoute,CheckOut,TotalHours,Location,DistanceMeters,FingerprintVerified,GPSVerified,Status\n");
-
-        // 2. Loop through all records and format rows
-        for (AttendanceRecord record : records) {
-            String date = record.getDate();
-            String day = record.getDayOfWeek();
-            String in = (record.getCheckInTime() != null) ? record.getCheckInTime() : "--";
-            
-            // NEW: Get Transit Route string
-            String transit = record.getTransitSummary();
-            
-            String out = (record.getCheckOutTime() != null) ? record.getCheckOutTime() : "--";
-            String hours = (record.getTotalHours() != null) ? record.getTotalHours() : "0h 00m";
-            String location = (record.getLocationName() != null) ? record.getLocationName() : "N/A";
-            String distance = (record.getCheckInTime() != null) ? String.valueOf(Math.round(record.getDistanceMeters())) : "--";
-            
-            // Convert Booleans to professional text proof
-            String finger = record.isFingerprintVerified() ? "YES" : "NO";
-            String gps = record.isGpsVerified() ? "YES" : "NO";
-            
-            // Handle Proof logic for status
-            String status = record.getStatus();
-
-            // Append row to string 
-            // Note: Transit and Location are wrapped in quotes to handle special characters safely
-            csvData.append(date).append(",")
-                    .append(day).append(",")
-                    .append(in).append(",")
-                    .append("\"").append(transit).append("\",")
-                    .append(out).append(",")
-                    .append(hours).append(",")
-                    .append("\"").append(location).append("\",")
-                    .append(distance).append(",")
-                    .append(finger).append(",")
-                    .append(gps).append(",")
-                    .append(status).append("\n");
+    static String[] toFields(AttendanceRecord record) {
+        String in = (record.getCheckInTime() != null) ? record.getCheckInTime() : "--";
+        String out = (record.getCheckOutTime() != null) ? record.getCheckOutTime() : "--";
+        String hours = (record.getTotalHours() != null) ? record.getTotalHours() : "0h 00m";
+        String location = (record.getLocationName() != null) ? record.getLocationName() : "N/A";
+        String distance = (record.getCheckInTime() != null) ? String.valueOf(Math.round(record.getDistanceMeters())) : "--";
+
+        return new String[]{
+                record.getDate(),
+                record.getDayOfWeek(),
+                in,
+                record.getTransitSummary(),
+                out,
+                hours,
+                location,
+                distance,
+                // Convert Booleans to professional text proof
+                record.isFingerprintVerified() ? "YES" : "NO",
+                record.isGpsVerified() ? "YES" : "NO",
+                record.getStatus()
+        };
+    }
+
+    static void shareCsvFile(Context context, File file) {
+        if (context instanceof Activity && ((Activity) context).isFinishing()) {
+            context = context.getApplicationContext();
         }
 
-        // 3. Save to a temporary file for sharing (Zero Billing/No Permanent Storage)
-        try {
-            File folder = new File(context.getCacheDir(), "reports");
-            if (!folder.exists()) folder.mkdirs();
-            
-            File file = new File(folder, fileName + ".csv");
-            FileOutputStream outStream = new FileOutputStream(file);
-            outStream.write(csvData.toString().getBytes());
-            outStream.close();
-
-            // 4. Share the file via Intent
-            shareCsvFile(context, file);
-
-        } catch (IOException e) {
-            Log.e(TAG, "CSV Generation failed", e);
-            Toast.makeText(context, "Error generating CSV file", Toast.LENGTH_SHORT).show();
+        Intent chooser = buildShareIntent(context, file);
+        if (!(context instanceof Activity)) {
+            // Finished after the screen went away: needs its own task
+            chooser.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
         }
+        context.startActivity(chooser);
     }
 
-    private static void shareCsvFile(Context context, File file) {
+    /**
+     * The share sheet for a finished report; also used as the tap action of the export notification.
+     */
+    static Intent buildShareIntent(Context context, File file) {
         // Use the FileProvider defined in your AndroidManifest
         Uri path = FileProvider.getUriForFile(context, "com.inout.app.fileprovider", file);
-        
+
         Intent intent = new Intent(Intent.ACTION_SEND);
         intent.setType("text/csv");
         intent.putExtra(Intent.EXTRA_SUBJECT, "Attendance Report Export");
         intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
         intent.putExtra(Intent.EXTRA_STREAM, path);
-        
-        context.startActivity(Intent.createChooser(intent, "Export Report via:"));
+
+        return Intent.createChooser(intent, "Export Report via:");
+    }
+
+    /**
+     * Lets the user pick how many months, ending with lastMonth, go into an export.
+     */
+    static void chooseMonthRange(Context context, Calendar lastMonth, MonthRangeCallback callback) {
+        SimpleDateFormat format = new SimpleDateFormat("MMMM yyyy", Locale.US);
+        String[] options = {
+                format.format(lastMonth.getTime()),
+                "Last 3 months",
+                "Last 12 months"
+        };
+        int[] monthCounts = {1, 3, 12};
+
+        new AlertDialog.Builder(context)
+                .setTitle("Export range")
+                .setItems(options, (dialog, which) -> {
+                    Calendar firstMonth = TimeUtils.getMonthStart(lastMonth);
+                    firstMonth.add(Calendar.MONTH, 1 - monthCounts[which]);
+                    callback.onRangeChosen(firstMonth, monthCounts[which]);
+                })
+                .show();
+    }
+
+    /**
+     * File name suffix for a month range, e.g. "Jan_2026" or "Nov_2025-Jan_2026".
+     */
+    static String rangeLabel(Calendar firstMonth, int monthCount) {
+        SimpleDateFormat format = new SimpleDateFormat("MMM_yyyy", Locale.US);
+        Calendar lastMonth = (Calendar) firstMonth.clone();
+        lastMonth.add(Calendar.MONTH, monthCount - 1);
+
+        String last = format.format(lastMonth.getTime());
+        return monthCount <= 1 ? last : format.format(firstMonth.getTime()) + "-" + last;
+    }
+
+    /**
+     * Turns a display name into one file name segment: anything but letters, digits, '-' and '.'
+     * (path separators included) becomes '_', and leading dots are dropped.
+     */
+    static String safeFileName(String name) {
+        String safe = name == null ? "" : name.trim().replaceAll("[^\\p{L}\\p{N}.-]+", "_").replaceAll("^[._]+", "");
+        return safe.isEmpty() ? "Employee" : safe;
     }
-}
\ No newline at end of file
+}
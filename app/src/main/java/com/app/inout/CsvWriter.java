@@ -0,0 +1,79 @@
+package com.inout.app.utils;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal streaming CSV writer (RFC 4180).
+ *
+ * Rows go straight to a buffered UTF-8 file writer as they are produced, so memory does not
+ * grow with the number of rows. Fields containing a comma, quote or line break are quoted and
+ * embedded quotes are doubled. Lines end with CRLF. Blocking I/O: never use on the main thread.
+ */
+public class CsvWriter implements Closeable {
+
+    // Lets Excel detect UTF-8 (transit routes contain "→", names may contain accents)
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private final Writer out;
+
+    public CsvWriter(File file) throws IOException {
+        this(file, false);
+    }
+
+    /**
+     * @param append Continue a partially written file (resumed export); the BOM is already there.
+     */
+    public CsvWriter(File file, boolean append) throws IOException {
+        this.out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, append), StandardCharsets.UTF_8));
+        if (!append) out.write(BYTE_ORDER_MARK);
+    }
+
+    public void writeRow(String... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) out.write(',');
+            writeField(fields[i]);
+        }
+        out.write("\r\n");
+    }
+
+    private void writeField(String field) throws IOException {
+        if (field == null || field.isEmpty()) return;
+
+        boolean needsQuotes = false;
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+                needsQuotes = true;
+                break;
+            }
+        }
+        if (!needsQuotes) {
+            out.write(field);
+            return;
+        }
+
+        out.write('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') out.write('"');
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -13,19 +13,24 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FieldValue;
-import com.google.firebase.firestore.FirebaseFirestore;
+import com.inout.app.data.AttendanceRepository;
+import com.inout.app.data.GeofenceIndex;
+import com.inout.app.data.ListenerHub;
+import com.inout.app.data.LocationRegistry;
+import com.inout.app.data.PunchEntity;
+import com.inout.app.data.PunchJournal;
+import com.inout.app.data.PunchLog;
+import com.inout.app.data.SessionStore;
 import com.inout.app.databinding.FragmentEmployeeCheckinBinding;
 import com.inout.app.models.AttendanceRecord;
 import com.inout.app.models.CompanyConfig;
+import com.inout.app.models.PunchEvent;
 import com.inout.app.models.User;
 import com.inout.app.utils.BiometricHelper;
+import com.inout.app.utils.FirebaseManager;
 import com.inout.app.utils.LocationHelper;
 import com.inout.app.utils.TimeUtils;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -37,13 +42,21 @@ public class EmployeeCheckInFragment extends Fragment {
     private static final String TAG = "CheckInFrag";
     private FragmentEmployeeCheckinBinding binding;
     
-    private FirebaseFirestore db;
     private FirebaseAuth mAuth;
+    private AttendanceRepository attendanceRepository;
     private LocationHelper locationHelper;
+    private LocationRegistry locationRegistry;
+    private LocationRegistry.OnLocationsChangedListener locationsListener;
+    private SessionStore.UserListener sessionListener;
     
     private User currentUser;
-    private CompanyConfig assignedLocation;
-    private AttendanceRecord todayRecord;
+    private CompanyConfig assignedLocation;      // Home office; the employee may also punch at the other allowed ones
+    private AttendanceRecord todayRecord;       // Server copy with unsynced punches applied
+    private AttendanceRecord serverTodayRecord; // Last copy delivered by the repository
+    private String todayRecordId;
+    private PunchJournal punchJournal;
+    private PunchJournal.OnPendingChangedListener pendingListener;
+    private ListenerHub.Subscription todaySubscription;
 
     // Action Constants
     private static final int ACTION_IN = 1;
@@ -60,15 +73,29 @@ public class EmployeeCheckInFragment extends Fragment {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        db = FirebaseFirestore.getInstance();
-        mAuth = FirebaseAuth.getInstance();
+        mAuth = FirebaseManager.auth();
+        attendanceRepository = AttendanceRepository.getInstance(requireContext());
         locationHelper = new LocationHelper(requireContext());
+        locationRegistry = LocationRegistry.getInstance();
+        punchJournal = PunchJournal.getInstance(requireContext());
 
         // Initial UI State: All disabled until data loads
         updateButtonState(false, false, false);
 
         loadUserDataAndStatus();
 
+        // Office edits (radius, coordinates) reach the open screen through the shared listener
+        locationsListener = locations -> {
+            if (currentUser != null) resolveAssignedLocation(currentUser.getAssignedLocationId());
+        };
+        locationRegistry.addListener(locationsListener);
+
+        // Status line shows punches still waiting for the network; a flush may also change the record
+        pendingListener = count -> {
+            if (binding != null) refreshTodayRecord();
+        };
+        punchJournal.addListener(pendingListener);
+
         binding.btnCheckIn.setOnClickListener(v -> initiateAction(ACTION_IN));
         binding.btnTransit.setOnClickListener(v -> initiateAction(ACTION_TRANSIT));
         binding.btnCheckOut.setOnClickListener(v -> initiateAction(ACTION_OUT));
@@ -86,49 +113,52 @@ public class EmployeeCheckInFragment extends Fragment {
     }
 
     /**
-     * Fetches user profile to display real Name/ID and retrieve the office assignment ID.
+     * Uses the shared SessionStore profile to display real Name/ID and retrieve the office assignment ID.
      */
     private void loadUserDataAndStatus() {
         if (mAuth.getCurrentUser() == null) return;
-        String uid = mAuth.getCurrentUser().getUid();
-        
-        db.collection("users").document(uid).addSnapshotListener((doc, error) -> {
-            if (error != null) return;
+
+        sessionListener = (user, fromCache) -> {
+            if (user == null || binding == null) return;
+            currentUser = user;
+
+            binding.tvEmployeeName.setText(currentUser.getName() != null ? currentUser.getName() : "Unknown User");
+            binding.tvEmployeeId.setText(currentUser.getEmployeeId() != null ? currentUser.getEmployeeId() : "Pending ID");
+
+            String locId = currentUser.getAssignedLocationId();
             
-            if (doc != null && doc.exists()) {
-                currentUser = doc.toObject(User.class);
-                
-                if (currentUser != null) {
-                    binding.tvEmployeeName.setText(currentUser.getName() != null ? currentUser.getName() : "Unknown User");
-                    binding.tvEmployeeId.setText(currentUser.getEmployeeId() != null ? currentUser.getEmployeeId() : "Pending ID");
-
-                    String locId = currentUser.getAssignedLocationId();
-                    
-                    if (locId != null && !locId.isEmpty()) {
-                        fetchAssignedLocationDetails(locId);
-                    } else {
-                        binding.tvStatus.setText("Status: No workplace assigned by Admin.");
-                        updateButtonState(false, false, false);
-                    }
-                    
-                    loadTodayAttendance();
-                }
+            if (locId != null && !locId.isEmpty()) {
+                resolveAssignedLocation(locId);
+            } else {
+                binding.tvStatus.setText("Status: No workplace assigned by Admin.");
+                updateButtonState(false, false, false);
             }
-        });
+            
+            loadTodayAttendance();
+        };
+        SessionStore.getInstance(requireContext()).addListener(sessionListener);
     }
 
-    private void fetchAssignedLocationDetails(String locId) {
-        db.collection("locations").document(locId).get().addOnSuccessListener(doc -> {
-            if (doc.exists()) {
-                assignedLocation = doc.toObject(CompanyConfig.class);
-                assignedLocation.setId(doc.getId()); // Ensure ID is set
-                
+    /**
+     * Looks the office up in the shared LocationRegistry instead of reading it from Firestore.
+     * If the registry has not loaded yet, its change callback calls this again.
+     */
+    private void resolveAssignedLocation(String locId) {
+        if (binding == null || locId == null || locId.isEmpty()) return;
+
+        CompanyConfig location = locationRegistry.get(locId);
+        if (location != null) {
+            if (location != assignedLocation) {
+                assignedLocation = location;
                 Log.d(TAG, "New Location Assigned: " + assignedLocation.getName());
-                updateUIBasedOnStatus();
-            } else {
-                binding.tvStatus.setText("Status: Workplace record not found.");
             }
-        }).addOnFailureListener(e -> binding.tvStatus.setText("Status: Error fetching location."));
+            // The set of other allowed offices may have changed with the profile
+            updateUIBasedOnStatus();
+        } else if (locationRegistry.isLoaded()) {
+            assignedLocation = null;
+            binding.tvStatus.setText("Status: Workplace record not found.");
+            updateButtonState(false, false, false);
+        }
     }
 
     private void loadTodayAttendance() {
@@ -137,16 +167,28 @@ public class EmployeeCheckInFragment extends Fragment {
         String dateId = TimeUtils.getCurrentDateId();
         String recordId = currentUser.getEmployeeId() + "_" + dateId;
 
-        db.collection("attendance").document(recordId).addSnapshotListener((snapshot, e) -> {
-            if (snapshot != null && snapshot.exists()) {
-                todayRecord = snapshot.toObject(AttendanceRecord.class);
-            } else {
-                todayRecord = null;
-            }
-            updateUIBasedOnStatus();
+        // Called on every profile change: keep the listener unless the record itself changed
+        if (todaySubscription != null && recordId.equals(todayRecordId)) return;
+        if (todaySubscription != null) todaySubscription.remove();
+        todayRecordId = recordId;
+
+        // Cached copy renders the buttons immediately; Firestore reconciles in the background
+        todaySubscription = attendanceRepository.observeRecord(getViewLifecycleOwner(), todayRecordId, (record, fromCache) -> {
+            serverTodayRecord = record;
+            refreshTodayRecord();
         });
     }
 
+    /**
+     * Punches not yet acknowledged by Firestore are applied on top of the server copy,
+     * so the buttons reflect what the employee did even while offline.
+     */
+    private void refreshTodayRecord() {
+        if (todayRecordId == null) return;
+        todayRecord = punchJournal.overlay(todayRecordId, serverTodayRecord);
+        updateUIBasedOnStatus();
+    }
+
     /**
      * CRITICAL LOGIC: Determines which buttons are enabled based on state.
      */
@@ -158,23 +200,28 @@ public class EmployeeCheckInFragment extends Fragment {
         if (todayRecord == null) {
             // Case 1: Start of Day
             updateButtonState(true, false, false);
-            binding.tvStatus.setText("Status: Ready to Check-In at " + locName);
+            int others = currentUser.getAllLocationIds().size() - 1;
+            binding.tvStatus.setText("Status: Ready to Check-In at " + locName
+                    + (others > 0 ? " or " + others + (others == 1 ? " other office" : " other offices") : ""));
             
         } else if (todayRecord.getCheckOutTime() == null || todayRecord.getCheckOutTime().isEmpty()) {
             // Case 2: Currently Checked In
             
             // TRANSIT LOGIC: Check if the Admin has changed the location since the last verification
             String lastLocId = todayRecord.getLastVerifiedLocationId();
-            String currentLocId = assignedLocation.getId();
+            List<String> allowedIds = currentUser.getAllLocationIds();
+            CompanyConfig lastLocation = locationRegistry.get(lastLocId);
             
             boolean allowTransit = false;
             
-            // If the assigned location is different from where they last checked in/transited -> Enable Transit
-            if (lastLocId != null && !lastLocId.equals(currentLocId)) {
+            // If they were last verified at an office no longer allowed -> Enable Transit
+            if (lastLocId != null && !allowedIds.contains(lastLocId)) {
                 allowTransit = true;
                 binding.tvStatus.setText("Transit Required: Move to " + locName);
             } else {
-                binding.tvStatus.setText("Status: Working at " + locName);
+                // Employees allowed at several offices may move between them at any time
+                allowTransit = allowedIds.size() > 1;
+                binding.tvStatus.setText("Status: Working at " + (lastLocation != null ? lastLocation.getName() : locName));
             }
             
             updateButtonState(false, allowTransit, true);
@@ -185,6 +232,11 @@ public class EmployeeCheckInFragment extends Fragment {
             binding.tvStatus.setText("Status: Shift Completed at " + todayRecord.getLocationName() + 
                     " (" + todayRecord.getTotalHours() + ")");
         }
+
+        int waiting = punchJournal.getPendingCount();
+        if (waiting > 0) {
+            binding.tvStatus.append("\n" + waiting + (waiting == 1 ? " punch" : " punches") + " waiting to sync");
+        }
     }
 
     private void initiateAction(int actionType) {
@@ -217,28 +269,27 @@ public class EmployeeCheckInFragment extends Fragment {
         locationHelper.getCurrentLocation(new LocationHelper.LocationResultCallback() {
             @Override
             public void onLocationResult(Location location) {
+                if (binding == null) return;
                 binding.progressBar.setVisibility(View.GONE);
                 
                 if (location != null) {
-                    boolean inRange = LocationHelper.isWithinRadius(
-                            location.getLatitude(), location.getLongitude(),
-                            assignedLocation.getLatitude(), assignedLocation.getLongitude(),
-                            assignedLocation.getRadius());
-
-                    if (inRange) {
-                        float dist = LocationHelper.calculateDistance(
-                                location.getLatitude(), location.getLongitude(),
-                                assignedLocation.getLatitude(), assignedLocation.getLongitude());
-                        
+                    // The fix is matched against every office the employee is allowed at
+                    GeofenceIndex.Match match = locationRegistry.getGeofenceIndex().locate(
+                            location.getLatitude(), location.getLongitude(), currentUser.getAllLocationIds());
+
+                    if (match != null && match.inside) {
                         if (actionType == ACTION_IN) {
-                            performCheckIn(location, dist);
+                            performCheckIn(location, match);
                         } else if (actionType == ACTION_TRANSIT) {
-                            performTransit(location, dist);
+                            performTransit(location, match);
                         } else if (actionType == ACTION_OUT) {
-                            performCheckOut(location);
+                            performCheckOut(location, match);
                         }
                     } else {
-                        String msg = "Denied: You are not at " + assignedLocation.getName() + " (Out of 100m range).";
+                        String msg = match != null
+                                ? "Denied: You are not at any of your offices. Nearest: " + match.office.getName()
+                                        + " (" + Math.round(match.distanceMeters) + " m away)."
+                                : "Denied: You are not at " + assignedLocation.getName() + ".";
                         Toast.makeText(getContext(), msg, Toast.LENGTH_LONG).show();
                     }
                 }
@@ -246,82 +297,86 @@ public class EmployeeCheckInFragment extends Fragment {
 
             @Override
             public void onError(String errorMsg) {
+                if (binding == null) return;
                 binding.progressBar.setVisibility(View.GONE);
                 Toast.makeText(getContext(), "GPS Error: " + errorMsg, Toast.LENGTH_SHORT).show();
             }
         });
     }
 
-    private void performCheckIn(Location loc, float distance) {
-        String dateId = TimeUtils.getCurrentDateId();
-        String recordId = currentUser.getEmployeeId() + "_" + dateId;
-
-        AttendanceRecord record = new AttendanceRecord(
-                currentUser.getEmployeeId(), 
-                currentUser.getName(), 
-                dateId, 
-                TimeUtils.getCurrentTimestamp());
-
-        record.setRecordId(recordId);
-        record.setCheckInTime(TimeUtils.getCurrentTime());
-        record.setCheckInLat(loc.getLatitude());
-        record.setCheckInLng(loc.getLongitude());
-        record.setFingerprintVerified(true);
-        record.setLocationVerified(true);
-        record.setDistanceMeters(distance);
-        record.setLocationName(assignedLocation.getName());
-        
-        // Initialize Movement Log with the first location
-        List<String> moves = new ArrayList<>();
-        moves.add(assignedLocation.getName());
-        record.setMovementLog(moves);
-        record.setLastVerifiedLocationId(assignedLocation.getId());
-
-        db.collection("attendance").document(recordId).set(record)
-                .addOnSuccessListener(aVoid -> Toast.makeText(getContext(), "Check-In Success!", Toast.LENGTH_SHORT).show());
+    private void performCheckIn(Location loc, GeofenceIndex.Match match) {
+        PunchEntity punch = newPunch(PunchEvent.TYPE_IN, loc, match.office);
+        punch.distanceMeters = match.distanceMeters;
+        recordPunch(punch);
+        Toast.makeText(getContext(), "Check-In Success at " + punch.locationName + "!", Toast.LENGTH_SHORT).show();
     }
 
     /**
      * NEW: TRANSIT LOGIC
      * Adds the new location to the movement log and updates the current verified location.
      */
-    private void performTransit(Location loc, float distance) {
+    private void performTransit(Location loc, GeofenceIndex.Match match) {
         if (todayRecord == null) return;
+        if (match.office.getId().equals(todayRecord.getLastVerifiedLocationId())) {
+            Toast.makeText(getContext(), "Already verified at " + match.office.getName() + ".", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-        // Add the new distance to the existing total
-        float newTotalDist = todayRecord.getDistanceMeters() + distance;
-        String newLocName = assignedLocation.getName();
-
-        db.collection("attendance").document(todayRecord.getRecordId())
-                .update(
-                    "distanceMeters", newTotalDist,
-                    "locationName", newLocName, // Update current location status
-                    "lastVerifiedLocationId", assignedLocation.getId(),
-                    "movementLog", FieldValue.arrayUnion(newLocName) // Append to history
-                )
-                .addOnSuccessListener(aVoid -> Toast.makeText(getContext(), "Transit Verified: " + newLocName, Toast.LENGTH_SHORT).show())
-                .addOnFailureListener(e -> Toast.makeText(getContext(), "Transit Failed: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+        // The fold adds this leg's distance to the day total
+        PunchEntity punch = newPunch(PunchEvent.TYPE_TRANSIT, loc, match.office);
+        punch.distanceMeters = match.distanceMeters;
+        recordPunch(punch);
+        Toast.makeText(getContext(), "Transit Verified: " + punch.locationName, Toast.LENGTH_SHORT).show();
     }
 
-    private void performCheckOut(Location loc) {
+    private void performCheckOut(Location loc, GeofenceIndex.Match match) {
         if (todayRecord == null) return;
 
-        String checkOutTime = TimeUtils.getCurrentTime();
-        String totalHrs = TimeUtils.calculateDuration(todayRecord.getCheckInTime(), checkOutTime);
-
-        db.collection("attendance").document(todayRecord.getRecordId())
-                .update(
-                        "checkOutTime", checkOutTime,
-                        "checkOutLat", loc.getLatitude(),
-                        "checkOutLng", loc.getLongitude(),
-                        "totalHours", totalHrs
-                )
-                .addOnSuccessListener(aVoid -> Toast.makeText(getContext(), "Check-Out Success!", Toast.LENGTH_SHORT).show());
+        PunchEntity punch = newPunch(PunchEvent.TYPE_OUT, loc, match.office);
+        recordPunch(punch);
+        Toast.makeText(getContext(), "Check-Out Success!", Toast.LENGTH_SHORT).show();
+    }
+
+    /**
+     * @param office The office the fix was matched to, recorded on the punch.
+     */
+    private PunchEntity newPunch(String type, Location loc, CompanyConfig office) {
+        String dateId = TimeUtils.getCurrentDateId();
+
+        PunchEntity punch = new PunchEntity();
+        punch.type = type;
+        punch.recordId = currentUser.getEmployeeId() + "_" + dateId;
+        punch.employeeId = currentUser.getEmployeeId();
+        punch.employeeName = currentUser.getName();
+        punch.date = dateId;
+        punch.time = TimeUtils.getCurrentTime();
+        punch.timestamp = TimeUtils.getCurrentTimestamp();
+        punch.lat = loc.getLatitude();
+        punch.lng = loc.getLongitude();
+        punch.locationId = office.getId();
+        punch.locationName = office.getName();
+        return punch;
+    }
+
+    /**
+     * The punch goes to the on-disk journal (appended as an event in the background, then folded
+     * into the daily record and monthly summary) and is folded locally right away, so the screen
+     * never waits on the network.
+     */
+    private void recordPunch(PunchEntity punch) {
+        punchJournal.record(punch);
+        todayRecord = PunchLog.step(todayRecord, punch.toEvent());
+        if (todayRecord != null) attendanceRepository.putRecord(todayRecord);
+        updateUIBasedOnStatus();
     }
 
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        todaySubscription = null; // Already removed with the view lifecycle
+        locationRegistry.removeListener(locationsListener);
+        punchJournal.removeListener(pendingListener);
+        SessionStore.getInstance(requireContext()).removeListener(sessionListener);
         binding = null;
     }
 }
\ No newline at end of file
@@ -18,12 +18,11 @@ import com.google.android.gms.auth.api.signin.GoogleSignIn;
 import com.google.android.gms.auth.api.signin.GoogleSignInClient;
 import com.google.android.gms.auth.api.signin.GoogleSignInOptions;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
+import com.inout.app.data.LocationRegistry;
+import com.inout.app.data.SessionStore;
 import com.inout.app.databinding.ActivityEmployeeDashboardBinding;
-import com.inout.app.models.User;
 import com.inout.app.utils.EncryptionHelper;
+import com.inout.app.utils.FirebaseManager;
 
 /**
  * Main dashboard for Employees.
@@ -34,7 +33,7 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
 
     private ActivityEmployeeDashboardBinding binding;
     private FirebaseAuth mAuth;
-    private FirebaseFirestore db;
+    private SessionStore.UserListener sessionListener;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -42,8 +41,7 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
         binding = ActivityEmployeeDashboardBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
-        mAuth = FirebaseAuth.getInstance();
-        db = FirebaseFirestore.getInstance();
+        mAuth = FirebaseManager.auth();
         
         setSupportActionBar(binding.toolbar);
 
@@ -69,37 +67,38 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
 
     /**
      * Verifies if the user is approved and if their profile (photo/phone) is set up.
+     * Reads through SessionStore, so the last known profile applies before Firestore answers.
      */
     private void checkUserProfileAndStatus() {
-        FirebaseUser firebaseUser = mAuth.getCurrentUser();
-        if (firebaseUser == null) return;
-
-        db.collection("users").document(firebaseUser.getUid())
-                .addSnapshotListener((snapshot, error) -> {
-                    if (error != null) return;
-
-                    if (snapshot != null && snapshot.exists()) {
-                        User user = snapshot.toObject(User.class);
-                        if (user != null) {
-                            // 1. Check if basic profile data is missing
-                            if (user.getPhone() == null || user.getPhone().isEmpty() || 
-                                user.getPhotoUrl() == null || user.getPhotoUrl().isEmpty()) {
-                                
-                                Toast.makeText(this, "Please complete your profile first.", Toast.LENGTH_SHORT).show();
-                                startActivity(new Intent(this, EmployeeProfileActivity.class));
-                                // We don't finish() here so they can come back after saving
-                                return;
-                            }
-
-                            // 2. Check for Admin Approval
-                            if (!user.isApproved()) {
-                                showWaitingOverlay(true);
-                            } else {
-                                showWaitingOverlay(false);
-                            }
-                        }
-                    }
-                });
+        if (mAuth.getCurrentUser() == null) return;
+
+        sessionListener = (user, fromCache) -> {
+            if (user == null) return;
+
+            // 1. Check if basic profile data is missing
+            if (user.getPhone() == null || user.getPhone().isEmpty() || 
+                user.getPhotoUrl() == null || user.getPhotoUrl().isEmpty()) {
+                
+                Toast.makeText(this, "Please complete your profile first.", Toast.LENGTH_SHORT).show();
+                startActivity(new Intent(this, EmployeeProfileActivity.class));
+                // We don't finish() here so they can come back after saving
+                return;
+            }
+
+            // 2. Check for Admin Approval
+            if (!user.isApproved()) {
+                showWaitingOverlay(true);
+            } else {
+                showWaitingOverlay(false);
+            }
+        };
+        SessionStore.getInstance(this).addListener(sessionListener);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        SessionStore.getInstance(this).removeListener(sessionListener);
     }
 
     /**
@@ -144,6 +143,8 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
      */
     private void logout() {
         // 1. Sign out from Firebase
+        LocationRegistry.getInstance().stop();
+        SessionStore.getInstance(this).stop();
         mAuth.signOut();
 
         // 2. Configure and sign out from Google to allow picking a different Gmail next time
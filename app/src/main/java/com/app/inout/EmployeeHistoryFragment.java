@@ -11,18 +11,22 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
 import com.inout.app.adapters.AttendanceAdapter;
+import com.inout.app.data.AttendanceRepository;
+import com.inout.app.data.ListenerHub;
+import com.inout.app.data.SessionStore;
 import com.inout.app.databinding.FragmentEmployeeHistoryBinding;
 import com.inout.app.models.AttendanceRecord;
 import com.inout.app.models.User;
 import com.inout.app.utils.EncryptionHelper;
+import com.inout.app.utils.FirebaseManager;
+import com.inout.app.utils.SnapshotListSync;
 
+import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -37,15 +41,25 @@ import java.util.Locale;
 public class EmployeeHistoryFragment extends Fragment {
 
     private static final String TAG = "EmployeeHistoryFrag";
+    private static final int PAGE_SIZE = 31;           // Roughly one month per page
+    private static final int LOAD_MORE_THRESHOLD = 5;  // Rows from the end that trigger the next page
     private FragmentEmployeeHistoryBinding binding;
     
-    private FirebaseFirestore db;
     private FirebaseAuth mAuth;
     
     private List<AttendanceRecord> historyLogs;
     private AttendanceAdapter adapter;
+    private SnapshotListSync<AttendanceRecord> historySync;
     private String employeeId;
     private User currentUserProfile;
+    private SessionStore.UserListener sessionListener;
+    private ListenerHub.Subscription historySubscription;
+
+    // PAGINATION: the newest page is live, older pages are one-shot reads appended below it
+    private List<AttendanceRecord> livePage = new ArrayList<>();
+    private final List<AttendanceRecord> olderPages = new ArrayList<>();
+    private int pendingPageStart = -1;  // Index in olderPages where the in-flight page begins
+    private boolean reachedEnd = false;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -57,123 +71,221 @@ public class EmployeeHistoryFragment extends Fragment {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        db = FirebaseFirestore.getInstance();
-        mAuth = FirebaseAuth.getInstance();
+        mAuth = FirebaseManager.auth();
         historyLogs = new ArrayList<>();
 
         setupRecyclerView();
         fetchEmployeeIdAndLoadLogs();
 
-        // FIXED: Connected the Export button to logic
+        // Exports run as durable background jobs that survive leaving the screen
         binding.btnExportHistory.setOnClickListener(v -> {
-            if (historyLogs != null && !historyLogs.isEmpty() && currentUserProfile != null) {
-                String fileName = "My_Attendance_" + new SimpleDateFormat("MMM_yyyy", Locale.US).format(new Date());
-                CsvExportHelper.exportAttendanceToCsv(requireContext(), historyLogs, fileName);
-            } else {
+            if (currentUserProfile == null || employeeId == null) {
                 Toast.makeText(getContext(), "No history to export.", Toast.LENGTH_SHORT).show();
+                return;
             }
+            CsvExportHelper.chooseMonthRange(requireContext(), Calendar.getInstance(), (firstMonth, monthCount) -> {
+                String jobName = ExportWorker.enqueueEmployeeExport(requireActivity(),
+                        employeeId, currentUserProfile.getName(), firstMonth, monthCount);
+                binding.btnExportHistory.setEnabled(false);
+                ExportWorker.observe(getViewLifecycleOwner(), requireContext(), jobName, new ExportWorker.JobListener() {
+                    @Override
+                    public void onProgress(String message) {
+                    }
+
+                    @Override
+                    public void onComplete(File file) {
+                        if (binding == null) return;
+                        binding.btnExportHistory.setEnabled(true);
+                        CsvExportHelper.shareCsvFile(requireContext(), file);
+                    }
+
+                    @Override
+                    public void onError(String errorMsg) {
+                        if (binding == null) return;
+                        binding.btnExportHistory.setEnabled(true);
+                        Toast.makeText(getContext(), errorMsg, Toast.LENGTH_SHORT).show();
+                    }
+                });
+            });
         });
     }
 
     private void setupRecyclerView() {
-        binding.rvHistoryTable.setLayoutManager(new LinearLayoutManager(getContext()));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        binding.rvHistoryTable.setLayoutManager(layoutManager);
         adapter = new AttendanceAdapter(historyLogs);
         binding.rvHistoryTable.setAdapter(adapter);
+
+        // The repository hands over whole pages; only rows whose record changed are rebound
+        historySync = new SnapshotListSync<>(historyLogs, AttendanceRecord::getRecordId).attachAdapter(adapter);
+
+        // Infinite scroll: fetch the next page as the user nears the end of the table
+        binding.rvHistoryTable.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0) return;
+                int lastVisible = layoutManager.findLastVisibleItemPosition();
+                if (lastVisible >= historyLogs.size() - LOAD_MORE_THRESHOLD) {
+                    loadNextPage();
+                }
+            }
+        });
     }
 
     private void fetchEmployeeIdAndLoadLogs() {
         if (mAuth.getCurrentUser() == null) return;
-        
-        String uid = mAuth.getCurrentUser().getUid();
+
         binding.progressBar.setVisibility(View.VISIBLE);
 
-        db.collection("users").document(uid).get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        currentUserProfile = documentSnapshot.toObject(User.class);
-                        if (currentUserProfile != null && currentUserProfile.getEmployeeId() != null) {
-                            this.employeeId = currentUserProfile.getEmployeeId();
-                            
-                            // FIXED: Set real data in the header
-                            binding.tvHistoryName.setText(currentUserProfile.getName());
-                            binding.tvHistoryId.setText("ID: " + this.employeeId);
-                            
-                            // FIXED: Set real Company Name from EncryptionHelper
-                            String company = EncryptionHelper.getInstance(requireContext()).getCompanyName();
-                            binding.tvHistoryCompany.setText(company);
-
-                            // Set current Month/Year
-                            binding.tvHistoryMonth.setText(new SimpleDateFormat("MMMM yyyy", Locale.US).format(new Date()));
-
-                            // Load Google Photo
-                            if (currentUserProfile.getPhotoUrl() != null) {
-                                Glide.with(this).load(currentUserProfile.getPhotoUrl()).circleCrop().into(binding.ivHistoryPhoto);
-                            }
-                            
-                            loadMyLogs();
-                        } else {
-                            binding.progressBar.setVisibility(View.GONE);
-                            binding.tvNoData.setText("Employee ID not assigned yet.");
-                            binding.tvNoData.setVisibility(View.VISIBLE);
-                        }
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    binding.progressBar.setVisibility(View.GONE);
-                    Toast.makeText(getContext(), "Failed to load profile.", Toast.LENGTH_SHORT).show();
-                });
+        // Profile comes from the shared SessionStore; the header follows later profile edits
+        sessionListener = (user, fromCache) -> {
+            if (binding == null || user == null) return;
+            currentUserProfile = user;
+
+            if (currentUserProfile.getEmployeeId() != null) {
+                // FIXED: Set real data in the header
+                binding.tvHistoryName.setText(currentUserProfile.getName());
+                binding.tvHistoryId.setText("ID: " + currentUserProfile.getEmployeeId());
+                
+                // FIXED: Set real Company Name from EncryptionHelper
+                String company = EncryptionHelper.getInstance(requireContext()).getCompanyName();
+                binding.tvHistoryCompany.setText(company);
+
+                // Set current Month/Year
+                binding.tvHistoryMonth.setText(new SimpleDateFormat("MMMM yyyy", Locale.US).format(new Date()));
+
+                // Load Google Photo
+                if (currentUserProfile.getPhotoUrl() != null) {
+                    Glide.with(this).load(currentUserProfile.getPhotoUrl()).circleCrop().into(binding.ivHistoryPhoto);
+                }
+
+                if (this.employeeId == null) {
+                    this.employeeId = currentUserProfile.getEmployeeId();
+                }
+                if (historySubscription == null) {
+                    loadMyLogs();
+                }
+            } else {
+                binding.progressBar.setVisibility(View.GONE);
+                binding.tvNoData.setText("Employee ID not assigned yet.");
+                binding.tvNoData.setVisibility(View.VISIBLE);
+            }
+        };
+        SessionStore.getInstance(requireContext()).addListener(sessionListener);
     }
 
+    /**
+     * Attaches the live listener to the newest page only.
+     */
     private void loadMyLogs() {
-        db.collection("attendance")
-                .whereEqualTo("employeeId", employeeId)
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .addSnapshotListener((value, error) -> {
-                    binding.progressBar.setVisibility(View.GONE);
-                    
-                    if (error != null) {
-                        Log.e(TAG, "Error listening for history logs", error);
-                        Toast.makeText(getContext(), "Error syncing logs.", Toast.LENGTH_SHORT).show();
-                        return;
+        historySubscription = AttendanceRepository.getInstance(requireContext()).observeLatestHistoryPage(
+                getViewLifecycleOwner(), employeeId, PAGE_SIZE, new AttendanceRepository.RecordsCallback() {
+                    @Override
+                    public void onRecordsLoaded(List<AttendanceRecord> records, boolean fromCache) {
+                        if (binding == null) return;
+                        binding.progressBar.setVisibility(View.GONE);
+                        onLivePageChanged(records);
                     }
 
-                    if (value != null) {
-                        historyLogs.clear();
-                        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-                        SimpleDateFormat dayFormat = new SimpleDateFormat("EEEE", Locale.US);
-
-                        for (DocumentSnapshot doc : value) {
-                            AttendanceRecord record = doc.toObject(AttendanceRecord.class);
-                            if (record != null) {
-                                // FIXED: Calculate and set the Day Name from the Date string
-                                try {
-                                    Date date = sdf.parse(record.getDate());
-                                    if (date != null) {
-                                        record.setDayOfWeek(dayFormat.format(date));
-                                    }
-                                } catch (Exception e) {
-                                    record.setDayOfWeek("Unknown");
-                                }
-                                historyLogs.add(record);
-                            }
-                        }
-                        
-                        adapter.notifyDataSetChanged();
-                        
-                        if (historyLogs.isEmpty()) {
-                            binding.tvNoData.setVisibility(View.VISIBLE);
-                            binding.tableHeader.getRoot().setVisibility(View.GONE);
-                        } else {
-                            binding.tvNoData.setVisibility(View.GONE);
-                            binding.tableHeader.getRoot().setVisibility(View.VISIBLE);
+                    @Override
+                    public void onError(String errorMsg) {
+                        if (binding == null) return;
+                        binding.progressBar.setVisibility(View.GONE);
+                        Toast.makeText(getContext(), errorMsg, Toast.LENGTH_SHORT).show();
+                    }
+                });
+    }
+
+    private void onLivePageChanged(List<AttendanceRecord> records) {
+        // A new day pushes the oldest live row off the page. If older pages are already
+        // loaded, keep that row by moving it to the top of olderPages so no gap appears.
+        if (!olderPages.isEmpty() && !records.isEmpty()) {
+            long oldestLive = records.get(records.size() - 1).getTimestamp();
+            List<AttendanceRecord> fellOff = new ArrayList<>();
+            for (AttendanceRecord previous : livePage) {
+                if (previous.getTimestamp() < oldestLive) fellOff.add(previous);
+            }
+            olderPages.addAll(0, fellOff);
+            if (pendingPageStart >= 0) pendingPageStart += fellOff.size();
+        }
+
+        livePage = new ArrayList<>(records);
+        if (olderPages.isEmpty()) {
+            reachedEnd = records.size() < PAGE_SIZE;
+        }
+        rebuildHistory();
+    }
+
+    /**
+     * Reads the page right after the oldest row currently shown.
+     */
+    private void loadNextPage() {
+        if (pendingPageStart >= 0 || reachedEnd || historyLogs.isEmpty() || employeeId == null) return;
+
+        long cursor = historyLogs.get(historyLogs.size() - 1).getTimestamp();
+        pendingPageStart = olderPages.size();
+
+        AttendanceRepository.getInstance(requireContext()).fetchHistoryPage(employeeId, cursor, PAGE_SIZE,
+                new AttendanceRepository.RecordsCallback() {
+                    @Override
+                    public void onRecordsLoaded(List<AttendanceRecord> records, boolean fromCache) {
+                        if (binding == null || pendingPageStart < 0) return;
+
+                        // The cached copy of this page is replaced by the server copy when it arrives
+                        olderPages.subList(pendingPageStart, olderPages.size()).clear();
+                        olderPages.addAll(records);
+                        if (!fromCache) {
+                            reachedEnd = records.size() < PAGE_SIZE;
+                            pendingPageStart = -1;
                         }
+                        rebuildHistory();
+                    }
+
+                    @Override
+                    public void onError(String errorMsg) {
+                        pendingPageStart = -1;
+                        if (binding == null) return;
+                        Toast.makeText(getContext(), errorMsg, Toast.LENGTH_SHORT).show();
                     }
                 });
     }
 
+    private void rebuildHistory() {
+        List<AttendanceRecord> combined = new ArrayList<>(livePage.size() + olderPages.size());
+        combined.addAll(livePage);
+        combined.addAll(olderPages);
+
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        SimpleDateFormat dayFormat = new SimpleDateFormat("EEEE", Locale.US);
+        for (AttendanceRecord record : combined) {
+            if (record.getDayOfWeek() != null) continue;
+            // FIXED: Calculate and set the Day Name from the Date string
+            try {
+                Date date = sdf.parse(record.getDate());
+                if (date != null) {
+                    record.setDayOfWeek(dayFormat.format(date));
+                }
+            } catch (Exception e) {
+                record.setDayOfWeek("Unknown");
+            }
+        }
+
+        historySync.replaceAll(combined);
+
+        if (historyLogs.isEmpty()) {
+            binding.tvNoData.setVisibility(View.VISIBLE);
+            binding.tableHeader.getRoot().setVisibility(View.GONE);
+        } else {
+            binding.tvNoData.setVisibility(View.GONE);
+            binding.tableHeader.getRoot().setVisibility(View.VISIBLE);
+        }
+    }
+
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        historySubscription = null; // Already removed with the view lifecycle
+        SessionStore.getInstance(requireContext()).removeListener(sessionListener);
         binding = null;
     }
 }
\ No newline at end of file
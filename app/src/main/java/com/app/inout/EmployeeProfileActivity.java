@@ -14,8 +14,10 @@ import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.SetOptions;
+import com.inout.app.data.FirestoreMeter;
+import com.inout.app.data.SessionStore;
 import com.inout.app.databinding.ActivityEmployeeProfileBinding;
-import com.inout.app.models.User;
+import com.inout.app.utils.FirebaseManager;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -32,6 +34,8 @@ public class EmployeeProfileActivity extends AppCompatActivity {
     private ActivityEmployeeProfileBinding binding;
     private FirebaseAuth mAuth;
     private FirebaseFirestore db;
+    private SessionStore.UserListener sessionListener;
+    private boolean profileFilled = false; // Don't overwrite what the user is typing
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -39,8 +43,8 @@ public class EmployeeProfileActivity extends AppCompatActivity {
         binding = ActivityEmployeeProfileBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
-        mAuth = FirebaseAuth.getInstance();
-        db = FirebaseFirestore.getInstance();
+        mAuth = FirebaseManager.auth();
+        db = FirebaseManager.firestore();
 
         // 1. Load data if user already exists
         loadCurrentUserData();
@@ -66,21 +70,25 @@ public class EmployeeProfileActivity extends AppCompatActivity {
             binding.etName.setText(firebaseUser.getDisplayName());
         }
 
-        // Fetch the user's profile from Firestore to see if phone is already saved
-        db.collection("users").document(firebaseUser.getUid()).get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        User user = documentSnapshot.toObject(User.class);
-                        if (user != null) {
-                            if (user.getName() != null) binding.etName.setText(user.getName());
-                            if (user.getPhone() != null) binding.etPhone.setText(user.getPhone());
-                            
-                            // Note: To display the image from the URL string, 
-                            // you would normally use a library like Glide or Picasso.
-                            // e.g., Glide.with(this).load(user.getPhotoUrl()).into(binding.ivProfilePhoto);
-                        }
-                    }
-                });
+        // Fill in the saved profile from the shared SessionStore (no extra read of users/{uid})
+        sessionListener = (user, fromCache) -> {
+            if (user == null || profileFilled) return;
+            profileFilled = true;
+
+            if (user.getName() != null) binding.etName.setText(user.getName());
+            if (user.getPhone() != null) binding.etPhone.setText(user.getPhone());
+            
+            // Note: To display the image from the URL string, 
+            // you would normally use a library like Glide or Picasso.
+            // e.g., Glide.with(this).load(user.getPhotoUrl()).into(binding.ivProfilePhoto);
+        };
+        SessionStore.getInstance(this).addListener(sessionListener);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        SessionStore.getInstance(this).removeListener(sessionListener);
     }
 
     private void validateAndSave() {
@@ -124,8 +132,8 @@ public class EmployeeProfileActivity extends AppCompatActivity {
         updates.put("phone", phone);
         updates.put("photoUrl", googlePhotoUrl); // Saving the Google-hosted link
 
-        db.collection("users").document(uid)
-                .set(updates, SetOptions.merge())
+        FirestoreMeter.getInstance().write("EmployeeProfileActivity.saveFirestoreData", 1,
+                        db.collection("users").document(uid).set(updates, SetOptions.merge()))
                 .addOnSuccessListener(new OnSuccessListener<Void>() {
                     @Override
                     public void onSuccess(Void aVoid) {
@@ -4,11 +4,11 @@ import android.Manifest;
 import android.annotation.SuppressLint;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.graphics.RectF;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.MediaStore;
 import android.util.Log;
-import android.util.Size;
 import android.view.View;
 import android.widget.Toast;
 
@@ -18,30 +18,28 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.camera.core.CameraSelector;
 import androidx.camera.core.ImageAnalysis;
-import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
+import androidx.camera.core.UseCase;
+import androidx.camera.core.UseCaseGroup;
+import androidx.camera.core.ViewPort;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.mlkit.vision.barcode.BarcodeScanner;
-import com.google.mlkit.vision.barcode.BarcodeScannerOptions;
-import com.google.mlkit.vision.barcode.BarcodeScanning;
-import com.google.mlkit.vision.barcode.common.Barcode;
-import com.google.mlkit.vision.common.InputImage;
 import com.inout.app.databinding.ActivityEmployeeQrScanBinding;
-import com.inout.app.utils.EncryptionHelper;
+import com.inout.app.utils.EnrollmentQr;
 import com.inout.app.utils.FirebaseManager;
-
-import org.json.JSONObject;
+import com.inout.app.utils.GalleryQrReader;
+import com.inout.app.utils.QrDecoder;
+import com.inout.app.utils.TenantConfig;
 
 import java.io.IOException;
+import java.security.GeneralSecurityException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
-@androidx.camera.core.ExperimentalGetImage
 public class EmployeeQrScanActivity extends AppCompatActivity {
 
     private static final String TAG = "EmployeeQrScanActivity";
@@ -49,8 +47,12 @@ public class EmployeeQrScanActivity extends AppCompatActivity {
 
     private ActivityEmployeeQrScanBinding binding;
     private ExecutorService cameraExecutor;
-    private BarcodeScanner scanner;
-    private boolean isProcessing = false;
+    private QrDecoder frameDecoder;
+    private volatile boolean isProcessing = false;
+
+    private ProcessCameraProvider cameraProvider;
+    private ImageAnalysis imageAnalysis;
+    private QrFrameAnalyzer frameAnalyzer;
 
     // NEW: Launcher for picking an image from Gallery
     private final ActivityResultLauncher<Intent> galleryLauncher = registerForActivityResult(
@@ -72,11 +74,7 @@ public class EmployeeQrScanActivity extends AppCompatActivity {
 
         cameraExecutor = Executors.newSingleThreadExecutor();
 
-        // Initialize Barcode Scanner
-        BarcodeScannerOptions options = new BarcodeScannerOptions.Builder()
-                .setBarcodeFormats(Barcode.FORMAT_QR_CODE)
-                .build();
-        scanner = BarcodeScanning.getClient(options);
+        frameDecoder = QrDecoder.create(QrDecoder.DEFAULT_BACKEND);
 
         if (allPermissionsGranted()) {
             startCamera();
@@ -98,8 +96,9 @@ public class EmployeeQrScanActivity extends AppCompatActivity {
 
         cameraProviderFuture.addListener(() -> {
             try {
-                ProcessCameraProvider cameraProvider = cameraProviderFuture.get();
-                bindCameraUseCases(cameraProvider);
+                cameraProvider = cameraProviderFuture.get();
+                // After layout, so the viewport and the guide box position are known
+                binding.viewFinder.post(() -> bindCameraUseCases(cameraProvider));
             } catch (ExecutionException | InterruptedException e) {
                 Log.e(TAG, "Camera initialization failed.", e);
             }
@@ -107,78 +106,112 @@ public class EmployeeQrScanActivity extends AppCompatActivity {
     }
 
     private void bindCameraUseCases(@NonNull ProcessCameraProvider cameraProvider) {
+        if (isFinishing() || isDestroyed()) return;
+
         Preview preview = new Preview.Builder().build();
         preview.setSurfaceProvider(binding.viewFinder.getSurfaceProvider());
 
-        ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
-                .setTargetResolution(new Size(1280, 720))
+        QrFrameAnalyzer.DeviceProfile profile = QrFrameAnalyzer.DeviceProfile.forDevice(this);
+        imageAnalysis = new ImageAnalysis.Builder()
+                .setTargetResolution(profile.targetResolution)
                 .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
                 .build();
 
-        imageAnalysis.setAnalyzer(cameraExecutor, imageProxy -> processImageProxy(imageProxy));
+        frameAnalyzer = new QrFrameAnalyzer(frameDecoder, profile, this::onQrDecoded);
+        frameAnalyzer.setRegionOfInterest(guideBoxInViewFinder());
+        imageAnalysis.setAnalyzer(cameraExecutor, frameAnalyzer);
 
         CameraSelector cameraSelector = CameraSelector.DEFAULT_BACK_CAMERA;
 
         try {
             cameraProvider.unbindAll();
-            cameraProvider.bindToLifecycle(this, cameraSelector, preview, imageAnalysis);
+            cameraProvider.bindToLifecycle(this, cameraSelector, useCaseGroup(preview, imageAnalysis));
         } catch (Exception e) {
             Log.e(TAG, "Use case binding failed", e);
         }
     }
 
-    private void processImageProxy(ImageProxy imageProxy) {
-        if (isProcessing || imageProxy.getImage() == null) {
-            imageProxy.close();
-            return;
-        }
-
-        InputImage image = InputImage.fromMediaImage(imageProxy.getImage(), imageProxy.getImageInfo().getRotationDegrees());
+    /**
+     * Binding with the PreviewView's viewport makes each frame's crop rect match what is on screen,
+     * which is what the guide box position is relative to.
+     */
+    private UseCaseGroup useCaseGroup(UseCase... useCases) {
+        UseCaseGroup.Builder group = new UseCaseGroup.Builder();
+        ViewPort viewPort = binding.viewFinder.getViewPort();
+        if (viewPort != null) group.setViewPort(viewPort);
+        for (UseCase useCase : useCases) group.addUseCase(useCase);
+        return group.build();
+    }
 
-        scanner.process(image)
-                .addOnSuccessListener(barcodes -> {
-                    if (!barcodes.isEmpty()) {
-                        String rawValue = barcodes.get(0).getRawValue();
-                        if (rawValue != null) {
-                            handleScannedQr(rawValue);
-                        }
-                    }
-                })
-                .addOnFailureListener(e -> Log.e(TAG, "Camera QR analysis failed", e))
-                .addOnCompleteListener(task -> imageProxy.close());
+    /**
+     * @return The guide box relative to the camera preview, normalized to 0..1; null before layout.
+     */
+    private RectF guideBoxInViewFinder() {
+        View finder = binding.viewFinder;
+        View guide = binding.qrGuideBox;
+        if (finder.getWidth() == 0 || finder.getHeight() == 0) return null;
+        float left = guide.getLeft() - finder.getLeft();
+        float top = guide.getTop() - finder.getTop();
+        return new RectF(left / finder.getWidth(), top / finder.getHeight(),
+                (left + guide.getWidth()) / finder.getWidth(), (top + guide.getHeight()) / finder.getHeight());
     }
 
     /**
-     * NEW: Processes a QR code from a static image selected in the gallery.
+     * First decode from the camera: stop analysing (no more frames, no more heat) and check the payload.
      */
-    private void processGalleryImage(Uri uri) {
+    private void onQrDecoded(String rawValue) {
         if (isProcessing) return;
-        
+        if (cameraProvider != null && imageAnalysis != null) cameraProvider.unbind(imageAnalysis);
+        cameraExecutor.execute(() -> handleScannedQr(rawValue));
+    }
+
+    /**
+     * Rebinds analysis after a rejected code, so the employee can scan again.
+     */
+    private void resumeAnalysis() {
+        if (cameraProvider == null || imageAnalysis == null || frameAnalyzer == null) return;
+        // Before the bound check: a code decoded during a gallery scan latches the analyzer without unbinding it
+        frameAnalyzer.resume();
+        if (isFinishing() || isDestroyed() || cameraProvider.isBound(imageAnalysis)) return;
         try {
-            InputImage image = InputImage.fromFilePath(this, uri);
-            binding.progressBar.setVisibility(View.VISIBLE);
-            
-            scanner.process(image)
-                    .addOnSuccessListener(barcodes -> {
-                        if (!barcodes.isEmpty()) {
-                            String rawValue = barcodes.get(0).getRawValue();
-                            if (rawValue != null) {
-                                handleScannedQr(rawValue);
-                            }
-                        } else {
-                            binding.progressBar.setVisibility(View.GONE);
-                            Toast.makeText(this, "No QR code found in this image.", Toast.LENGTH_LONG).show();
-                        }
-                    })
-                    .addOnFailureListener(e -> {
-                        binding.progressBar.setVisibility(View.GONE);
-                        Toast.makeText(this, "Failed to read image.", Toast.LENGTH_SHORT).show();
-                    });
-        } catch (IOException e) {
-            Log.e(TAG, "Gallery image load failed", e);
+            cameraProvider.bindToLifecycle(this, CameraSelector.DEFAULT_BACK_CAMERA, useCaseGroup(imageAnalysis));
+        } catch (Exception e) {
+            Log.e(TAG, "Rebinding analysis failed", e);
         }
     }
 
+    /**
+     * Processes a QR code from a static image selected in the gallery. The image is read, scaled
+     * and retried on the camera executor (see GalleryQrReader), so large photos do not stall the UI.
+     */
+    private void processGalleryImage(Uri uri) {
+        if (isProcessing) return;
+        binding.progressBar.setVisibility(View.VISIBLE);
+
+        cameraExecutor.execute(() -> {
+            String rawValue;
+            try {
+                rawValue = GalleryQrReader.read(this, uri, frameDecoder);
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Gallery image load failed", e);
+                runOnUiThread(() -> {
+                    binding.progressBar.setVisibility(View.GONE);
+                    Toast.makeText(this, "Failed to read image.", Toast.LENGTH_SHORT).show();
+                });
+                return;
+            }
+
+            if (rawValue != null) {
+                handleScannedQr(rawValue);
+            } else {
+                runOnUiThread(() -> {
+                    binding.progressBar.setVisibility(View.GONE);
+                    Toast.makeText(this, "No QR code found in this image.", Toast.LENGTH_LONG).show();
+                });
+            }
+        });
+    }
+
     private void handleScannedQr(String encryptedPayload) {
         if (isProcessing) return;
         isProcessing = true;
@@ -188,27 +221,23 @@ public class EmployeeQrScanActivity extends AppCompatActivity {
             binding.tvStatus.setText("Processing registration...");
         });
 
-        // 1. Decrypt the payload
-        String decryptedJson = EncryptionHelper.getInstance(this).decryptQrPayload(encryptedPayload);
-
-        if (decryptedJson == null) {
+        // 1. Decrypt and parse the payload (compact format, or the JSON one of older admin apps)
+        TenantConfig config;
+        try {
+            config = EnrollmentQr.decode(this, encryptedPayload);
+        } catch (GeneralSecurityException e) {
+            Log.e(TAG, "QR payload rejected", e);
             resetScan("Invalid QR Code. Decryption failed.");
             return;
         }
+        String companyName = config.companyName;
 
         try {
-            // 2. Parse the payload Wrapper
-            JSONObject wrapper = new JSONObject(decryptedJson);
-            
-            String firebaseConfigStr = wrapper.getString("firebaseConfig");
-            String companyName = wrapper.getString("companyName");
-            String projectId = wrapper.getString("projectId");
-
-            // 3. Save Configuration locally
-            boolean success = FirebaseManager.setConfiguration(this, firebaseConfigStr, companyName, projectId);
+            // 2. Save Configuration locally
+            boolean success = FirebaseManager.setConfiguration(this, config.toGoogleServicesJson(), companyName, config.projectId);
 
             if (success) {
-                // 4. Initialize Firebase
+                // 3. Initialize Firebase
                 FirebaseManager.initialize(this);
                 
                 runOnUiThread(() -> {
@@ -221,7 +250,7 @@ public class EmployeeQrScanActivity extends AppCompatActivity {
             }
 
         } catch (Exception e) {
-            Log.e(TAG, "JSON Parsing error", e);
+            Log.e(TAG, "Saving the scanned configuration failed", e);
             resetScan("Unsupported QR format.");
         }
     }
@@ -232,6 +261,7 @@ public class EmployeeQrScanActivity extends AppCompatActivity {
             binding.progressBar.setVisibility(View.GONE);
             binding.tvStatus.setText(R.string.scan_qr_title);
             isProcessing = false; 
+            resumeAnalysis();
         });
     }
 
@@ -255,5 +285,6 @@ public class EmployeeQrScanActivity extends AppCompatActivity {
     protected void onDestroy() {
         super.onDestroy();
         cameraExecutor.shutdown();
+        frameDecoder.close();
     }
 }
\ No newline at end of file
@@ -8,14 +8,19 @@ import android.util.Log;
 import androidx.security.crypto.EncryptedSharedPreferences;
 import androidx.security.crypto.MasterKeys;
 
-import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
 import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
 /**
@@ -34,14 +39,39 @@ public class EncryptionHelper {
     private static final String KEY_COMPANY_NAME = "key_company_name";
     private static final String KEY_PROJECT_ID = "key_project_id";
     private static final String KEY_IS_SETUP_DONE = "key_is_setup_done";
+    private static final String KEY_SESSION_USER = "key_session_user";
+    private static final String KEY_TENANT_CONFIG = "key_tenant_config"; // TenantConfig stored form
+    private static final String KEY_KNOWN_TENANTS = "key_known_tenants"; // projectId -> {"company", "json"}
 
     // Hardcoded Key for QR Code Encryption (Shared between Admin & Employee logic)
     private static final String QR_ENCRYPTION_KEY = "InOutAppSuperSecretKey2026";
     private static final String AES_ALGORITHM = "AES";
+    private static final String GCM_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int GCM_IV_BYTES = 12;
+    private static final int GCM_TAG_BITS = 128;
 
     private final SharedPreferences sharedPreferences;
     private static EncryptionHelper instance;
 
+    // Parsed on first use and replaced by saveFirebaseConfig (guarded by this)
+    private TenantConfig tenantConfig;
+    private boolean tenantConfigLoaded = false;
+
+    /**
+     * A company this device has been set up for, kept so the admin can switch back to it.
+     */
+    public static final class KnownTenant {
+        public final String projectId;
+        public final String companyName;
+        public final String googleServicesJson;
+
+        KnownTenant(String projectId, String companyName, String googleServicesJson) {
+            this.projectId = projectId;
+            this.companyName = companyName;
+            this.googleServicesJson = googleServicesJson;
+        }
+    }
+
     private EncryptionHelper(Context context) {
         try {
             String masterKeyAlias = MasterKeys.getOrCreate(MasterKeys.AES256_GCM_SPEC);
@@ -80,36 +110,151 @@ public class EncryptionHelper {
         sharedPreferences.edit().remove(KEY_USER_ROLE).apply();
     }
 
-    public void saveFirebaseConfig(String jsonConfig, String companyName, String projectId) {
+    /**
+     * Last known users/{uid} document (JSON) written by SessionStore, so the dashboard can render before Firestore answers.
+     */
+    public void saveSessionUser(String userJson) {
+        sharedPreferences.edit().putString(KEY_SESSION_USER, userJson).apply();
+    }
+
+    public String getSessionUser() {
+        return sharedPreferences.getString(KEY_SESSION_USER, null);
+    }
+
+    public void clearSessionUser() {
+        sharedPreferences.edit().remove(KEY_SESSION_USER).apply();
+    }
+
+    /**
+     * Saves a new company configuration and replaces the cached TenantConfig.
+     *
+     * @throws JSONException If jsonConfig is not a usable google-services.json; nothing is saved then.
+     */
+    public synchronized TenantConfig saveFirebaseConfig(String jsonConfig, String companyName, String projectId)
+            throws JSONException {
+        TenantConfig config = TenantConfig.parse(jsonConfig, companyName, projectId);
+        JSONObject known = readKnownTenants();
+        known.put(projectId, new JSONObject().put("company", companyName).put("json", jsonConfig));
         sharedPreferences.edit()
+                .putString(KEY_KNOWN_TENANTS, known.toString())
                 .putString(KEY_FIREBASE_CONFIG, jsonConfig)
                 .putString(KEY_COMPANY_NAME, companyName)
                 .putString(KEY_PROJECT_ID, projectId)
+                .putString(KEY_TENANT_CONFIG, config.toStoredForm())
                 .putBoolean(KEY_IS_SETUP_DONE, true)
                 .apply();
+        tenantConfig = config;
+        tenantConfigLoaded = true;
+        return config;
+    }
+
+    /**
+     * The parsed configuration of the current company, or null before setup. Decrypted and parsed
+     * once per process; cheap to call from the main thread afterwards.
+     */
+    public synchronized TenantConfig getTenantConfig() {
+        if (!tenantConfigLoaded) {
+            tenantConfig = TenantConfig.fromStoredForm(sharedPreferences.getString(KEY_TENANT_CONFIG, null));
+            if (tenantConfig == null) tenantConfig = migrateTenantConfig();
+            tenantConfigLoaded = true;
+        }
+        return tenantConfig;
+    }
+
+    /**
+     * Installs set up before TenantConfig existed only have the raw JSON: parse it once and store the result.
+     */
+    private TenantConfig migrateTenantConfig() {
+        String jsonConfig = sharedPreferences.getString(KEY_FIREBASE_CONFIG, null);
+        String projectId = sharedPreferences.getString(KEY_PROJECT_ID, null);
+        if (jsonConfig == null || projectId == null) return null;
+        try {
+            TenantConfig config = TenantConfig.parse(jsonConfig,
+                    sharedPreferences.getString(KEY_COMPANY_NAME, "Unknown Company"), projectId);
+            sharedPreferences.edit().putString(KEY_TENANT_CONFIG, config.toStoredForm()).apply();
+            return config;
+        } catch (JSONException e) {
+            Log.e(TAG, "Saved Firebase config is unreadable", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return Every company set up on this device, the current one included.
+     */
+    public synchronized List<KnownTenant> getKnownTenants() {
+        List<KnownTenant> tenants = new ArrayList<>();
+        JSONObject known = readKnownTenants();
+        for (Iterator<String> it = known.keys(); it.hasNext(); ) {
+            String projectId = it.next();
+            JSONObject entry = known.optJSONObject(projectId);
+            if (entry != null) tenants.add(toKnownTenant(projectId, entry));
+        }
+        // Set up before companies were remembered
+        TenantConfig current = getTenantConfig();
+        if (current != null && !known.has(current.projectId)) {
+            tenants.add(0, new KnownTenant(current.projectId, current.companyName, getFirebaseConfig()));
+        }
+        return tenants;
     }
 
+    public synchronized KnownTenant getKnownTenant(String projectId) {
+        JSONObject entry = readKnownTenants().optJSONObject(projectId);
+        if (entry != null) {
+            return toKnownTenant(projectId, entry);
+        }
+        TenantConfig current = getTenantConfig();
+        if (current != null && current.projectId.equals(projectId)) {
+            return new KnownTenant(projectId, current.companyName, getFirebaseConfig());
+        }
+        return null;
+    }
+
+    private static KnownTenant toKnownTenant(String projectId, JSONObject entry) {
+        return new KnownTenant(projectId, entry.optString("company", "Unknown Company"), entry.optString("json"));
+    }
+
+    private JSONObject readKnownTenants() {
+        String raw = sharedPreferences.getString(KEY_KNOWN_TENANTS, null);
+        if (raw != null) {
+            try {
+                return new JSONObject(raw);
+            } catch (JSONException e) {
+                Log.e(TAG, "Discarding unreadable company list", e);
+            }
+        }
+        return new JSONObject();
+    }
+
+    /**
+     * The google-services.json as uploaded (or as rebuilt from a company QR). Everything else
+     * should use getTenantConfig().
+     */
     public String getFirebaseConfig() {
         return sharedPreferences.getString(KEY_FIREBASE_CONFIG, null);
     }
 
     public String getCompanyName() {
-        return sharedPreferences.getString(KEY_COMPANY_NAME, "Unknown Company");
+        TenantConfig config = getTenantConfig();
+        return config != null ? config.companyName : "Unknown Company";
     }
     
     public String getProjectId() {
-        return sharedPreferences.getString(KEY_PROJECT_ID, null);
+        TenantConfig config = getTenantConfig();
+        return config != null ? config.projectId : null;
     }
 
     public boolean isSetupDone() {
         return sharedPreferences.getBoolean(KEY_IS_SETUP_DONE, false);
     }
     
-    public void clearAllData() {
+    public synchronized void clearAllData() {
         sharedPreferences.edit().clear().apply();
+        tenantConfig = null;
+        tenantConfigLoaded = true;
     }
 
-    private SecretKeySpec generateKey() throws Exception {
+    private SecretKeySpec generateKey() throws GeneralSecurityException {
         final MessageDigest digest = MessageDigest.getInstance("SHA-256");
         byte[] bytes = QR_ENCRYPTION_KEY.getBytes(StandardCharsets.UTF_8);
         digest.update(bytes, 0, bytes.length);
@@ -117,19 +262,41 @@ public class EncryptionHelper {
         return new SecretKeySpec(key, AES_ALGORITHM);
     }
 
-    public String encryptQrPayload(String plainText) {
-        try {
-            SecretKeySpec key = generateKey();
-            Cipher cipher = Cipher.getInstance(AES_ALGORITHM);
-            cipher.init(Cipher.ENCRYPT_MODE, key);
-            byte[] encVal = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
-            return Base64.encodeToString(encVal, Base64.NO_WRAP);
-        } catch (Exception e) {
-            Log.e(TAG, "QR Encryption failed", e);
-            return null;
+    /**
+     * Authenticated encryption for the compact QR format (see EnrollmentQr).
+     *
+     * @return IV followed by the ciphertext and its tag.
+     */
+    public byte[] sealQrBytes(byte[] plain, byte[] associatedData) throws GeneralSecurityException {
+        byte[] iv = new byte[GCM_IV_BYTES];
+        new SecureRandom().nextBytes(iv);
+        Cipher cipher = Cipher.getInstance(GCM_TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, generateKey(), new GCMParameterSpec(GCM_TAG_BITS, iv));
+        cipher.updateAAD(associatedData);
+        byte[] sealed = cipher.doFinal(plain);
+
+        byte[] out = new byte[iv.length + sealed.length];
+        System.arraycopy(iv, 0, out, 0, iv.length);
+        System.arraycopy(sealed, 0, out, iv.length, sealed.length);
+        return out;
+    }
+
+    /**
+     * Reverses sealQrBytes for data[offset..]. Throws if the data was altered or sealed with another key.
+     */
+    public byte[] openQrBytes(byte[] data, int offset, byte[] associatedData) throws GeneralSecurityException {
+        if (data.length - offset < GCM_IV_BYTES + GCM_TAG_BITS / 8) {
+            throw new GeneralSecurityException("QR payload too short");
         }
+        Cipher cipher = Cipher.getInstance(GCM_TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, generateKey(), new GCMParameterSpec(GCM_TAG_BITS, data, offset, GCM_IV_BYTES));
+        cipher.updateAAD(associatedData);
+        return cipher.doFinal(data, offset + GCM_IV_BYTES, data.length - offset - GCM_IV_BYTES);
     }
 
+    /**
+     * Decrypts a company QR of the first format (AES/ECB, Base64), still accepted when scanning; see EnrollmentQr.
+     */
     public String decryptQrPayload(String encryptedText) {
         try {
             SecretKeySpec key = generateKey();
@@ -145,32 +312,11 @@ public class EncryptionHelper {
     }
 
     /**
-     * Extracts the Web Client ID (Type 3) from the saved Firebase JSON.
+     * The Web Client ID (Type 3) of the saved Firebase JSON.
      * This is required for Google Sign-In to work dynamically.
      */
     public String getWebClientId() {
-        String jsonConfig = getFirebaseConfig();
-        if (jsonConfig == null) return null;
-
-        try {
-            JSONObject root = new JSONObject(jsonConfig);
-            JSONArray clientArray = root.getJSONArray("client");
-            if (clientArray.length() > 0) {
-                JSONObject client = clientArray.getJSONObject(0);
-                JSONArray oauthClientArray = client.getJSONArray("oauth_client");
-
-                for (int i = 0; i < oauthClientArray.length(); i++) {
-                    JSONObject oauthClient = oauthClientArray.getJSONObject(i);
-                    int clientType = oauthClient.getInt("client_type");
-                    // Type 3 is the Web Client ID required for requestIdToken
-                    if (clientType == 3) {
-                        return oauthClient.getString("client_id");
-                    }
-                }
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error extracting Web Client ID", e);
-        }
-        return null; // Return null if not found
+        TenantConfig config = getTenantConfig();
+        return config != null ? config.webClientId : null; // Null if not found
     }
 }
\ No newline at end of file
@@ -0,0 +1,203 @@
+package com.inout.app.utils;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The company QR: what AdminQrFragment shows and EmployeeQrScanActivity reads.
+ *
+ * Version 2 (generated now): "IO2:" + Base45(0x02, IV, AES-GCM(raw deflate(fields))). The fields
+ * are only what TenantConfig needs, not the whole google-services.json, and Base45 keeps to the
+ * QR alphanumeric character set (5.5 bits per character instead of 8 in byte mode). The result is
+ * a much lower QR version than before, which low-end cameras read faster and more reliably.
+ *
+ * Version 1 (first releases, still accepted): Base64(AES/ECB(JSON)) where the JSON holds
+ * "firebaseConfig" (the full google-services.json), "companyName" and "projectId".
+ */
+public final class EnrollmentQr {
+
+    private static final String PREFIX = "IO2:";
+    private static final byte VERSION = 2;
+    private static final int MAX_FIELDS_BYTES = 4096; // Guards the inflater against corrupt input
+
+    private static final String BASE45_ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:";
+
+    private EnrollmentQr() {
+    }
+
+    /**
+     * @return The text to put in the QR code.
+     */
+    @NonNull
+    public static String encode(@NonNull Context context, @NonNull TenantConfig config) throws GeneralSecurityException {
+        byte[] fields = deflate(writeFields(config));
+        byte[] header = {VERSION};
+        byte[] sealed = EncryptionHelper.getInstance(context).sealQrBytes(fields, header);
+
+        byte[] payload = new byte[1 + sealed.length];
+        payload[0] = VERSION;
+        System.arraycopy(sealed, 0, payload, 1, sealed.length);
+        return PREFIX + base45Encode(payload);
+    }
+
+    /**
+     * Reads a scanned company QR of either version.
+     *
+     * @throws GeneralSecurityException If the code is not a company QR of this app or was altered.
+     */
+    @NonNull
+    public static TenantConfig decode(@NonNull Context context, @NonNull String scanned) throws GeneralSecurityException {
+        EncryptionHelper encryptionHelper = EncryptionHelper.getInstance(context);
+        if (!scanned.startsWith(PREFIX)) return decodeVersion1(encryptionHelper, scanned);
+
+        byte[] payload = base45Decode(scanned.substring(PREFIX.length()));
+        if (payload.length == 0 || payload[0] != VERSION) {
+            throw new GeneralSecurityException("Unsupported QR version");
+        }
+        byte[] fields = encryptionHelper.openQrBytes(payload, 1, new byte[]{VERSION});
+        try {
+            return readFields(inflate(fields));
+        } catch (IOException | DataFormatException e) {
+            throw new GeneralSecurityException("Unreadable QR payload", e);
+        }
+    }
+
+    private static TenantConfig decodeVersion1(EncryptionHelper encryptionHelper, String scanned)
+            throws GeneralSecurityException {
+        String decryptedJson = encryptionHelper.decryptQrPayload(scanned);
+        if (decryptedJson == null) throw new GeneralSecurityException("Decryption failed");
+        try {
+            JSONObject wrapper = new JSONObject(decryptedJson);
+            return TenantConfig.parse(wrapper.getString("firebaseConfig"),
+                    wrapper.getString("companyName"), wrapper.getString("projectId"));
+        } catch (JSONException e) {
+            throw new GeneralSecurityException("Unsupported QR format", e);
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Fields
+    // ---------------------------------------------------------------------------------------
+
+    private static byte[] writeFields(TenantConfig config) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(config.companyName);
+            out.writeUTF(config.projectId);
+            out.writeUTF(config.apiKey);
+            out.writeUTF(config.applicationId);
+            out.writeUTF(config.storageBucket != null ? config.storageBucket : "");
+            out.writeUTF(config.webClientId != null ? config.webClientId : "");
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // In-memory stream
+        }
+        return bytes.toByteArray();
+    }
+
+    private static TenantConfig readFields(byte[] fields) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(fields));
+        String companyName = in.readUTF();
+        String projectId = in.readUTF();
+        String apiKey = in.readUTF();
+        String applicationId = in.readUTF();
+        String storageBucket = in.readUTF();
+        String webClientId = in.readUTF();
+        return new TenantConfig(companyName, projectId, apiKey, applicationId,
+                storageBucket.isEmpty() ? null : storageBucket, webClientId.isEmpty() ? null : webClientId);
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        deflater.setInput(input);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(input.length);
+        byte[] buffer = new byte[512];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] input) throws DataFormatException {
+        Inflater inflater = new Inflater(true);
+        // "nowrap" needs one extra dummy byte after the compressed data
+        byte[] padded = new byte[input.length + 1];
+        System.arraycopy(input, 0, padded, 0, input.length);
+        inflater.setInput(padded);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(input.length * 2);
+        byte[] buffer = new byte[512];
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated data");
+                }
+                out.write(buffer, 0, n);
+                if (out.size() > MAX_FIELDS_BYTES) throw new DataFormatException("Data too large");
+            }
+        } finally {
+            inflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Base45 (RFC 9285)
+    // ---------------------------------------------------------------------------------------
+
+    static String base45Encode(byte[] data) {
+        StringBuilder out = new StringBuilder((data.length + 1) / 2 * 3);
+        for (int i = 0; i + 1 < data.length; i += 2) {
+            int n = (data[i] & 0xFF) * 256 + (data[i + 1] & 0xFF);
+            out.append(BASE45_ALPHABET.charAt(n % 45))
+                    .append(BASE45_ALPHABET.charAt(n / 45 % 45))
+                    .append(BASE45_ALPHABET.charAt(n / 2025));
+        }
+        if (data.length % 2 == 1) {
+            int n = data[data.length - 1] & 0xFF;
+            out.append(BASE45_ALPHABET.charAt(n % 45)).append(BASE45_ALPHABET.charAt(n / 45));
+        }
+        return out.toString();
+    }
+
+    static byte[] base45Decode(String text) throws GeneralSecurityException {
+        if (text.length() % 3 == 1) throw new GeneralSecurityException("Invalid Base45 length");
+        ByteArrayOutputStream out = new ByteArrayOutputStream(text.length() / 3 * 2 + 1);
+        for (int i = 0; i < text.length(); i += 3) {
+            int c = base45Digit(text.charAt(i));
+            int d = base45Digit(text.charAt(i + 1));
+            if (i + 2 < text.length()) {
+                int n = c + d * 45 + base45Digit(text.charAt(i + 2)) * 2025;
+                if (n > 0xFFFF) throw new GeneralSecurityException("Invalid Base45 data");
+                out.write(n >> 8);
+                out.write(n & 0xFF);
+            } else {
+                int n = c + d * 45;
+                if (n > 0xFF) throw new GeneralSecurityException("Invalid Base45 data");
+                out.write(n);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static int base45Digit(char c) throws GeneralSecurityException {
+        int digit = BASE45_ALPHABET.indexOf(c);
+        if (digit < 0) throw new GeneralSecurityException("Invalid Base45 character");
+        return digit;
+    }
+}
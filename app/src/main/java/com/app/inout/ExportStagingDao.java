@@ -0,0 +1,38 @@
+package com.inout.app.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+/**
+ * Disk access for the rows staged by org exports. Blocking; called from ExportWorker only.
+ */
+@Dao
+public abstract class ExportStagingDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void upsertAll(List<ExportStagingEntity> entities);
+
+    @Query("SELECT * FROM export_staging WHERE jobId = :jobId AND employeeId = :employeeId"
+            + " AND timestamp >= :startMillis AND timestamp < :endMillis ORDER BY timestamp DESC")
+    public abstract List<ExportStagingEntity> getForEmployeeInRange(String jobId, String employeeId, long startMillis, long endMillis);
+
+    @Query("SELECT DISTINCT employeeId FROM export_staging WHERE jobId = :jobId AND employeeId IS NOT NULL"
+            + " AND timestamp >= :startMillis AND timestamp < :endMillis ORDER BY employeeId")
+    public abstract List<String> getEmployeeIdsInRange(String jobId, long startMillis, long endMillis);
+
+    @Query("DELETE FROM export_staging WHERE jobId = :jobId AND timestamp >= :startMillis AND timestamp < :endMillis")
+    public abstract void deleteRange(String jobId, long startMillis, long endMillis);
+
+    @Query("DELETE FROM export_staging WHERE jobId = :jobId")
+    public abstract void deleteJob(String jobId);
+
+    /**
+     * Drops rows of jobs that never finished (cancelled, uninstalled work), older than the cutoff.
+     */
+    @Query("DELETE FROM export_staging WHERE stagedAt < :cutoffMillis")
+    public abstract void deleteStagedBefore(long cutoffMillis);
+}
@@ -0,0 +1,113 @@
+package com.inout.app.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+
+import com.inout.app.models.AttendanceRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An 'attendance' document downloaded by one org export (see ExportWorker), kept apart from the
+ * shared attendance cache: the CSV must contain exactly what the server returned for the job,
+ * not optimistic local copies, documents deleted since, or rows of another company.
+ *
+ * The record fields are declared here rather than inherited from AttendanceEntity, so a change
+ * to the cache table never alters this one without a migration of its own.
+ *
+ * Rows are dropped month by month as they are written, and with the job when it ends.
+ */
+@Entity(tableName = "export_staging",
+        primaryKeys = {"jobId", "recordId"},
+        indices = {@Index({"jobId", "employeeId", "timestamp"}), @Index("stagedAt")})
+public class ExportStagingEntity {
+
+    @NonNull
+    public String jobId = "";
+
+    @NonNull
+    public String recordId = "";
+
+    public long stagedAt;
+
+    public String employeeId;
+    public String employeeName;
+    public String date;             // YYYY-MM-DD
+
+    public String checkInTime;
+    public double checkInLat;
+    public double checkInLng;
+
+    public String checkOutTime;
+    public double checkOutLat;
+    public double checkOutLng;
+
+    public String totalHours;
+    public String locationName;
+    public float distanceMeters;
+
+    public List<String> movementLog;
+    public String lastVerifiedLocationId;
+
+    public boolean fingerprintVerified;
+    public boolean gpsVerified;
+
+    public long timestamp;
+
+    public long lastPunchAt;
+    public int punchCount;
+
+    public static ExportStagingEntity fromRecord(@NonNull String jobId, @NonNull String recordId, AttendanceRecord record) {
+        ExportStagingEntity entity = new ExportStagingEntity();
+        entity.jobId = jobId;
+        entity.recordId = recordId;
+        entity.stagedAt = System.currentTimeMillis();
+        entity.employeeId = record.getEmployeeId();
+        entity.employeeName = record.getEmployeeName();
+        entity.date = record.getDate();
+        entity.checkInTime = record.getCheckInTime();
+        entity.checkInLat = record.getCheckInLat();
+        entity.checkInLng = record.getCheckInLng();
+        entity.checkOutTime = record.getCheckOutTime();
+        entity.checkOutLat = record.getCheckOutLat();
+        entity.checkOutLng = record.getCheckOutLng();
+        entity.totalHours = record.getTotalHours();
+        entity.locationName = record.getLocationName();
+        entity.distanceMeters = record.getDistanceMeters();
+        entity.movementLog = record.getMovementLog();
+        entity.lastVerifiedLocationId = record.getLastVerifiedLocationId();
+        entity.fingerprintVerified = record.isFingerprintVerified();
+        entity.gpsVerified = record.isGpsVerified();
+        entity.timestamp = record.getTimestamp();
+        entity.lastPunchAt = record.getLastPunchAt();
+        entity.punchCount = record.getPunchCount();
+        return entity;
+    }
+
+    public AttendanceRecord toRecord() {
+        AttendanceRecord record = new AttendanceRecord();
+        record.setRecordId(recordId);
+        record.setEmployeeId(employeeId);
+        record.setEmployeeName(employeeName);
+        record.setDate(date);
+        record.setCheckInTime(checkInTime);
+        record.setCheckInLat(checkInLat);
+        record.setCheckInLng(checkInLng);
+        record.setCheckOutTime(checkOutTime);
+        record.setCheckOutLat(checkOutLat);
+        record.setCheckOutLng(checkOutLng);
+        record.setTotalHours(totalHours);
+        record.setLocationName(locationName);
+        record.setDistanceMeters(distanceMeters);
+        record.setMovementLog(movementLog != null ? movementLog : new ArrayList<>());
+        record.setLastVerifiedLocationId(lastVerifiedLocationId);
+        record.setFingerprintVerified(fingerprintVerified);
+        record.setGpsVerified(gpsVerified);
+        record.setTimestamp(timestamp);
+        record.setLastPunchAt(lastPunchAt);
+        record.setPunchCount(punchCount);
+        return record;
+    }
+}
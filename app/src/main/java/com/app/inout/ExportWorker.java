@@ -0,0 +1,608 @@
+package com.inout.app;
+
+import android.Manifest;
+import android.app.Activity;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.content.pm.ServiceInfo;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.app.ActivityCompat;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.ForegroundInfo;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.inout.app.data.AttendanceRepository;
+import com.inout.app.data.ExportStagingDao;
+import com.inout.app.data.ExportStagingEntity;
+import com.inout.app.data.FirestoreMeter;
+import com.inout.app.data.InOutDatabase;
+import com.inout.app.data.MonthlySummaryRepository;
+import com.inout.app.models.AttendanceRecord;
+import com.inout.app.models.MonthlySummary;
+import com.inout.app.models.User;
+import com.inout.app.utils.CsvWriter;
+import com.inout.app.utils.FirebaseManager;
+import com.inout.app.utils.TimeUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable CSV export job, run by WorkManager so it survives leaving the screen and process death.
+ *
+ * Two kinds of job share one code path:
+ * - Employee export: one employee, one or more months (summary document first, raw records as fallback).
+ * - Org export (no employee ID): every employee, one or more months. Each month is paged into the
+ *   job's own rows of the 'export_staging' table with timestamp cursors, then streamed employee by
+ *   employee from disk. The shared attendance cache is never read: it may hold optimistic punches,
+ *   documents deleted since, or another company's rows.
+ *
+ * The CSV is appended to {fileName}.csv.part. After every month (employee export), every page and
+ * every employee (org export) the writer is flushed and a checkpoint (file length + position) is
+ * stored. A restarted job truncates the part file to the last checkpoint and continues from there.
+ * Progress is shown in a notification; the finished file is offered through the FileProvider share flow.
+ */
+public class ExportWorker extends Worker {
+
+    private static final String TAG = "ExportWorker";
+    private static final String CHANNEL_ID = "exports";
+    private static final String PREFS_NAME = "export_jobs";
+    private static final int PAGE_SIZE = 500;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long STAGING_MAX_AGE_MS = TimeUnit.DAYS.toMillis(7);   // Rows of cancelled jobs
+
+    // Input
+    private static final String KEY_JOB_NAME = "job_name";
+    private static final String KEY_EMPLOYEE_ID = "employee_id";
+    private static final String KEY_FIRST_MONTH = "first_month";
+    private static final String KEY_MONTH_COUNT = "month_count";
+    private static final String KEY_FILE_NAME = "file_name";
+
+    // Progress / output
+    private static final String KEY_PROGRESS = "progress";
+    private static final String KEY_FILE_PATH = "file_path";
+    private static final String KEY_ERROR = "error";
+
+    private final SharedPreferences checkpoints;
+    private String jobName;
+    private String title;
+
+    public interface JobListener {
+        void onProgress(String message);
+        void onComplete(File file);
+        void onError(String errorMsg);
+    }
+
+    public ExportWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+        this.checkpoints = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Enqueueing (UI side)
+    // ---------------------------------------------------------------------------------------
+
+    /**
+     * Queues an export of one employee's months. Re-tapping export while the same file is
+     * still being produced does not start a second job.
+     *
+     * The job and the file are keyed on the employee ID: two employees with the same name get
+     * jobs and files of their own.
+     *
+     * @return The unique job name, for observe().
+     */
+    public static String enqueueEmployeeExport(Context context, String employeeId, String employeeName,
+                                               Calendar firstMonth, int monthCount) {
+        String range = CsvExportHelper.rangeLabel(firstMonth, monthCount);
+        String fileName = CsvExportHelper.safeFileName(employeeName) + "_"
+                + CsvExportHelper.safeFileName(employeeId) + "_" + range;
+        return enqueue(context, "employee_" + employeeId + "_" + range, fileName,
+                new Data.Builder().putString(KEY_EMPLOYEE_ID, employeeId), firstMonth, monthCount);
+    }
+
+    /**
+     * Queues an org-wide export: every employee's full months (absent days included) in one CSV.
+     *
+     * @return The unique job name, for observe().
+     */
+    public static String enqueueOrgExport(Context context, Calendar firstMonth, int monthCount) {
+        String fileName = "All_Employees_" + CsvExportHelper.rangeLabel(firstMonth, monthCount);
+        return enqueue(context, fileName, fileName, new Data.Builder(), firstMonth, monthCount);
+    }
+
+    /**
+     * @param jobKey   Identifies what is exported; equal keys share one job (ExistingWorkPolicy.KEEP).
+     * @param fileName Name of the CSV under cache/reports/, without extension; must be a safe file name.
+     */
+    private static String enqueue(Context context, String jobKey, String fileName, Data.Builder input,
+                                  Calendar firstMonth, int monthCount) {
+        requestNotificationPermission(context);
+
+        String jobName = "export_" + jobKey;
+        Data data = input
+                .putString(KEY_JOB_NAME, jobName)
+                .putString(KEY_FILE_NAME, fileName)
+                .putLong(KEY_FIRST_MONTH, TimeUtils.getMonthStart(firstMonth).getTimeInMillis())
+                .putInt(KEY_MONTH_COUNT, monthCount)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(ExportWorker.class)
+                .setInputData(data)
+                .setConstraints(new Constraints.Builder().setRequiredNetworkType(NetworkType.CONNECTED).build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(jobName, ExistingWorkPolicy.KEEP, request);
+        return jobName;
+    }
+
+    private static void requestNotificationPermission(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.TIRAMISU || !(context instanceof Activity)) return;
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions((Activity) context,
+                    new String[]{Manifest.permission.POST_NOTIFICATIONS}, 0);
+        }
+    }
+
+    /**
+     * Follows a queued job while the owner (usually the view lifecycle) is alive. On success the
+     * share sheet opens right away and the "export ready" notification is withdrawn.
+     * A job still running from an earlier tap is followed too; an older finished run is ignored.
+     */
+    public static void observe(LifecycleOwner owner, Context context, String jobName, JobListener listener) {
+        Context appContext = context.getApplicationContext();
+        LiveData<List<WorkInfo>> infos = WorkManager.getInstance(appContext).getWorkInfosForUniqueWorkLiveData(jobName);
+
+        infos.observe(owner, new Observer<List<WorkInfo>>() {
+            private UUID followed;
+
+            @Override
+            public void onChanged(List<WorkInfo> list) {
+                for (WorkInfo info : list) {
+                    if (!info.getState().isFinished()) {
+                        followed = info.getId();
+                        String message = info.getProgress().getString(KEY_PROGRESS);
+                        if (message != null) listener.onProgress(message);
+                    } else if (info.getId().equals(followed)) {
+                        infos.removeObserver(this);
+                        String path = info.getOutputData().getString(KEY_FILE_PATH);
+                        if (info.getState() == WorkInfo.State.SUCCEEDED && path != null) {
+                            NotificationManagerCompat.from(appContext).cancel(resultNotificationId(jobName));
+                            listener.onComplete(new File(path));
+                        } else {
+                            String error = info.getOutputData().getString(KEY_ERROR);
+                            listener.onError(error != null ? error : "Export cancelled");
+                        }
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Job
+    // ---------------------------------------------------------------------------------------
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Data input = getInputData();
+        jobName = input.getString(KEY_JOB_NAME);
+        String fileName = input.getString(KEY_FILE_NAME);
+        String employeeId = input.getString(KEY_EMPLOYEE_ID);
+        int monthCount = input.getInt(KEY_MONTH_COUNT, 1);
+        Calendar firstMonth = Calendar.getInstance();
+        firstMonth.setTimeInMillis(input.getLong(KEY_FIRST_MONTH, 0));
+        title = "Exporting " + fileName.replace("_", " ");
+
+        File folder = new File(getApplicationContext().getCacheDir(), "reports");
+        if (!folder.exists()) folder.mkdirs();
+        File part = new File(folder, fileName + ".csv.part");
+
+        try {
+            Checkpoint checkpoint = Checkpoint.load(checkpoints, getId().toString());
+            boolean resume = checkpoint.bytes > 0 && part.length() >= checkpoint.bytes;
+            if (resume) {
+                // Drop rows written after the last checkpoint; they are produced again below
+                try (RandomAccessFile file = new RandomAccessFile(part, "rw")) {
+                    file.setLength(checkpoint.bytes);
+                }
+                Log.d(TAG, jobName + " resuming at month " + checkpoint.monthIndex);
+            } else {
+                checkpoint = new Checkpoint();
+            }
+            updateProgress(resume ? "Resuming..." : "Starting...");
+
+            boolean finished;
+            try (CsvWriter writer = new CsvWriter(part, resume)) {
+                if (!resume) {
+                    writer.writeRow(employeeId != null ? CsvExportHelper.CSV_HEADER : orgHeader());
+                    save(writer, part, checkpoint);
+                }
+                finished = employeeId != null
+                        ? writeEmployeeMonths(writer, part, checkpoint, employeeId, firstMonth, monthCount)
+                        : writeOrgMonths(writer, part, checkpoint, firstMonth, monthCount);
+            }
+            if (!finished) {
+                // Stopped by WorkManager (constraints lost, cancelled): the checkpoint is on disk
+                return Result.retry();
+            }
+
+            File done = new File(folder, fileName + ".csv");
+            if (done.exists()) done.delete();
+            if (!part.renameTo(done)) throw new IOException("Could not finalize " + done.getName());
+
+            Checkpoint.clear(checkpoints, getId().toString());
+            dropStaging();
+            notifyResult(CsvExportHelper.buildShareIntent(getApplicationContext(), done), "Export ready", "Tap to share " + done.getName());
+            return Result.success(new Data.Builder().putString(KEY_FILE_PATH, done.getAbsolutePath()).build());
+
+        } catch (ExecutionException | IOException e) {
+            Log.e(TAG, jobName + " failed (attempt " + getRunAttemptCount() + ")", e);
+            if (getRunAttemptCount() + 1 < MAX_ATTEMPTS) return Result.retry();
+
+            Checkpoint.clear(checkpoints, getId().toString());
+            dropStaging();
+            part.delete();
+            notifyResult(null, "Export failed", fileName.replace("_", " "));
+            return Result.failure(new Data.Builder().putString(KEY_ERROR, "Export failed: " + e.getMessage()).build());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+    }
+
+    /**
+     * One unit per month. Reads the month's summary document (one read) and falls back to the
+     * raw records for months recorded before summaries existed or whose summary is incomplete.
+     *
+     * @return false if the job was stopped before the last month.
+     */
+    private boolean writeEmployeeMonths(CsvWriter writer, File part, Checkpoint checkpoint, String employeeId,
+                                        Calendar firstMonth, int monthCount)
+            throws ExecutionException, InterruptedException, IOException {
+        Context context = getApplicationContext();
+
+        for (int i = checkpoint.monthIndex; i < monthCount; i++) {
+            if (isStopped()) return false;
+
+            Calendar month = (Calendar) firstMonth.clone();
+            month.add(Calendar.MONTH, i);
+            if (month.getTimeInMillis() > System.currentTimeMillis()) break; // Nothing recorded yet
+
+            Map<String, AttendanceRecord> logs;
+            MonthlySummary summary = MonthlySummaryRepository.getInstance().loadSummary(employeeId, month);
+            if (summary != null && summary.isComplete()) {
+                logs = summary.toRecordsByDate();
+            } else {
+                // Server-confirmed (see loadMonthRecords), so the back-filled summary may be marked complete
+                List<AttendanceRecord> records = AttendanceRepository.getInstance(context).loadMonthRecords(employeeId, month);
+                if (!records.isEmpty()) {
+                    MonthlySummaryRepository.getInstance().saveFromRecords(employeeId, month, records);
+                }
+                logs = new HashMap<>();
+                for (AttendanceRecord record : records) {
+                    logs.put(record.getDate(), record);
+                }
+            }
+
+            for (AttendanceRecord record : AttendanceReportManager.generateFullMonthList(logs, month)) {
+                writer.writeRow(CsvExportHelper.toFields(record));
+            }
+
+            checkpoint.nextMonth();
+            save(writer, part, checkpoint);
+            updateProgress("Month " + (i + 1) + " / " + monthCount);
+        }
+        return true;
+    }
+
+    /**
+     * Per month: page the 'attendance' documents into this job's staging rows (checkpoint per
+     * page), then stream the month employee by employee from disk (checkpoint per employee), so
+     * memory holds one page or one employee-month at a time, never the whole organisation. A month's
+     * staging rows are dropped once it is written.
+     *
+     * @return false if the job was stopped before the last month.
+     */
+    private boolean writeOrgMonths(CsvWriter writer, File part, Checkpoint checkpoint,
+                                   Calendar firstMonth, int monthCount)
+            throws ExecutionException, InterruptedException, IOException {
+        FirebaseFirestore db = FirebaseManager.firestore();
+        ExportStagingDao dao = InOutDatabase.getInstance(getApplicationContext()).exportStagingDao();
+        String jobId = getId().toString();
+        dao.deleteStagedBefore(System.currentTimeMillis() - STAGING_MAX_AGE_MS);
+
+        // Employee directory (names + employees with no record at all in a month)
+        Map<String, String> names = new HashMap<>();
+        QuerySnapshot users = Tasks.await(FirestoreMeter.getInstance().read("ExportWorker.writeOrgMonths",
+                db.collection("users").whereEqualTo("role", "employee").get()));
+        for (DocumentSnapshot doc : users.getDocuments()) {
+            User user = doc.toObject(User.class);
+            if (user != null && user.getEmployeeId() != null) {
+                names.put(user.getEmployeeId(), user.getName());
+            }
+        }
+
+        for (int i = checkpoint.monthIndex; i < monthCount; i++) {
+            Calendar month = (Calendar) firstMonth.clone();
+            month.add(Calendar.MONTH, i);
+            long start = month.getTimeInMillis();
+            if (start > System.currentTimeMillis()) break;
+            Calendar next = (Calendar) month.clone();
+            next.add(Calendar.MONTH, 1);
+            long end = next.getTimeInMillis();
+            String label = (monthCount > 1 ? "Month " + (i + 1) + " / " + monthCount + ": " : "");
+
+            // 1. Page the month into the staging table. A resumed job restarts at the last staged
+            //    timestamp; re-reading documents that share it is harmless (upsert).
+            if (!checkpoint.downloaded) {
+                Query monthQuery = db.collection("attendance")
+                        .whereGreaterThanOrEqualTo("timestamp", Math.max(start, checkpoint.cursor))
+                        .whereLessThan("timestamp", end)
+                        .orderBy("timestamp");
+
+                DocumentSnapshot cursor = null;
+                int staged = 0;
+                while (true) {
+                    if (isStopped()) return false;
+
+                    Query pageQuery = cursor == null ? monthQuery.limit(PAGE_SIZE) : monthQuery.startAfter(cursor).limit(PAGE_SIZE);
+                    QuerySnapshot page = Tasks.await(FirestoreMeter.getInstance().read("ExportWorker.writeOrgMonths", pageQuery.get()));
+
+                    List<ExportStagingEntity> entities = new ArrayList<>(page.size());
+                    for (DocumentSnapshot doc : page.getDocuments()) {
+                        AttendanceRecord record = doc.toObject(AttendanceRecord.class);
+                        if (record == null || record.getEmployeeId() == null) continue;
+                        entities.add(ExportStagingEntity.fromRecord(jobId, doc.getId(), record));
+                    }
+                    dao.upsertAll(entities);
+                    staged += page.size();
+
+                    if (page.size() < PAGE_SIZE) break;
+                    cursor = page.getDocuments().get(page.size() - 1);
+                    Long timestamp = cursor.getLong("timestamp");
+                    if (timestamp != null) checkpoint.cursor = timestamp;
+                    save(writer, part, checkpoint);
+                    updateProgress(label + "Downloaded " + staged + " records...");
+                }
+                checkpoint.downloaded = true;
+                save(writer, part, checkpoint);
+            }
+
+            // 2. Stream one employee-month at a time, sorted by employee ID
+            SortedSet<String> employeeIds = new TreeSet<>(names.keySet());
+            employeeIds.addAll(dao.getEmployeeIdsInRange(jobId, start, end));
+            if (checkpoint.lastEmployeeId != null) {
+                employeeIds = employeeIds.tailSet(checkpoint.lastEmployeeId + "\0"); // Strictly after
+            }
+
+            int written = 0;
+            for (String employeeId : employeeIds) {
+                if (isStopped()) return false;
+
+                Map<String, AttendanceRecord> logs = new HashMap<>();
+                String name = names.get(employeeId);
+                for (ExportStagingEntity entity : dao.getForEmployeeInRange(jobId, employeeId, start, end)) {
+                    logs.put(entity.date, entity.toRecord());
+                    if (name == null) name = entity.employeeName; // Employee removed since
+                }
+
+                for (AttendanceRecord record : AttendanceReportManager.generateFullMonthList(logs, month)) {
+                    String[] fields = CsvExportHelper.toFields(record);
+                    String[] row = new String[fields.length + 2];
+                    row[0] = employeeId;
+                    row[1] = name;
+                    System.arraycopy(fields, 0, row, 2, fields.length);
+                    writer.writeRow(row);
+                }
+
+                checkpoint.lastEmployeeId = employeeId;
+                save(writer, part, checkpoint);
+                if (++written % 25 == 0) {
+                    updateProgress(label + "Writing " + written + " / " + employeeIds.size() + " employees...");
+                }
+            }
+
+            checkpoint.nextMonth();
+            save(writer, part, checkpoint);
+            dao.deleteRange(jobId, start, end);
+        }
+        return true;
+    }
+
+    /**
+     * Drops the org export rows of this job, if any.
+     */
+    private void dropStaging() {
+        InOutDatabase.getInstance(getApplicationContext()).exportStagingDao().deleteJob(getId().toString());
+    }
+
+    private static String[] orgHeader() {
+        String[] header = new String[CsvExportHelper.CSV_HEADER.length + 2];
+        header[0] = "EmployeeId";
+        header[1] = "EmployeeName";
+        System.arraycopy(CsvExportHelper.CSV_HEADER, 0, header, 2, CsvExportHelper.CSV_HEADER.length);
+        return header;
+    }
+
+    /**
+     * Flushes the rows written so far and records the position that matches them.
+     */
+    private void save(CsvWriter writer, File part, Checkpoint checkpoint) throws IOException {
+        writer.flush();
+        checkpoint.bytes = part.length();
+        checkpoint.save(checkpoints, getId().toString());
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Notifications
+    // ---------------------------------------------------------------------------------------
+
+    private void updateProgress(String message) {
+        setProgressAsync(new Data.Builder().putString(KEY_PROGRESS, message).build());
+
+        Context context = getApplicationContext();
+        createChannel(context);
+        PendingIntent cancel = WorkManager.getInstance(context).createCancelPendingIntent(getId());
+        NotificationCompat.Builder notification = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.stat_sys_download)
+                .setContentTitle(title)
+                .setContentText(message)
+                .setProgress(0, 0, true)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .addAction(android.R.drawable.ic_menu_close_clear_cancel, "Cancel", cancel);
+
+        int id = progressNotificationId(jobName);
+        ForegroundInfo info = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                ? new ForegroundInfo(id, notification.build(), ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC)
+                : new ForegroundInfo(id, notification.build());
+        // Foreground keeps long org exports alive on aggressive OEM battery savers
+        ListenableFuture<Void> foreground = setForegroundAsync(info);
+        foreground.addListener(() -> {
+            try {
+                foreground.get();
+            } catch (ExecutionException e) {
+                // Not allowed from the background on Android 12+; the job still runs, just less protected
+                Log.w(TAG, "Could not promote export to foreground", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, Runnable::run);
+    }
+
+    private void notifyResult(@Nullable Intent shareIntent, String titleText, String text) {
+        Context context = getApplicationContext();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(context, Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) {
+            return;
+        }
+        createChannel(context);
+
+        NotificationCompat.Builder notification = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(shareIntent != null ? android.R.drawable.stat_sys_download_done : android.R.drawable.stat_notify_error)
+                .setContentTitle(titleText)
+                .setContentText(text)
+                .setAutoCancel(true);
+        if (shareIntent != null) {
+            notification.setContentIntent(PendingIntent.getActivity(context, resultNotificationId(jobName), shareIntent,
+                    PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT));
+        }
+        NotificationManagerCompat.from(context).notify(resultNotificationId(jobName), notification.build());
+    }
+
+    private static void createChannel(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) return;
+        NotificationManager manager = context.getSystemService(NotificationManager.class);
+        if (manager.getNotificationChannel(CHANNEL_ID) == null) {
+            manager.createNotificationChannel(new NotificationChannel(CHANNEL_ID, "Report exports", NotificationManager.IMPORTANCE_LOW));
+        }
+    }
+
+    private static int progressNotificationId(String jobName) {
+        return jobName.hashCode();
+    }
+
+    private static int resultNotificationId(String jobName) {
+        // Separate from the progress notification, which WorkManager removes when the job ends
+        return jobName.hashCode() + 1;
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Checkpoint
+    // ---------------------------------------------------------------------------------------
+
+    /**
+     * Resume position of one job, stored in SharedPreferences under the WorkManager job ID
+     * (stable across retries and process restarts).
+     */
+    private static class Checkpoint {
+        long bytes;              // Length of the part file that matches this position
+        int monthIndex;          // Months fully written
+        long cursor;             // Org export: last staged timestamp of the current month
+        boolean downloaded;      // Org export: current month fully staged in Room
+        String lastEmployeeId;   // Org export: last employee written for the current month
+
+        void nextMonth() {
+            monthIndex++;
+            cursor = 0;
+            downloaded = false;
+            lastEmployeeId = null;
+        }
+
+        static Checkpoint load(SharedPreferences prefs, String id) {
+            Checkpoint checkpoint = new Checkpoint();
+            checkpoint.bytes = prefs.getLong(id + "_bytes", 0);
+            checkpoint.monthIndex = prefs.getInt(id + "_month", 0);
+            checkpoint.cursor = prefs.getLong(id + "_cursor", 0);
+            checkpoint.downloaded = prefs.getBoolean(id + "_downloaded", false);
+            checkpoint.lastEmployeeId = prefs.getString(id + "_employee", null);
+            return checkpoint;
+        }
+
+        void save(SharedPreferences prefs, String id) {
+            // commit(), not apply(): the checkpoint must be on disk before more rows are written
+            prefs.edit()
+                    .putLong(id + "_bytes", bytes)
+                    .putInt(id + "_month", monthIndex)
+                    .putLong(id + "_cursor", cursor)
+                    .putBoolean(id + "_downloaded", downloaded)
+                    .putString(id + "_employee", lastEmployeeId)
+                    .commit();
+        }
+
+        static void clear(SharedPreferences prefs, String id) {
+            prefs.edit()
+                    .remove(id + "_bytes")
+                    .remove(id + "_month")
+                    .remove(id + "_cursor")
+                    .remove(id + "_downloaded")
+                    .remove(id + "_employee")
+                    .apply();
+        }
+    }
+}
@@ -1,51 +1,71 @@
 package com.inout.app.utils;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.FirebaseFirestore;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Manages the dynamic initialization of the Firebase backend.
  * This allows the app to connect to different Firebase projects based on the
  * configuration uploaded by the Admin or scanned by the Employee.
+ *
+ * Every company gets a named FirebaseApp ("tenant_" + projectId) with its own Firestore cache and
+ * signed-in Auth user. Apps stay initialized for the life of the process, so switching back to a
+ * company used earlier costs nothing, and its user is still signed in. Code must reach Firebase
+ * through firestore() / auth() rather than the default instances.
  */
 public class FirebaseManager {
 
     private static final String TAG = "FirebaseManager";
+    private static final String APP_NAME_PREFIX = "tenant_";
+
+    /**
+     * Drops state that belongs to the previous company. Called on the main thread after every switch.
+     */
+    public interface TenantSwitchListener {
+        void onTenantSwitched(@NonNull String projectId);
+    }
+
+    private static final List<TenantSwitchListener> switchListeners = new ArrayList<>();
+
+    @Nullable
+    private static volatile FirebaseApp currentApp;
+
+    // Local emulators set by instrumentation tests (useEmulator), and the apps already pointed at them
+    @Nullable
+    private static String emulatorHost;
+    private static int firestoreEmulatorPort;
+    private static int authEmulatorPort;
+    private static final Set<String> emulatedApps = new HashSet<>();
 
     /**
      * Initializes Firebase using the configuration stored in EncryptionHelper.
-     * This is called automatically by InOutApplication.
+     * Called by InOutApplication on start, and again after a new configuration was saved:
+     * if the company changed, the new one becomes current without restarting the process.
      */
     public static void initialize(Context context) {
-        String jsonConfig = EncryptionHelper.getInstance(context).getFirebaseConfig();
+        TenantConfig config = EncryptionHelper.getInstance(context).getTenantConfig();
 
-        if (jsonConfig != null && !jsonConfig.isEmpty()) {
+        if (config != null) {
             try {
-                // If a config exists locally, use it to initialize Firebase
-                FirebaseOptions options = buildOptionsFromJson(jsonConfig);
-                
-                // Check if the default app is already initialized
-                if (!FirebaseApp.getApps(context).isEmpty()) {
-                    FirebaseApp app = FirebaseApp.getInstance();
-                    // If the project ID has changed, we might need to re-init (rare in this flow, usually requires restart)
-                    // For now, we assume the app process starts fresh or we just log it.
-                    if (!app.getOptions().getApplicationId().equals(options.getApplicationId())) {
-                         Log.w(TAG, "Firebase already initialized with different config. Creating named app not supported in this simple flow yet.");
-                    }
-                } else {
-                    FirebaseApp.initializeApp(context, options);
-                    Log.d(TAG, "Firebase initialized successfully with DYNAMIC config.");
-                }
+                activate(context, config);
             } catch (Exception e) {
-                Log.e(TAG, "Failed to parse saved Firebase config.", e);
+                Log.e(TAG, "Failed to initialize Firebase with the saved config.", e);
             }
         } else {
             Log.d(TAG, "No dynamic Firebase config found. Waiting for setup.");
@@ -53,17 +73,12 @@ public class FirebaseManager {
     }
 
     /**
-     * Forces re-initialization of Firebase with a new JSON string.
-     * Used when Admin switches companies or Employee scans a new QR.
-     * Note: Changing the DEFAULT app usually requires an app restart or using named apps.
-     * For this implementation, we will try to re-init if list is empty, otherwise we rely on restart prompt.
+     * Saves a new configuration (validating the JSON first).
+     * Used when Admin switches companies or Employee scans a new QR; call initialize() afterwards.
      */
     public static boolean setConfiguration(Context context, String jsonConfig, String companyName, String projectId) {
         try {
-            // Validate JSON by trying to build options
-            buildOptionsFromJson(jsonConfig);
-
-            // Save to encrypted storage
+            // Validates the JSON, then saves it to encrypted storage and replaces the cached TenantConfig
             EncryptionHelper.getInstance(context).saveFirebaseConfig(jsonConfig, companyName, projectId);
             
             Log.d(TAG, "New Firebase configuration saved successfully.");
@@ -75,32 +90,129 @@ public class FirebaseManager {
     }
 
     /**
-     * Parses the google-services.json content string and builds FirebaseOptions.
+     * Makes a company set up earlier on this device current again, without re-uploading or
+     * re-scanning its configuration.
+     *
+     * @return False if the company is unknown or its saved config is unusable.
      */
-    private static FirebaseOptions buildOptionsFromJson(String jsonString) throws Exception {
-        JSONObject root = new JSONObject(jsonString);
-        
-        // Extract project info
-        JSONObject projectInfo = root.getJSONObject("project_info");
-        String projectId = projectInfo.getString("project_id");
-        String storageBucket = projectInfo.getString("storage_bucket");
-
-        // Extract client info (usually the first client in the array is the Android one)
-        JSONArray clientArray = root.getJSONArray("client");
-        JSONObject client = clientArray.getJSONObject(0);
-        JSONObject clientInfo = client.getJSONObject("client_info");
-        String applicationId = clientInfo.getString("mobilesdk_app_id");
-
-        // Extract API Key
-        JSONArray apiKeyArray = client.getJSONArray("api_key");
-        JSONObject apiKeyObject = apiKeyArray.getJSONObject(0);
-        String apiKey = apiKeyObject.getString("current_key");
-
-        return new FirebaseOptions.Builder()
-                .setApiKey(apiKey)
-                .setApplicationId(applicationId)
-                .setProjectId(projectId)
-                .setStorageBucket(storageBucket)
-                .build();
+    public static boolean switchTo(Context context, String projectId) {
+        EncryptionHelper storage = EncryptionHelper.getInstance(context);
+        EncryptionHelper.KnownTenant tenant = storage.getKnownTenant(projectId);
+        if (tenant == null) return false;
+        if (!setConfiguration(context, tenant.googleServicesJson, tenant.companyName, projectId)) return false;
+        initialize(context);
+        return true;
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Current tenant
+    // ---------------------------------------------------------------------------------------
+
+    /**
+     * @throws IllegalStateException If no company is configured yet.
+     */
+    @NonNull
+    public static FirebaseApp getApp() {
+        FirebaseApp app = currentApp;
+        if (app == null) throw new IllegalStateException("Firebase is not configured yet");
+        return app;
+    }
+
+    /**
+     * @return The app of a company used in this process.
+     * @throws IllegalStateException If that company's app was never initialized.
+     */
+    @NonNull
+    public static FirebaseApp getApp(@NonNull String projectId) {
+        return FirebaseApp.getInstance(APP_NAME_PREFIX + projectId);
+    }
+
+    @NonNull
+    public static FirebaseFirestore firestore() {
+        return FirebaseFirestore.getInstance(getApp());
+    }
+
+    @NonNull
+    public static FirebaseAuth auth() {
+        return FirebaseAuth.getInstance(getApp());
+    }
+
+    /**
+     * @return The project of the current company, or null before setup.
+     */
+    @Nullable
+    public static String getCurrentProjectId() {
+        FirebaseApp app = currentApp;
+        return app != null ? app.getOptions().getProjectId() : null;
+    }
+
+    /**
+     * Registers a process-wide listener (repositories, registries); never removed.
+     */
+    public static void addTenantSwitchListener(@NonNull TenantSwitchListener listener) {
+        synchronized (switchListeners) {
+            switchListeners.add(listener);
+        }
+    }
+
+    /**
+     * Points the Firestore and Auth of every company at the local emulators. For instrumentation
+     * tests; call before initialize(). An app created earlier against the real backend (e.g. by
+     * InOutApplication) is re-created by the next initialize().
+     */
+    @VisibleForTesting
+    public static synchronized void useEmulator(@NonNull String host, int firestorePort, int authPort) {
+        emulatorHost = host;
+        firestoreEmulatorPort = firestorePort;
+        authEmulatorPort = authPort;
+    }
+
+    private static synchronized void activate(Context context, TenantConfig config) {
+        FirebaseApp previous = currentApp;
+        FirebaseApp app = appFor(context.getApplicationContext(), config);
+        if (previous == app) return;
+
+        currentApp = app;
+        Log.d(TAG, "Firebase tenant is now " + config.projectId);
+        if (previous == null) return; // First initialization: nothing to reset
+
+        Runnable notify = () -> {
+            List<TenantSwitchListener> listeners;
+            synchronized (switchListeners) {
+                listeners = new ArrayList<>(switchListeners);
+            }
+            for (TenantSwitchListener listener : listeners) listener.onTenantSwitched(config.projectId);
+        };
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            notify.run();
+        } else {
+            new Handler(Looper.getMainLooper()).post(notify);
+        }
+    }
+
+    /**
+     * @return The named app of this company, initializing it on first use. An app whose options
+     *         no longer match the config (e.g. a re-downloaded google-services.json) is replaced.
+     */
+    private static FirebaseApp appFor(Context context, TenantConfig config) {
+        String name = APP_NAME_PREFIX + config.projectId;
+        FirebaseOptions options = config.toFirebaseOptions();
+        for (FirebaseApp app : FirebaseApp.getApps(context)) {
+            if (!app.getName().equals(name)) continue;
+            boolean backendMatches = emulatorHost == null || emulatedApps.contains(name);
+            if (app.getOptions().equals(options) && backendMatches) return app;
+            Log.w(TAG, (backendMatches ? "Config of " + config.projectId + " changed" : "Emulator set for " + config.projectId)
+                    + ", re-creating its Firebase app");
+            app.delete();
+            break;
+        }
+        FirebaseApp app = FirebaseApp.initializeApp(context, options, name);
+        if (emulatorHost != null) {
+            // Must happen before the first use of either instance
+            FirebaseFirestore.getInstance(app).useEmulator(emulatorHost, firestoreEmulatorPort);
+            FirebaseAuth.getInstance(app).useEmulator(emulatorHost, authEmulatorPort);
+            emulatedApps.add(name);
+        }
+        return app;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,520 @@
+package com.inout.app.data;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentActivity;
+import androidx.fragment.app.FragmentManager;
+import androidx.navigation.fragment.NavHostFragment;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.Blob;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.GeoPoint;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.inout.app.utils.CsvWriter;
+import com.inout.app.utils.TimeUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Counts what the app costs in Firestore: document reads, document writes, listener events and
+ * the approximate size of the documents read, per screen and call site, with daily totals on disk.
+ *
+ * Call sites report through read() / write() (one-shot tasks), record() (transactions) and
+ * ListenerHub (snapshot listeners). The call site is a "Class.method" label; the screen is the
+ * Activity or Fragment in front when the call was made, or BACKGROUND for worker threads.
+ *
+ * Reads follow the billing rules: results served from the local cache are free, a query costs one
+ * read per returned document (at least one), a listener event one read per changed document.
+ *
+ * In debuggable builds every visit to a screen is also checked against its ReadBudget, and a visit
+ * that goes over is logged (with its most expensive call sites) and toasted once.
+ */
+public class FirestoreMeter {
+
+    private static final String TAG = "FirestoreMeter";
+    private static final String PREFS = "firestore_meter";
+    private static final int KEEP_DAYS = 31;
+    private static final long FLUSH_DELAY_MS = 10_000;
+
+    public static final String BACKGROUND = "Background";
+
+    static final String[] CSV_HEADER = {"Date", "Screen", "CallSite", "Reads", "Writes", "ListenerEvents", "Bytes"};
+
+    private static FirestoreMeter instance;
+
+    private final SharedPreferences prefs;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService exportExecutor = Executors.newSingleThreadExecutor();
+
+    // Counts not yet written to prefs, keyed like the prefs entries: date \t screen \t site
+    private final Map<String, long[]> unsaved = new HashMap<>();
+    private final Runnable flushTask = this::flush;
+    private boolean flushScheduled = false;
+
+    private final Context context;
+    private final boolean checkBudgets;
+
+    private volatile String currentScreen = BACKGROUND;
+
+    // The current visit to currentScreen, guarded by this (see ReadBudget)
+    private String visitScreen = BACKGROUND;
+    @Nullable
+    private ReadBudget visitBudget;
+    private final Map<String, long[]> visitSites = new HashMap<>();
+    private long visitReads;
+    private long visitWrites;
+    private boolean visitReported;
+
+    private static final int READS = 0;
+    private static final int WRITES = 1;
+    private static final int EVENTS = 2;
+    private static final int BYTES = 3;
+
+    /**
+     * Totals of one screen / call site on one day.
+     */
+    public static final class Usage {
+        public final String date;
+        public final String screen;
+        public final String site;
+        public final long reads;
+        public final long writes;
+        public final long listenerEvents;
+        public final long bytes;
+
+        Usage(String date, String screen, String site, long[] counts) {
+            this.date = date;
+            this.screen = screen;
+            this.site = site;
+            this.reads = counts[READS];
+            this.writes = counts[WRITES];
+            this.listenerEvents = counts[EVENTS];
+            this.bytes = counts[BYTES];
+        }
+    }
+
+    public interface ExportCallback {
+        void onExported(File file);
+
+        void onError(String errorMsg);
+    }
+
+    private FirestoreMeter(Application app) {
+        context = app;
+        prefs = app.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        checkBudgets = (app.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        app.registerActivityLifecycleCallbacks(new ScreenTracker());
+        prune();
+    }
+
+    /**
+     * Called once from InOutApplication, before any Firestore access.
+     */
+    public static synchronized void initialize(Application app) {
+        if (instance == null) {
+            instance = new FirestoreMeter(app);
+        }
+    }
+
+    public static synchronized FirestoreMeter getInstance() {
+        if (instance == null) {
+            throw new IllegalStateException("FirestoreMeter.initialize() was not called");
+        }
+        return instance;
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Recording
+    // ---------------------------------------------------------------------------------------
+
+    /**
+     * Meters a one-shot get() of a document or query once it succeeds. Returns the same task.
+     */
+    public <T> Task<T> read(@NonNull String site, @NonNull Task<T> task) {
+        String screen = screenOfCaller();
+        return task.addOnSuccessListener(result -> {
+            if (result instanceof QuerySnapshot) {
+                QuerySnapshot query = (QuerySnapshot) result;
+                if (query.getMetadata().isFromCache()) return;
+                long bytes = 0;
+                for (DocumentSnapshot doc : query.getDocuments()) bytes += estimateSize(doc);
+                add(screen, site, Math.max(1, query.size()), 0, 0, bytes);
+            } else if (result instanceof DocumentSnapshot) {
+                DocumentSnapshot doc = (DocumentSnapshot) result;
+                if (doc.getMetadata().isFromCache()) return;
+                add(screen, site, 1, 0, 0, estimateSize(doc));
+            }
+        });
+    }
+
+    /**
+     * Meters a write (set, update, delete, batch commit) of the given number of documents once it
+     * is acknowledged. Returns the same task.
+     */
+    public <T> Task<T> write(@NonNull String site, int documents, @NonNull Task<T> task) {
+        String screen = screenOfCaller();
+        return task.addOnSuccessListener(result -> add(screen, site, 0, documents, 0, 0));
+    }
+
+    /**
+     * Meters one snapshot listener event (see ListenerHub). Events served from the local cache are free.
+     *
+     * @param initial True for the first server event after attaching, which reads the whole result.
+     */
+    void recordListenerEvent(@NonNull String screen, @NonNull String site, @NonNull Object snapshot, boolean initial) {
+        long reads = 0;
+        long bytes = 0;
+        if (snapshot instanceof QuerySnapshot) {
+            QuerySnapshot query = (QuerySnapshot) snapshot;
+            if (initial) {
+                reads = Math.max(1, query.size()); // An empty result still costs one read
+                for (DocumentSnapshot doc : query.getDocuments()) bytes += estimateSize(doc);
+            } else if (!query.getMetadata().isFromCache()) {
+                for (DocumentChange change : query.getDocumentChanges()) {
+                    reads++;
+                    if (change.getType() != DocumentChange.Type.REMOVED) bytes += estimateSize(change.getDocument());
+                }
+            }
+        } else if (snapshot instanceof DocumentSnapshot) {
+            DocumentSnapshot doc = (DocumentSnapshot) snapshot;
+            // Echoes of this device's own pending writes are not billed
+            if (initial || (!doc.getMetadata().isFromCache() && !doc.getMetadata().hasPendingWrites())) {
+                reads = 1;
+                bytes = estimateSize(doc);
+            }
+        }
+        add(screen, site, reads, 0, 1, bytes);
+    }
+
+    /**
+     * Meters work whose cost is only known to the caller, e.g. the reads and writes of a transaction.
+     */
+    public void record(@NonNull String site, int reads, int writes) {
+        add(screenOfCaller(), site, reads, writes, 0, 0);
+    }
+
+    /**
+     * @return The Activity or Fragment in front, or BACKGROUND when called off the main thread.
+     */
+    @NonNull
+    public String screenOfCaller() {
+        return Looper.myLooper() == Looper.getMainLooper() ? currentScreen : BACKGROUND;
+    }
+
+    private synchronized void add(String screen, String site, long reads, long writes, long events, long bytes) {
+        String key = TimeUtils.getCurrentDateId() + "\t" + screen + "\t" + site;
+        long[] counts = unsaved.get(key);
+        if (counts == null) {
+            counts = new long[4];
+            unsaved.put(key, counts);
+        }
+        counts[READS] += reads;
+        counts[WRITES] += writes;
+        counts[EVENTS] += events;
+        counts[BYTES] += bytes;
+
+        if (!flushScheduled) {
+            flushScheduled = true;
+            mainHandler.postDelayed(flushTask, FLUSH_DELAY_MS);
+        }
+
+        if (checkBudgets && screen.equals(visitScreen)) checkVisit(site, reads, writes);
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Read budgets (debuggable builds only)
+    // ---------------------------------------------------------------------------------------
+
+    private synchronized void startVisit(String screen) {
+        visitScreen = screen;
+        visitBudget = ReadBudget.forScreen(screen);
+        visitSites.clear();
+        visitReads = 0;
+        visitWrites = 0;
+        visitReported = false;
+    }
+
+    private void checkVisit(String site, long reads, long writes) {
+        if (visitBudget == null) return;
+        long[] counts = visitSites.get(site);
+        if (counts == null) {
+            counts = new long[2];
+            visitSites.put(site, counts);
+        }
+        counts[READS] += reads;
+        counts[WRITES] += writes;
+        visitReads += reads;
+        visitWrites += writes;
+
+        if (visitReported || (visitReads <= visitBudget.reads && visitWrites <= visitBudget.writes)) return;
+        visitReported = true;
+
+        List<Map.Entry<String, long[]>> sites = new ArrayList<>(visitSites.entrySet());
+        Collections.sort(sites, (a, b) -> Long.compare(b.getValue()[READS], a.getValue()[READS]));
+        StringBuilder message = new StringBuilder()
+                .append("Over budget: ").append(visitScreen)
+                .append(" read ").append(visitReads).append(" (budget ").append(visitBudget.reads).append(")")
+                .append(", wrote ").append(visitWrites).append(" (budget ").append(visitBudget.writes).append(")");
+        for (Map.Entry<String, long[]> entry : sites) {
+            message.append("\n  ").append(entry.getKey()).append(": ")
+                    .append(entry.getValue()[READS]).append(" reads, ").append(entry.getValue()[WRITES]).append(" writes");
+        }
+        Log.e(TAG, message.toString());
+
+        String screen = visitScreen;
+        mainHandler.post(() -> Toast.makeText(context,
+                "Firestore budget exceeded on " + screen + " (see logcat)", Toast.LENGTH_LONG).show());
+    }
+
+    /**
+     * Adds the unsaved counts to the daily totals on disk.
+     */
+    private synchronized void flush() {
+        flushScheduled = false;
+        if (unsaved.isEmpty()) return;
+
+        SharedPreferences.Editor editor = prefs.edit();
+        for (Map.Entry<String, long[]> entry : unsaved.entrySet()) {
+            long[] total = parse(prefs.getString(entry.getKey(), null));
+            long[] delta = entry.getValue();
+            for (int i = 0; i < total.length; i++) total[i] += delta[i];
+            editor.putString(entry.getKey(), total[READS] + "," + total[WRITES] + "," + total[EVENTS] + "," + total[BYTES]);
+        }
+        editor.apply();
+        unsaved.clear();
+    }
+
+    /**
+     * Forgets every count, saved or not, and restarts the current visit. For instrumentation tests
+     * that measure one flow at a time.
+     */
+    @VisibleForTesting
+    synchronized void reset() {
+        mainHandler.removeCallbacks(flushTask);
+        flushScheduled = false;
+        unsaved.clear();
+        prefs.edit().clear().commit();
+        startVisit(visitScreen);
+    }
+
+    private void prune() {
+        Calendar cutoff = Calendar.getInstance();
+        cutoff.add(Calendar.DAY_OF_YEAR, -KEEP_DAYS);
+        String oldestKept = TimeUtils.formatTimestampToDate(cutoff.getTimeInMillis());
+
+        SharedPreferences.Editor editor = prefs.edit();
+        for (String key : prefs.getAll().keySet()) {
+            if (key.substring(0, key.indexOf('\t')).compareTo(oldestKept) < 0) editor.remove(key);
+        }
+        editor.apply();
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Reading
+    // ---------------------------------------------------------------------------------------
+
+    /**
+     * @return Days with recorded usage (yyyy-MM-dd), newest first.
+     */
+    public List<String> getDays() {
+        flush();
+        TreeSet<String> days = new TreeSet<>(Collections.reverseOrder());
+        for (String key : prefs.getAll().keySet()) days.add(key.substring(0, key.indexOf('\t')));
+        return new ArrayList<>(days);
+    }
+
+    /**
+     * @return The usage of one day, most reads first.
+     */
+    public List<Usage> getDay(@NonNull String dateId) {
+        flush();
+        List<Usage> usages = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            String[] parts = entry.getKey().split("\t", 3);
+            if (parts.length == 3 && parts[0].equals(dateId)) {
+                usages.add(new Usage(parts[0], parts[1], parts[2], parse((String) entry.getValue())));
+            }
+        }
+        Collections.sort(usages, (a, b) -> Long.compare(b.reads, a.reads));
+        return usages;
+    }
+
+    /**
+     * Writes every stored day to a CSV file off the main thread; the callback runs on the main thread.
+     */
+    public void exportCsv(@NonNull File file, @NonNull ExportCallback callback) {
+        List<String> days = getDays();
+        List<Usage> rows = new ArrayList<>();
+        for (String day : days) rows.addAll(getDay(day));
+
+        exportExecutor.execute(() -> {
+            try (CsvWriter writer = new CsvWriter(file)) {
+                writer.writeRow(CSV_HEADER);
+                for (Usage usage : rows) {
+                    writer.writeRow(usage.date, usage.screen, usage.site, String.valueOf(usage.reads),
+                            String.valueOf(usage.writes), String.valueOf(usage.listenerEvents), String.valueOf(usage.bytes));
+                }
+                mainHandler.post(() -> callback.onExported(file));
+            } catch (IOException e) {
+                Log.e(TAG, "Usage export failed", e);
+                mainHandler.post(() -> callback.onError("Could not write the usage report."));
+            }
+        });
+    }
+
+    private static long[] parse(@Nullable String value) {
+        long[] counts = new long[4];
+        if (value == null) return counts;
+        String[] parts = value.split(",");
+        for (int i = 0; i < counts.length && i < parts.length; i++) {
+            try {
+                counts[i] = Long.parseLong(parts[i]);
+            } catch (NumberFormatException ignored) {
+                // Corrupt entry: count from zero
+            }
+        }
+        return counts;
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Document size (Firestore storage size rules)
+    // ---------------------------------------------------------------------------------------
+
+    static long estimateSize(DocumentSnapshot doc) {
+        long size = nameSize(doc.getReference()) + 32;
+        Map<String, Object> data = doc.getData();
+        if (data != null) size += mapSize(data);
+        return size;
+    }
+
+    private static long nameSize(DocumentReference ref) {
+        long size = 16;
+        for (String segment : ref.getPath().split("/")) size += segment.length() + 1;
+        return size;
+    }
+
+    private static long mapSize(Map<?, ?> map) {
+        long size = 0;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            size += String.valueOf(entry.getKey()).length() + 1 + valueSize(entry.getValue());
+        }
+        return size;
+    }
+
+    private static long valueSize(@Nullable Object value) {
+        if (value == null || value instanceof Boolean) return 1;
+        if (value instanceof String) return ((String) value).length() + 1;
+        if (value instanceof Number) return 8;
+        if (value instanceof GeoPoint) return 16;
+        if (value instanceof Blob) return ((Blob) value).toBytes().length;
+        if (value instanceof DocumentReference) return nameSize((DocumentReference) value);
+        if (value instanceof Map) return mapSize((Map<?, ?>) value);
+        if (value instanceof List) {
+            long size = 0;
+            for (Object item : (List<?>) value) size += valueSize(item);
+            return size;
+        }
+        return 8; // Timestamp
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Screen tracking
+    // ---------------------------------------------------------------------------------------
+
+    /**
+     * Keeps currentScreen on the resumed Activity, or the resumed Fragment inside it. Screens also
+     * take over when they are created, so the reads they start in onCreate / onViewCreated count
+     * towards them rather than towards the screen that opened them.
+     */
+    private class ScreenTracker implements Application.ActivityLifecycleCallbacks {
+
+        private final FragmentManager.FragmentLifecycleCallbacks fragmentCallbacks =
+                new FragmentManager.FragmentLifecycleCallbacks() {
+                    @Override
+                    public void onFragmentPreCreated(@NonNull FragmentManager fm, @NonNull Fragment f,
+                                                     @Nullable Bundle savedInstanceState) {
+                        if (!(f instanceof NavHostFragment)) show(f.getClass().getSimpleName(), f.requireActivity());
+                    }
+
+                    @Override
+                    public void onFragmentResumed(@NonNull FragmentManager fm, @NonNull Fragment f) {
+                        if (!(f instanceof NavHostFragment)) show(f.getClass().getSimpleName(), f.requireActivity());
+                    }
+                };
+
+        // Activity that currentScreen belongs to
+        private String screenActivity = "";
+
+        private void show(String screen, Activity activity) {
+            screenActivity = activity.getClass().getSimpleName();
+            if (screen.equals(currentScreen)) return;
+            currentScreen = screen;
+            startVisit(screen);
+        }
+
+        @Override
+        public void onActivityCreated(@NonNull Activity activity, @Nullable Bundle savedInstanceState) {
+            if (activity instanceof FragmentActivity) {
+                ((FragmentActivity) activity).getSupportFragmentManager()
+                        .registerFragmentLifecycleCallbacks(fragmentCallbacks, true);
+            }
+            show(activity.getClass().getSimpleName(), activity);
+        }
+
+        @Override
+        public void onActivityResumed(@NonNull Activity activity) {
+            // Fragments resume after their Activity and overwrite this with the visible page. Coming back
+            // to the Activity whose Fragment is already current continues that Fragment's visit.
+            if (!activity.getClass().getSimpleName().equals(screenActivity)) {
+                show(activity.getClass().getSimpleName(), activity);
+            }
+        }
+
+        @Override
+        public void onActivityPaused(@NonNull Activity activity) {
+            flush();
+        }
+
+        @Override
+        public void onActivityStarted(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+        }
+
+        @Override
+        public void onActivityDestroyed(@NonNull Activity activity) {
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.inout.app.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads a QR code from a gallery image (a forwarded company_qr.png, a screenshot, a photo of a
+ * monitor). Off the main thread only.
+ *
+ * The image is decoded downsampled so a 12 MP photo never reaches memory at full size, then
+ * converted to one grey plane. Passes, cheapest first, until one decodes:
+ * the whole image; the whole image at half size (moiré and oversized screenshots); overlapping
+ * quarter tiles and the centre (a small code in a big photo); and for small images, double size.
+ */
+public final class GalleryQrReader {
+
+    private static final String TAG = "GalleryQrReader";
+
+    private static final int MAX_SIDE = 1600;        // Longest side after downsampling
+    private static final int SMALL_SIDE = 800;       // Below this the image is also tried at double size
+    private static final int MIN_HALF_SIDE = 200;    // Smallest side worth trying at half size
+    private static final float TILE_SHARE = 0.6f;    // Tile side as share of the image (tiles overlap)
+    private static final long DECODE_TIMEOUT_MS = 5_000;
+
+    private GalleryQrReader() {
+    }
+
+    /**
+     * @return The text of the QR code, or null if none was found.
+     * @throws IOException If the image cannot be opened or is not an image.
+     */
+    @WorkerThread
+    @Nullable
+    public static String read(@NonNull Context context, @NonNull Uri uri, @NonNull QrDecoder decoder) throws IOException {
+        Luma image = load(context, uri);
+
+        String value = decode(decoder, image, "full");
+        if (value != null) return value;
+
+        if (Math.max(image.width, image.height) >= 2 * MIN_HALF_SIDE) {
+            value = decode(decoder, image.halved(), "half");
+            if (value != null) return value;
+        }
+
+        int tileWidth = (int) (image.width * TILE_SHARE);
+        int tileHeight = (int) (image.height * TILE_SHARE);
+        int[][] origins = {
+                {(image.width - tileWidth) / 2, (image.height - tileHeight) / 2},
+                {0, 0},
+                {image.width - tileWidth, 0},
+                {0, image.height - tileHeight},
+                {image.width - tileWidth, image.height - tileHeight}};
+        for (int[] origin : origins) {
+            value = decode(decoder, image.crop(origin[0], origin[1], tileWidth, tileHeight), "tile");
+            if (value != null) return value;
+        }
+
+        if (Math.max(image.width, image.height) < SMALL_SIDE) {
+            value = decode(decoder, image.doubled(), "double");
+            if (value != null) return value;
+        }
+        return null;
+    }
+
+    @Nullable
+    private static String decode(QrDecoder decoder, Luma image, String pass) {
+        String value = QrDecoder.decodeBlocking(decoder, image.toNv21(), image.width, image.height, DECODE_TIMEOUT_MS);
+        if (value != null) Log.d(TAG, "Decoded on pass " + pass + " (" + image.width + "x" + image.height + ")");
+        return value;
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Loading
+    // ---------------------------------------------------------------------------------------
+
+    private static Luma load(Context context, Uri uri) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = open(context, uri)) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) throw new IOException("Not an image: " + uri);
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = 1;
+        while (Math.max(bounds.outWidth, bounds.outHeight) / (options.inSampleSize * 2) >= MAX_SIDE) {
+            options.inSampleSize *= 2;
+        }
+        Bitmap bitmap;
+        try (InputStream in = open(context, uri)) {
+            bitmap = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (bitmap == null) throw new IOException("Could not decode " + uri);
+
+        // inSampleSize only halves; finish the way down to MAX_SIDE
+        int longest = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (longest > MAX_SIDE) {
+            float scale = (float) MAX_SIDE / longest;
+            Bitmap scaled = Bitmap.createScaledBitmap(bitmap,
+                    Math.max(2, Math.round(bitmap.getWidth() * scale)), Math.max(2, Math.round(bitmap.getHeight() * scale)), true);
+            if (scaled != bitmap) bitmap.recycle();
+            bitmap = scaled;
+        }
+
+        try {
+            return Luma.of(bitmap);
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    private static InputStream open(Context context, Uri uri) throws IOException {
+        InputStream in = context.getContentResolver().openInputStream(uri);
+        if (in == null) throw new FileNotFoundException(uri.toString());
+        return in;
+    }
+
+    /**
+     * One grey plane with even dimensions, as NV21 requires.
+     */
+    private static final class Luma {
+        final byte[] pixels;
+        final int width;
+        final int height;
+
+        Luma(byte[] pixels, int width, int height) {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+        }
+
+        static Luma of(Bitmap bitmap) {
+            int width = bitmap.getWidth() & ~1;
+            int height = bitmap.getHeight() & ~1;
+            int[] row = new int[width];
+            byte[] luma = new byte[width * height];
+            for (int y = 0; y < height; y++) {
+                bitmap.getPixels(row, 0, width, 0, y, width, 1);
+                for (int x = 0; x < width; x++) {
+                    int argb = row[x];
+                    int alpha = argb >>> 24;
+                    int grey = (((argb >> 16) & 0xFF) * 77 + ((argb >> 8) & 0xFF) * 150 + (argb & 0xFF) * 29) >> 8;
+                    // Transparent PNG pixels count as white paper, not black
+                    grey = (grey * alpha + 255 * (255 - alpha)) / 255;
+                    luma[y * width + x] = (byte) grey;
+                }
+            }
+            return new Luma(luma, width, height);
+        }
+
+        Luma halved() {
+            int w = (width / 2) & ~1;
+            int h = (height / 2) & ~1;
+            byte[] out = new byte[w * h];
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    int i = 2 * y * width + 2 * x;
+                    int sum = (pixels[i] & 0xFF) + (pixels[i + 1] & 0xFF)
+                            + (pixels[i + width] & 0xFF) + (pixels[i + width + 1] & 0xFF);
+                    out[y * w + x] = (byte) (sum / 4);
+                }
+            }
+            return new Luma(out, w, h);
+        }
+
+        Luma doubled() {
+            int w = width * 2;
+            int h = height * 2;
+            byte[] out = new byte[w * h];
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) out[y * w + x] = pixels[(y / 2) * width + x / 2];
+            }
+            return new Luma(out, w, h);
+        }
+
+        Luma crop(int left, int top, int cropWidth, int cropHeight) {
+            left &= ~1;
+            top &= ~1;
+            int w = Math.min(cropWidth, width - left) & ~1;
+            int h = Math.min(cropHeight, height - top) & ~1;
+            byte[] out = new byte[w * h];
+            for (int y = 0; y < h; y++) System.arraycopy(pixels, (top + y) * width + left, out, y * w, w);
+            return new Luma(out, w, h);
+        }
+
+        byte[] toNv21() {
+            byte[] nv21 = Arrays.copyOf(pixels, width * height * 3 / 2);
+            Arrays.fill(nv21, width * height, nv21.length, (byte) 128);
+            return nv21;
+        }
+    }
+}
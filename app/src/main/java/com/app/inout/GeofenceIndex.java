@@ -0,0 +1,147 @@
+package com.inout.app.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.inout.app.models.CompanyConfig;
+import com.inout.app.utils.LocationHelper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grid index over the office geofences, answering "which office is this fix in" without
+ * measuring the distance to every office.
+ *
+ * The map is cut into cells of CELL_DEGREES; every office is listed in each cell its bounding box
+ * (of the polygon if it has one, else of the circle) touches, so a lookup measures only the
+ * offices of one cell. Offices so large that they would cover more than MAX_CELLS_PER_OFFICE cells
+ * are kept aside and always measured. Immutable; LocationRegistry builds a new one whenever the
+ * locations change. Offices across the antimeridian are not supported.
+ */
+public final class GeofenceIndex {
+
+    private static final double CELL_DEGREES = 0.01;            // ~1.1 km north-south
+    private static final double METERS_PER_DEGREE = 111_320d;   // Of latitude, and of longitude at the equator
+    private static final int MAX_CELLS_PER_OFFICE = 1024;
+
+    private final List<CompanyConfig> offices;
+    private final Map<Long, List<CompanyConfig>> cells = new HashMap<>();
+    private final List<CompanyConfig> oversized = new ArrayList<>();
+
+    /**
+     * Result of locate(): the office the fix is in, or else the nearest allowed one.
+     */
+    public static final class Match {
+        @NonNull
+        public final CompanyConfig office;
+        public final float distanceMeters;   // From the fix to the office centre
+        public final boolean inside;
+
+        Match(@NonNull CompanyConfig office, float distanceMeters, boolean inside) {
+            this.office = office;
+            this.distanceMeters = distanceMeters;
+            this.inside = inside;
+        }
+    }
+
+    public GeofenceIndex(@NonNull List<CompanyConfig> offices) {
+        this.offices = Collections.unmodifiableList(new ArrayList<>(offices));
+        for (CompanyConfig office : this.offices) add(office);
+    }
+
+    private void add(CompanyConfig office) {
+        long minRow, maxRow, minCol, maxCol;
+        if (office.hasBoundary()) {
+            minRow = cellOf(office.getMinLat());
+            maxRow = cellOf(office.getMaxLat());
+            minCol = cellOf(office.getMinLng());
+            maxCol = cellOf(office.getMaxLng());
+        } else {
+            double latSpan = office.getRadius() / METERS_PER_DEGREE;
+            double lngSpan = office.getRadius() / (METERS_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(office.getLatitude()))));
+            minRow = cellOf(office.getLatitude() - latSpan);
+            maxRow = cellOf(office.getLatitude() + latSpan);
+            minCol = cellOf(office.getLongitude() - lngSpan);
+            maxCol = cellOf(office.getLongitude() + lngSpan);
+        }
+        if ((maxRow - minRow + 1) * (maxCol - minCol + 1) > MAX_CELLS_PER_OFFICE) {
+            oversized.add(office);
+            return;
+        }
+
+        for (long row = minRow; row <= maxRow; row++) {
+            for (long col = minCol; col <= maxCol; col++) {
+                List<CompanyConfig> cell = cells.get(key(row, col));
+                if (cell == null) {
+                    cell = new ArrayList<>(1);
+                    cells.put(key(row, col), cell);
+                }
+                cell.add(office);
+            }
+        }
+    }
+
+    /**
+     * @param allowedIds Offices the employee may punch at; null allows every office.
+     * @return The allowed office containing the fix (the closest one if geofences overlap), else the
+     * nearest allowed office with inside = false, or null if no office is allowed.
+     */
+    @Nullable
+    public Match locate(double latitude, double longitude, @Nullable Collection<String> allowedIds) {
+        Match best = null;
+        List<CompanyConfig> cell = cells.get(key(cellOf(latitude), cellOf(longitude)));
+        if (cell != null) best = closestInside(cell, latitude, longitude, allowedIds, null);
+        best = closestInside(oversized, latitude, longitude, allowedIds, best);
+        if (best != null) return best;
+
+        // Outside every allowed geofence: an employee has only a few offices, so measuring them all is cheap
+        for (CompanyConfig office : offices) {
+            if (!isAllowed(office, allowedIds)) continue;
+            float distance = LocationHelper.calculateDistance(latitude, longitude, office.getLatitude(), office.getLongitude());
+            if (best == null || distance < best.distanceMeters) best = new Match(office, distance, false);
+        }
+        return best;
+    }
+
+    @Nullable
+    private static Match closestInside(List<CompanyConfig> candidates, double latitude, double longitude,
+                                       @Nullable Collection<String> allowedIds, @Nullable Match best) {
+        for (CompanyConfig office : candidates) {
+            if (!isAllowed(office, allowedIds)) continue;
+            float distance = LocationHelper.calculateDistance(latitude, longitude, office.getLatitude(), office.getLongitude());
+            if (contains(office, latitude, longitude, distance) && (best == null || distance < best.distanceMeters)) {
+                best = new Match(office, distance, true);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Polygon offices: bounding box, then point-in-polygon. Others: the circle around the centre.
+     */
+    private static boolean contains(CompanyConfig office, double latitude, double longitude, float distance) {
+        if (!office.hasBoundary()) return distance <= office.getRadius();
+        if (latitude < office.getMinLat() || latitude > office.getMaxLat()
+                || longitude < office.getMinLng() || longitude > office.getMaxLng()) {
+            return false;
+        }
+        return LocationHelper.isInsidePolygon(latitude, longitude, office.getBoundaryLats(), office.getBoundaryLngs());
+    }
+
+    private static boolean isAllowed(CompanyConfig office, @Nullable Collection<String> allowedIds) {
+        return allowedIds == null || allowedIds.contains(office.getId());
+    }
+
+    private static long cellOf(double degrees) {
+        return (long) Math.floor(degrees / CELL_DEGREES);
+    }
+
+    private static long key(long row, long col) {
+        return (row << 32) ^ (col & 0xFFFFFFFFL);
+    }
+}
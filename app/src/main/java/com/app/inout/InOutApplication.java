@@ -2,6 +2,13 @@ package com.inout.app;
 
 import android.app.Application;
 
+import com.inout.app.data.AttendanceRepository;
+import com.inout.app.data.FirestoreMeter;
+import com.inout.app.data.ListenerHub;
+import com.inout.app.data.LocationRegistry;
+import com.inout.app.data.MonthlySummaryRepository;
+import com.inout.app.data.PunchJournal;
+import com.inout.app.data.SessionStore;
 import com.inout.app.utils.FirebaseManager;
 
 /**
@@ -20,5 +27,20 @@ public class InOutApplication extends Application {
         // This manager will attempt to load a stored Firebase configuration (encrypted)
         // if one exists, allowing dynamic project switching.
         FirebaseManager.initialize(this);
+
+        // Counts Firestore reads/writes per screen; must exist before the first Firestore call
+        FirestoreMeter.initialize(this);
+
+        // Switching company keeps the process: drop everything that belongs to the previous one
+        FirebaseManager.addTenantSwitchListener(projectId -> {
+            ListenerHub.getInstance().reset();
+            LocationRegistry.getInstance().stop();
+            SessionStore.getInstance(this).stop();
+            AttendanceRepository.getInstance(this).clear();
+            MonthlySummaryRepository.getInstance().clear();
+        });
+
+        // Reloads unsynced punches and schedules their flush
+        PunchJournal.getInstance(this);
     }
 }
\ No newline at end of file
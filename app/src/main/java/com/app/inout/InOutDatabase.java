@@ -0,0 +1,104 @@
+package com.inout.app.data;
+
+import android.content.Context;
+
+import androidx.room.Database;
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * Local SQLite database (via Room) used as the offline tier for Firestore data.
+ *
+ * The 'attendance' table is only a cache, but 'punch_journal' holds punches that may not have
+ * reached Firestore yet: every schema change from version 2 on needs a real Migration.
+ * 'export_staging' holds the documents of running org exports (see ExportWorker).
+ */
+@Database(entities = {AttendanceEntity.class, PunchEntity.class, ExportStagingEntity.class}, version = 4, exportSchema = false)
+@TypeConverters({RoomConverters.class})
+public abstract class InOutDatabase extends RoomDatabase {
+
+    private static final String DB_NAME = "inout_cache.db";
+    private static volatile InOutDatabase instance;
+
+    public abstract AttendanceDao attendanceDao();
+
+    public abstract PunchDao punchDao();
+
+    public abstract ExportStagingDao exportStagingDao();
+
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `punch_journal` (`seq` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL,"
+                    + " `punchId` TEXT NOT NULL, `type` TEXT, `projectId` TEXT, `recordId` TEXT, `employeeId` TEXT,"
+                    + " `employeeName` TEXT, `date` TEXT, `time` TEXT, `timestamp` INTEGER NOT NULL,"
+                    + " `lat` REAL NOT NULL, `lng` REAL NOT NULL, `locationId` TEXT, `locationName` TEXT,"
+                    + " `distanceMeters` REAL NOT NULL, `totalHours` TEXT, `workedMinutes` INTEGER NOT NULL,"
+                    + " `syncedAt` INTEGER NOT NULL, `attempts` INTEGER NOT NULL, `lastError` TEXT)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_punch_journal_punchId` ON `punch_journal` (`punchId`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_punch_journal_syncedAt_seq` ON `punch_journal` (`syncedAt`, `seq`)");
+        }
+    };
+
+    // Punch events: fold bookkeeping on cached records; the journal no longer stores derived hours
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `attendance` ADD COLUMN `lastPunchAt` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `attendance` ADD COLUMN `punchCount` INTEGER NOT NULL DEFAULT 0");
+
+            db.execSQL("CREATE TABLE `punch_journal_new` (`seq` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL,"
+                    + " `punchId` TEXT NOT NULL, `type` TEXT, `projectId` TEXT, `recordId` TEXT, `employeeId` TEXT,"
+                    + " `employeeName` TEXT, `date` TEXT, `time` TEXT, `timestamp` INTEGER NOT NULL,"
+                    + " `lat` REAL NOT NULL, `lng` REAL NOT NULL, `locationId` TEXT, `locationName` TEXT,"
+                    + " `distanceMeters` REAL NOT NULL, `syncedAt` INTEGER NOT NULL, `attempts` INTEGER NOT NULL,"
+                    + " `lastError` TEXT)");
+            db.execSQL("INSERT INTO `punch_journal_new` (`seq`, `punchId`, `type`, `projectId`, `recordId`, `employeeId`,"
+                    + " `employeeName`, `date`, `time`, `timestamp`, `lat`, `lng`, `locationId`, `locationName`,"
+                    + " `distanceMeters`, `syncedAt`, `attempts`, `lastError`)"
+                    + " SELECT `seq`, `punchId`, `type`, `projectId`, `recordId`, `employeeId`, `employeeName`, `date`,"
+                    + " `time`, `timestamp`, `lat`, `lng`, `locationId`, `locationName`, `distanceMeters`, `syncedAt`,"
+                    + " `attempts`, `lastError` FROM `punch_journal`");
+            db.execSQL("DROP TABLE `punch_journal`");
+            db.execSQL("ALTER TABLE `punch_journal_new` RENAME TO `punch_journal`");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_punch_journal_punchId` ON `punch_journal` (`punchId`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_punch_journal_syncedAt_seq` ON `punch_journal` (`syncedAt`, `seq`)");
+        }
+    };
+
+    // Org exports stage their month in their own table instead of the attendance cache
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `export_staging` (`jobId` TEXT NOT NULL, `stagedAt` INTEGER NOT NULL,"
+                    + " `recordId` TEXT NOT NULL, `employeeId` TEXT, `employeeName` TEXT, `date` TEXT,"
+                    + " `checkInTime` TEXT, `checkOutTime` TEXT, `totalHours` TEXT, `checkInLat` REAL NOT NULL,"
+                    + " `checkInLng` REAL NOT NULL, `checkOutLat` REAL NOT NULL, `checkOutLng` REAL NOT NULL,"
+                    + " `locationName` TEXT, `distanceMeters` REAL NOT NULL, `fingerprintVerified` INTEGER NOT NULL,"
+                    + " `gpsVerified` INTEGER NOT NULL, `timestamp` INTEGER NOT NULL, `movementLog` TEXT,"
+                    + " `lastVerifiedLocationId` TEXT, `lastPunchAt` INTEGER NOT NULL, `punchCount` INTEGER NOT NULL,"
+                    + " PRIMARY KEY(`jobId`, `recordId`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_export_staging_jobId_employeeId_timestamp`"
+                    + " ON `export_staging` (`jobId`, `employeeId`, `timestamp`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_export_staging_stagedAt` ON `export_staging` (`stagedAt`)");
+        }
+    };
+
+    public static InOutDatabase getInstance(Context context) {
+        if (instance == null) {
+            synchronized (InOutDatabase.class) {
+                if (instance == null) {
+                    instance = Room.databaseBuilder(context.getApplicationContext(), InOutDatabase.class, DB_NAME)
+                            .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4)
+                            // Only a downgrade may wipe the database (it would lose unsynced punches)
+                            .fallbackToDestructiveMigrationOnDowngrade()
+                            .build();
+                }
+            }
+        }
+        return instance;
+    }
+}
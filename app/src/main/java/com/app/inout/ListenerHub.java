@@ -0,0 +1,258 @@
+package com.inout.app.data;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.ProcessLifecycleOwner;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Owner of every Firestore snapshot listener in the app.
+ *
+ * - Listeners are shared by key: all subscribers of the same query get one ListenerRegistration,
+ *   and a late subscriber is handed the latest value at once instead of causing a second read.
+ * - Subscribers are reference counted; the listener is detached when the last one leaves.
+ *   Lifecycle subscriptions leave on ON_DESTROY (use getViewLifecycleOwner() in fragments).
+ * - While the app is in the background every listener is detached, and re-attached when it
+ *   comes back. Firestore only bills documents that changed if this happens within 30 minutes.
+ * - Every event is reported to FirestoreMeter under the call site that created the listener.
+ *
+ * Must be used from the main thread.
+ */
+public class ListenerHub {
+
+    private static final String TAG = "ListenerHub";
+
+    private static ListenerHub instance;
+
+    private final Map<String, Shared<?>> sharedByKey = new HashMap<>();
+    private boolean foreground = false;
+
+    /**
+     * Attaches the actual Firestore listener, e.g. {@code listener -> query.addSnapshotListener(listener)}.
+     */
+    public interface Source<T> {
+        @NonNull
+        ListenerRegistration attach(@NonNull EventListener<T> listener);
+    }
+
+    public interface Subscriber<T> {
+        /**
+         * @param reset True if value is the complete current state rather than the step after the
+         *              previous event this subscriber saw: its first event, and the first one after a
+         *              re-attach. Document changes of such a value must not be applied on top of older data.
+         */
+        void onEvent(@Nullable T value, @Nullable FirebaseFirestoreException error, boolean reset);
+    }
+
+    /**
+     * Handle of one subscriber. remove() is idempotent.
+     */
+    public final class Subscription {
+        private final Shared<?> shared;
+        private final Subscriber<?> subscriber;
+        private boolean removed = false;
+
+        // Set for lifecycle subscriptions, so an early remove() does not leave the observer behind
+        @Nullable
+        private Lifecycle lifecycle;
+        @Nullable
+        private DefaultLifecycleObserver lifecycleObserver;
+
+        private Subscription(Shared<?> shared, Subscriber<?> subscriber) {
+            this.shared = shared;
+            this.subscriber = subscriber;
+        }
+
+        public void remove() {
+            if (removed) return;
+            removed = true;
+            if (lifecycle != null) {
+                lifecycle.removeObserver(lifecycleObserver);
+                lifecycle = null;
+                lifecycleObserver = null;
+            }
+            shared.removeSubscriber(subscriber);
+            if (shared.isUnused()) {
+                shared.detach();
+                if (sharedByKey.get(shared.key) == shared) sharedByKey.remove(shared.key); // Not if reset() dropped it
+                Log.d(TAG, "Released " + shared.key);
+            }
+        }
+    }
+
+    private ListenerHub() {
+        // Called back at once with ON_START if the app is already in the foreground
+        ProcessLifecycleOwner.get().getLifecycle().addObserver(new DefaultLifecycleObserver() {
+            @Override
+            public void onStart(@NonNull LifecycleOwner owner) {
+                foreground = true;
+                for (Shared<?> shared : sharedByKey.values()) shared.attach();
+            }
+
+            @Override
+            public void onStop(@NonNull LifecycleOwner owner) {
+                foreground = false;
+                for (Shared<?> shared : sharedByKey.values()) shared.detach();
+                Log.d(TAG, "Background: detached " + sharedByKey.size() + " listeners");
+            }
+        });
+    }
+
+    public static synchronized ListenerHub getInstance() {
+        if (instance == null) {
+            instance = new ListenerHub();
+        }
+        return instance;
+    }
+
+    /**
+     * Subscribes until the owner is destroyed (or the returned subscription is removed earlier).
+     */
+    @NonNull
+    public <T> Subscription subscribe(@NonNull LifecycleOwner owner, @NonNull String site, @NonNull String key,
+                                      @NonNull Source<T> source, @NonNull Subscriber<T> subscriber) {
+        Subscription subscription = subscribe(site, key, source, subscriber);
+        if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+            subscription.remove();
+            return subscription;
+        }
+        subscription.lifecycle = owner.getLifecycle();
+        subscription.lifecycleObserver = new DefaultLifecycleObserver() {
+            @Override
+            public void onDestroy(@NonNull LifecycleOwner o) {
+                subscription.remove();
+            }
+        };
+        owner.getLifecycle().addObserver(subscription.lifecycleObserver);
+        return subscription;
+    }
+
+    /**
+     * Subscribes until the returned subscription is removed. For process-wide owners such as
+     * LocationRegistry and SessionStore.
+     *
+     * @param site "Class.method" label the listener's reads are metered under (see FirestoreMeter).
+     * @param key  Identifies the query, including anything that changes its results (filters,
+     *             limits, metadata changes). Equal keys must always come with the same source.
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public <T> Subscription subscribe(@NonNull String site, @NonNull String key,
+                                      @NonNull Source<T> source, @NonNull Subscriber<T> subscriber) {
+        Shared<T> shared = (Shared<T>) sharedByKey.get(key);
+        if (shared == null) {
+            shared = new Shared<>(key, source, FirestoreMeter.getInstance().screenOfCaller(), site);
+            sharedByKey.put(key, shared);
+        }
+        shared.addSubscriber(subscriber);
+        if (foreground) shared.attach();
+        return new Subscription(shared, subscriber);
+    }
+
+    /**
+     * Detaches and forgets every listener, e.g. when the company changes: they query the previous
+     * company's project. Subscriptions handed out before stay inert; removing them is still allowed.
+     */
+    public void reset() {
+        for (Shared<?> shared : sharedByKey.values()) shared.detach();
+        Log.d(TAG, "Reset: dropped " + sharedByKey.size() + " listeners");
+        sharedByKey.clear();
+    }
+
+    /**
+     * One listener and its subscribers.
+     */
+    private static final class Shared<T> {
+        final String key;
+        final Source<T> source;
+        final String screen;
+        final String site;
+        final List<Subscriber<T>> subscribers = new ArrayList<>();
+        // Subscribers whose next value must be flagged as a reset (identity: lambdas have no equals)
+        final Set<Subscriber<?>> awaitingReset = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        @Nullable
+        ListenerRegistration registration;
+        @Nullable
+        T latest;
+        boolean serverAnswered;
+
+        Shared(String key, Source<T> source, String screen, String site) {
+            this.key = key;
+            this.source = source;
+            this.screen = screen;
+            this.site = site;
+        }
+
+        void addSubscriber(Subscriber<T> subscriber) {
+            subscribers.add(subscriber);
+            if (latest != null) {
+                subscriber.onEvent(latest, null, true); // Shared: no read of its own
+            } else {
+                awaitingReset.add(subscriber);
+            }
+        }
+
+        void removeSubscriber(Subscriber<?> subscriber) {
+            subscribers.remove(subscriber);
+            awaitingReset.remove(subscriber);
+        }
+
+        boolean isUnused() {
+            return subscribers.isEmpty();
+        }
+
+        void attach() {
+            if (registration != null) return;
+            // The first event after (re)attaching lists everything as added, not what changed while detached
+            latest = null;
+            serverAnswered = false;
+            awaitingReset.addAll(subscribers);
+            registration = source.attach(this::dispatch);
+        }
+
+        void detach() {
+            if (registration == null) return;
+            registration.remove();
+            registration = null;
+        }
+
+        private void dispatch(@Nullable T value, @Nullable FirebaseFirestoreException error) {
+            if (value != null) {
+                latest = value;
+                boolean fromCache = isFromCache(value);
+                FirestoreMeter.getInstance().recordListenerEvent(screen, site, value, !fromCache && !serverAnswered);
+                if (!fromCache) serverAnswered = true;
+            }
+            for (Subscriber<T> subscriber : new ArrayList<>(subscribers)) {
+                if (!subscribers.contains(subscriber)) continue; // Removed by an earlier callback
+                boolean reset = value != null && awaitingReset.remove(subscriber);
+                subscriber.onEvent(value, error, reset);
+            }
+        }
+
+        private static boolean isFromCache(Object value) {
+            if (value instanceof QuerySnapshot) return ((QuerySnapshot) value).getMetadata().isFromCache();
+            if (value instanceof DocumentSnapshot) return ((DocumentSnapshot) value).getMetadata().isFromCache();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.inout.app.adapters;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.inout.app.R;
+import com.inout.app.models.User;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Adapter for the admin "who's in now" board.
+ * Rows are either a location header or one employee with today's status.
+ */
+public class LiveBoardAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+    private static final int TYPE_HEADER = 0;
+    private static final int TYPE_EMPLOYEE = 1;
+
+    public enum Status { CHECKED_IN, IN_TRANSIT, CHECKED_OUT, ABSENT }
+
+    private final List<Row> rows;
+    private final OnEmployeeClickListener listener;
+
+    public interface OnEmployeeClickListener {
+        void onEmployeeClicked(User user);
+    }
+
+    /**
+     * One board line. Immutable, so an unchanged row can be reused as-is between updates.
+     */
+    public static class Row {
+        public final String key;
+        public final boolean header;
+        public final String title;
+        public final String detail;
+        public final Status status;
+        public final User user;
+
+        private Row(String key, boolean header, String title, String detail, Status status, User user) {
+            this.key = key;
+            this.header = header;
+            this.title = title;
+            this.detail = detail;
+            this.status = status;
+            this.user = user;
+        }
+
+        public static Row header(String locationKey, String locationName, String counts) {
+            return new Row("loc_" + locationKey, true, locationName, counts, null, null);
+        }
+
+        public static Row employee(User user, Status status, String detail) {
+            String title = user.getName() + " (" + user.getEmployeeId() + ")";
+            return new Row("emp_" + user.getUid(), false, title, detail, status, user);
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * True if both rows would render identically.
+         */
+        public boolean sameContentAs(Row other) {
+            return other != null && header == other.header && status == other.status
+                    && Objects.equals(title, other.title) && Objects.equals(detail, other.detail);
+        }
+    }
+
+    public LiveBoardAdapter(List<Row> rows, OnEmployeeClickListener listener) {
+        this.rows = rows;
+        this.listener = listener;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return rows.get(position).header ? TYPE_HEADER : TYPE_EMPLOYEE;
+    }
+
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        if (viewType == TYPE_HEADER) {
+            return new HeaderViewHolder(inflater.inflate(R.layout.item_board_header, parent, false));
+        }
+        return new EmployeeViewHolder(inflater.inflate(R.layout.item_board_employee, parent, false));
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        Row row = rows.get(position);
+
+        if (holder instanceof HeaderViewHolder) {
+            HeaderViewHolder h = (HeaderViewHolder) holder;
+            h.tvLocation.setText(row.title);
+            h.tvCounts.setText(row.detail);
+            return;
+        }
+
+        EmployeeViewHolder h = (EmployeeViewHolder) holder;
+        h.tvName.setText(row.title);
+        h.tvDetail.setText(row.detail);
+
+        int colorRes;
+        String label;
+        switch (row.status) {
+            case CHECKED_IN:
+                colorRes = R.color.status_green;
+                label = "IN";
+                break;
+            case IN_TRANSIT:
+                colorRes = R.color.status_orange;
+                label = "TRANSIT";
+                break;
+            case CHECKED_OUT:
+                colorRes = R.color.status_red;
+                label = "OUT";
+                break;
+            default:
+                colorRes = R.color.dark_gray;
+                label = "ABSENT";
+                break;
+        }
+        h.tvStatus.setText(label);
+        h.tvStatus.setTextColor(ContextCompat.getColor(h.itemView.getContext(), colorRes));
+
+        h.itemView.setOnClickListener(v -> {
+            if (listener != null) listener.onEmployeeClicked(row.user);
+        });
+    }
+
+    @Override
+    public int getItemCount() {
+        return rows.size();
+    }
+
+    static class HeaderViewHolder extends RecyclerView.ViewHolder {
+        final TextView tvLocation, tvCounts;
+
+        HeaderViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvLocation = itemView.findViewById(R.id.tv_board_location);
+            tvCounts = itemView.findViewById(R.id.tv_board_counts);
+        }
+    }
+
+    static class EmployeeViewHolder extends RecyclerView.ViewHolder {
+        final TextView tvName, tvDetail, tvStatus;
+
+        EmployeeViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvName = itemView.findViewById(R.id.tv_board_name);
+            tvDetail = itemView.findViewById(R.id.tv_board_detail);
+            tvStatus = itemView.findViewById(R.id.tv_board_status);
+        }
+    }
+}
@@ -109,6 +109,24 @@ public class LocationHelper {
         return distance <= radiusMeters;
     }
 
+    /**
+     * Checks if the point lies inside the polygon whose corners are given in order (not closed).
+     * Ray casting on plain latitude/longitude, which is exact enough at the scale of a site.
+     * Callers should reject points outside the polygon's bounding box first; that test is cheaper.
+     */
+    public static boolean isInsidePolygon(double lat, double lng, double[] cornerLats, double[] cornerLngs) {
+        boolean inside = false;
+        int n = cornerLats.length;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            // Edge j -> i crosses the horizontal through the point, left or right of it
+            if ((cornerLats[i] > lat) != (cornerLats[j] > lat)) {
+                double crossLng = cornerLngs[j] + (lat - cornerLats[j]) * (cornerLngs[i] - cornerLngs[j]) / (cornerLats[i] - cornerLats[j]);
+                if (lng < crossLng) inside = !inside;
+            }
+        }
+        return inside;
+    }
+
     private boolean hasPermissions() {
         return ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED;
     }
@@ -0,0 +1,182 @@
+package com.inout.app.data;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.inout.app.models.CompanyConfig;
+import com.inout.app.utils.FirebaseManager;
+import com.inout.app.utils.SnapshotListSync;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide copy of the 'locations' collection.
+ *
+ * One snapshot listener feeds an id-indexed map of CompanyConfig that every screen shares,
+ * so office lookups are synchronous and no screen pays its own read for the same documents.
+ * The listener goes through ListenerHub, so it pauses while the app is in the background.
+ * Must be used from the main thread.
+ */
+public class LocationRegistry {
+
+    private static final String TAG = "LocationRegistry";
+    private static final String COLLECTION = "locations";
+
+    private static LocationRegistry instance;
+
+    private final Map<String, CompanyConfig> locationsById = new HashMap<>();
+    private final List<CompanyConfig> orderedLocations = new ArrayList<>();
+    private final SnapshotListSync<CompanyConfig> locationSync =
+            new SnapshotListSync<>(orderedLocations, LocationRegistry::decode, CompanyConfig::getId);
+    private final List<OnLocationsChangedListener> listeners = new CopyOnWriteArrayList<>();
+
+    private ListenerHub.Subscription subscription;
+    private boolean loaded = false;
+
+    // Built on first use after every change
+    @Nullable
+    private GeofenceIndex geofenceIndex;
+
+    public interface OnLocationsChangedListener {
+        /**
+         * @param locations Every known location, in Firestore query order. Unchanged entries are the
+         *                  same instances as in the previous call (except after a re-attach).
+         */
+        void onLocationsChanged(List<CompanyConfig> locations);
+    }
+
+    private LocationRegistry() {
+    }
+
+    public static synchronized LocationRegistry getInstance() {
+        if (instance == null) {
+            instance = new LocationRegistry();
+        }
+        return instance;
+    }
+
+    /**
+     * Attaches the shared listener if it is not attached yet. Safe to call repeatedly.
+     */
+    public void start() {
+        if (subscription != null) return;
+        subscription = ListenerHub.getInstance().<QuerySnapshot>subscribe(
+                "LocationRegistry.start", COLLECTION,
+                listener -> FirebaseManager.firestore().collection(COLLECTION).addSnapshotListener(listener),
+                (value, error, reset) -> {
+                    if (error != null) {
+                        Log.e(TAG, "Locations listener failed", error);
+                        return;
+                    }
+                    if (value != null) {
+                        applySnapshot(value, reset);
+                    }
+                });
+    }
+
+    /**
+     * Detaches the listener and forgets all data (e.g. when the company changes).
+     */
+    public void stop() {
+        if (subscription != null) {
+            subscription.remove();
+            subscription = null;
+        }
+        locationsById.clear();
+        locationSync.clear();
+        geofenceIndex = null;
+        loaded = false;
+    }
+
+    /**
+     * Registers a change callback. If data is already loaded, the callback fires immediately.
+     */
+    public void addListener(@NonNull OnLocationsChangedListener listener) {
+        listeners.add(listener);
+        start();
+        if (loaded) listener.onLocationsChanged(getAll());
+    }
+
+    public void removeListener(@NonNull OnLocationsChangedListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return The location with this document ID, or null if unknown / not loaded yet.
+     */
+    @Nullable
+    public CompanyConfig get(@Nullable String locationId) {
+        if (locationId == null) return null;
+        return locationsById.get(locationId);
+    }
+
+    /**
+     * @return A read-only snapshot of all locations in query order.
+     */
+    public List<CompanyConfig> getAll() {
+        return Collections.unmodifiableList(new ArrayList<>(orderedLocations));
+    }
+
+    /**
+     * @return The spatial index of all known locations, for matching a GPS fix to an office.
+     */
+    @NonNull
+    public GeofenceIndex getGeofenceIndex() {
+        if (geofenceIndex == null) geofenceIndex = new GeofenceIndex(orderedLocations);
+        return geofenceIndex;
+    }
+
+    /**
+     * @return True once the first snapshot (from cache or server) has been applied.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    private void applySnapshot(QuerySnapshot value, boolean reset) {
+        // A reset is the full listing after a (re)attach: documents deleted meanwhile must not survive.
+        // Otherwise only added/modified documents are decoded; the rest keep their instances.
+        locationSync.apply(value, reset);
+
+        if (reset) {
+            locationsById.clear();
+            for (CompanyConfig location : orderedLocations) locationsById.put(location.getId(), location);
+        } else {
+            for (DocumentChange change : value.getDocumentChanges()) {
+                if (change.getType() == DocumentChange.Type.REMOVED) {
+                    locationsById.remove(change.getDocument().getId());
+                } else {
+                    CompanyConfig location = orderedLocations.get(change.getNewIndex());
+                    locationsById.put(location.getId(), location);
+                }
+            }
+        }
+        loaded = true;
+        notifyListeners();
+    }
+
+    private void notifyListeners() {
+        geofenceIndex = null;
+        List<CompanyConfig> snapshot = getAll();
+        for (OnLocationsChangedListener listener : listeners) {
+            listener.onLocationsChanged(snapshot);
+        }
+    }
+
+    private static CompanyConfig decode(DocumentSnapshot doc) {
+        CompanyConfig config = doc.toObject(CompanyConfig.class);
+        if (config == null) config = new CompanyConfig();
+        config.setId(doc.getId());
+        return config;
+    }
+}
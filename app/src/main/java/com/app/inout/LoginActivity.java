@@ -9,6 +9,7 @@ import android.widget.Toast;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.google.android.gms.auth.api.signin.GoogleSignIn;
@@ -25,9 +26,12 @@ import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.auth.GoogleAuthProvider;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.inout.app.data.FirestoreMeter;
+import com.inout.app.data.SessionStore;
 import com.inout.app.databinding.ActivityLoginBinding;
 import com.inout.app.models.User;
 import com.inout.app.utils.EncryptionHelper;
+import com.inout.app.utils.FirebaseManager;
 
 /**
  * Handles Google Sign-In and initial User Profile creation.
@@ -72,8 +76,8 @@ public class LoginActivity extends AppCompatActivity {
         binding = ActivityLoginBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
-        mAuth = FirebaseAuth.getInstance();
-        db = FirebaseFirestore.getInstance();
+        mAuth = FirebaseManager.auth();
+        db = FirebaseManager.firestore();
         EncryptionHelper encryptionHelper = EncryptionHelper.getInstance(this);
         expectedRole = encryptionHelper.getUserRole();
         
@@ -139,27 +143,35 @@ public class LoginActivity extends AppCompatActivity {
 
         DocumentReference userRef = db.collection("users").document(firebaseUser.getUid());
 
-        userRef.get().addOnSuccessListener(documentSnapshot -> {
-            if (documentSnapshot.exists()) {
-                User user = documentSnapshot.toObject(User.class);
-                if (user != null && user.getRole().equals(expectedRole)) {
-                    // Update photoURL if it changed on Google side
-                    if (firebaseUser.getPhotoUrl() != null) {
-                        userRef.update("photoUrl", firebaseUser.getPhotoUrl().toString());
+        // The session listener started here stays attached, so the dashboard reuses this read
+        SessionStore.getInstance(this).awaitServerUser(new SessionStore.ServerCallback() {
+            @Override
+            public void onUserLoaded(@Nullable User user) {
+                if (user != null) {
+                    if (expectedRole.equals(user.getRole())) {
+                        // Update photoURL if it changed on Google side
+                        if (firebaseUser.getPhotoUrl() != null) {
+                            FirestoreMeter.getInstance().write("LoginActivity.checkUserInFirestore", 1,
+                                    userRef.update("photoUrl", firebaseUser.getPhotoUrl().toString()));
+                        }
+                        proceedToDashboard(user);
+                    } else {
+                        Toast.makeText(LoginActivity.this, "Error: Account role mismatch.", Toast.LENGTH_LONG).show();
+                        SessionStore.getInstance(LoginActivity.this).stop();
+                        mAuth.signOut();
+                        updateUI(null);
                     }
-                    proceedToDashboard(user);
                 } else {
-                    Toast.makeText(LoginActivity.this, "Error: Account role mismatch.", Toast.LENGTH_LONG).show();
-                    mAuth.signOut();
-                    updateUI(null);
+                    createUserProfile(firebaseUser, userRef);
                 }
-            } else {
-                createUserProfile(firebaseUser, userRef);
             }
-        }).addOnFailureListener(e -> {
-            Log.e(TAG, "Error fetching user", e);
-            Toast.makeText(LoginActivity.this, "Network Error. Please try again.", Toast.LENGTH_SHORT).show();
-            updateUI(null);
+
+            @Override
+            public void onError(@NonNull Exception e) {
+                Log.e(TAG, "Error fetching user", e);
+                Toast.makeText(LoginActivity.this, "Network Error. Please try again.", Toast.LENGTH_SHORT).show();
+                updateUI(null);
+            }
         });
     }
 
@@ -181,7 +193,7 @@ public class LoginActivity extends AppCompatActivity {
             newUser.setApproved(false);
         }
 
-        userRef.set(newUser)
+        FirestoreMeter.getInstance().write("LoginActivity.createUserProfile", 1, userRef.set(newUser))
                 .addOnSuccessListener(aVoid -> {
                     Toast.makeText(LoginActivity.this, "Account Created Successfully.", Toast.LENGTH_SHORT).show();
                     proceedToDashboard(newUser);
@@ -189,6 +201,7 @@ public class LoginActivity extends AppCompatActivity {
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Error creating profile", e);
                     Toast.makeText(LoginActivity.this, "Failed to create database record.", Toast.LENGTH_SHORT).show();
+                    SessionStore.getInstance(LoginActivity.this).stop();
                     mAuth.signOut();
                     updateUI(null);
                 });
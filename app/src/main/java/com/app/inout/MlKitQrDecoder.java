@@ -0,0 +1,44 @@
+package com.inout.app.utils;
+
+import androidx.annotation.NonNull;
+
+import com.google.mlkit.vision.barcode.BarcodeScanner;
+import com.google.mlkit.vision.barcode.BarcodeScannerOptions;
+import com.google.mlkit.vision.barcode.BarcodeScanning;
+import com.google.mlkit.vision.barcode.common.Barcode;
+import com.google.mlkit.vision.common.InputImage;
+
+/**
+ * QrDecoder on ML Kit barcode scanning (QR only). Callbacks run on the main thread.
+ */
+class MlKitQrDecoder implements QrDecoder {
+
+    private final BarcodeScanner scanner;
+
+    MlKitQrDecoder() {
+        scanner = BarcodeScanning.getClient(new BarcodeScannerOptions.Builder()
+                .setBarcodeFormats(Barcode.FORMAT_QR_CODE)
+                .build());
+    }
+
+    @Override
+    public void decode(@NonNull byte[] nv21, int width, int height, int rotationDegrees, @NonNull Callback callback) {
+        InputImage image = InputImage.fromByteArray(nv21, width, height, rotationDegrees, InputImage.IMAGE_FORMAT_NV21);
+        scanner.process(image)
+                .addOnSuccessListener(barcodes -> {
+                    for (Barcode barcode : barcodes) {
+                        if (barcode.getRawValue() != null) {
+                            callback.onDecoded(barcode.getRawValue());
+                            return;
+                        }
+                    }
+                    callback.onDecoded(null);
+                })
+                .addOnFailureListener(callback::onError);
+    }
+
+    @Override
+    public void close() {
+        scanner.close();
+    }
+}
@@ -0,0 +1,165 @@
+package com.inout.app.models;
+
+import com.google.firebase.firestore.IgnoreExtraProperties;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pre-aggregated month of one employee, stored as attendance_monthly/{employeeId}_{yyyy-MM}.
+ * Holds one compact entry per worked day plus running totals, so a month view is a single read.
+ * Kept up to date by the check-in screen; MonthlySummaryRepository can rebuild it from raw records.
+ *
+ * A summary first created by a punch holds only the days punched since; complete stays false
+ * until it is rebuilt from the raw month, and readers fall back to the raw records until then.
+ */
+@IgnoreExtraProperties
+public class MonthlySummary {
+
+    private String employeeId;
+    private String employeeName;
+    private String month;           // yyyy-MM
+
+    private int daysPresent;        // Days with a check-in
+    private long workedMinutes;     // Sum over checked-out days
+    private int transitCount;       // Sum of transits over the month
+    private long updatedAt;
+    private boolean complete;       // Built from the whole raw month (see above)
+
+    // Key: date (yyyy-MM-dd). Absent days have no entry.
+    private Map<String, Day> days;
+
+    public MonthlySummary() {
+        // Default constructor required for Firestore
+        this.days = new HashMap<>();
+    }
+
+    /**
+     * One worked day: everything the month table and CSV show, without coordinates.
+     */
+    @IgnoreExtraProperties
+    public static class Day {
+        private String checkInTime;
+        private String checkOutTime;
+        private String totalHours;
+        private long workedMinutes;
+        private String locationName;
+        private float distanceMeters;
+        private List<String> movementLog;
+        private int transitCount;
+        private boolean fingerprintVerified;
+        private boolean gpsVerified;
+
+        public Day() {
+            this.movementLog = new ArrayList<>();
+        }
+
+        public static Day fromRecord(AttendanceRecord record) {
+            Day day = new Day();
+            day.checkInTime = record.getCheckInTime();
+            day.checkOutTime = record.getCheckOutTime();
+            day.totalHours = record.getTotalHours();
+            day.locationName = record.getLocationName();
+            day.distanceMeters = record.getDistanceMeters();
+            day.movementLog = record.getMovementLog() != null ? record.getMovementLog() : new ArrayList<>();
+            day.transitCount = Math.max(0, day.movementLog.size() - 1);
+            day.fingerprintVerified = record.isFingerprintVerified();
+            day.gpsVerified = record.isGpsVerified();
+            return day;
+        }
+
+        /**
+         * Expands the entry back into a row for AttendanceAdapter / CsvExportHelper.
+         */
+        public AttendanceRecord toRecord(String employeeId, String employeeName, String date) {
+            AttendanceRecord record = new AttendanceRecord();
+            record.setRecordId(employeeId + "_" + date);
+            record.setEmployeeId(employeeId);
+            record.setEmployeeName(employeeName);
+            record.setDate(date);
+            record.setCheckInTime(checkInTime);
+            record.setCheckOutTime(checkOutTime);
+            record.setTotalHours(totalHours);
+            record.setLocationName(locationName);
+            record.setDistanceMeters(distanceMeters);
+            record.setMovementLog(movementLog != null ? movementLog : new ArrayList<>());
+            record.setFingerprintVerified(fingerprintVerified);
+            record.setGpsVerified(gpsVerified);
+            return record;
+        }
+
+        public String getCheckInTime() { return checkInTime; }
+        public void setCheckInTime(String checkInTime) { this.checkInTime = checkInTime; }
+
+        public String getCheckOutTime() { return checkOutTime; }
+        public void setCheckOutTime(String checkOutTime) { this.checkOutTime = checkOutTime; }
+
+        public String getTotalHours() { return totalHours; }
+        public void setTotalHours(String totalHours) { this.totalHours = totalHours; }
+
+        public long getWorkedMinutes() { return workedMinutes; }
+        public void setWorkedMinutes(long workedMinutes) { this.workedMinutes = workedMinutes; }
+
+        public String getLocationName() { return locationName; }
+        public void setLocationName(String locationName) { this.locationName = locationName; }
+
+        public float getDistanceMeters() { return distanceMeters; }
+        public void setDistanceMeters(float distanceMeters) { this.distanceMeters = distanceMeters; }
+
+        public List<String> getMovementLog() { return movementLog; }
+        public void setMovementLog(List<String> movementLog) { this.movementLog = movementLog; }
+
+        public int getTransitCount() { return transitCount; }
+        public void setTransitCount(int transitCount) { this.transitCount = transitCount; }
+
+        public boolean isFingerprintVerified() { return fingerprintVerified; }
+        public void setFingerprintVerified(boolean fingerprintVerified) { this.fingerprintVerified = fingerprintVerified; }
+
+        public boolean isGpsVerified() { return gpsVerified; }
+        public void setGpsVerified(boolean gpsVerified) { this.gpsVerified = gpsVerified; }
+    }
+
+    /**
+     * @return One AttendanceRecord per stored day, keyed by date (yyyy-MM-dd). Absent days are not included.
+     */
+    public Map<String, AttendanceRecord> toRecordsByDate() {
+        Map<String, AttendanceRecord> records = new HashMap<>();
+        if (days == null) return records;
+        for (Map.Entry<String, Day> entry : days.entrySet()) {
+            if (entry.getValue() == null) continue;
+            records.put(entry.getKey(), entry.getValue().toRecord(employeeId, employeeName, entry.getKey()));
+        }
+        return records;
+    }
+
+    // Getters and Setters
+
+    public String getEmployeeId() { return employeeId; }
+    public void setEmployeeId(String employeeId) { this.employeeId = employeeId; }
+
+    public String getEmployeeName() { return employeeName; }
+    public void setEmployeeName(String employeeName) { this.employeeName = employeeName; }
+
+    public String getMonth() { return month; }
+    public void setMonth(String month) { this.month = month; }
+
+    public int getDaysPresent() { return daysPresent; }
+    public void setDaysPresent(int daysPresent) { this.daysPresent = daysPresent; }
+
+    public long getWorkedMinutes() { return workedMinutes; }
+    public void setWorkedMinutes(long workedMinutes) { this.workedMinutes = workedMinutes; }
+
+    public int getTransitCount() { return transitCount; }
+    public void setTransitCount(int transitCount) { this.transitCount = transitCount; }
+
+    public long getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(long updatedAt) { this.updatedAt = updatedAt; }
+
+    public boolean isComplete() { return complete; }
+    public void setComplete(boolean complete) { this.complete = complete; }
+
+    public Map<String, Day> getDays() { return days; }
+    public void setDays(Map<String, Day> days) { this.days = days; }
+}
@@ -0,0 +1,410 @@
+package com.inout.app.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+import com.inout.app.models.AttendanceRecord;
+import com.inout.app.models.MonthlySummary;
+import com.inout.app.utils.FirebaseManager;
+import com.inout.app.utils.TimeUtils;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reads and maintains the attendance_monthly/{employeeId}_{yyyy-MM} summary documents.
+ *
+ * PunchLog adds the summary update to the same transaction that materializes the daily
+ * attendance record, so both land (or fail) together. Readers get a whole month in one document read.
+ * The rebuild methods recompute summaries from raw records, for data written before
+ * summaries existed or after a manual correction; only they mark a summary complete.
+ */
+public class MonthlySummaryRepository {
+
+    private static final String TAG = "MonthlySummaryRepo";
+    private static final String COLLECTION = "attendance_monthly";
+    private static final String ATTENDANCE = "attendance";
+    private static final int BATCH_LIMIT = 450; // Firestore allows 500 writes per batch
+    private static final int REBUILD_PAGE_SIZE = 500;
+
+    private static MonthlySummaryRepository instance;
+
+    // Past months confirmed by the server this session; they no longer change
+    private final LruCache<String, MonthlySummary> settledSummaries = new LruCache<>(64);
+
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public interface SummaryCallback {
+        /**
+         * @param summary The month, or null if no summary document exists yet.
+         */
+        void onSummaryLoaded(@Nullable MonthlySummary summary, boolean fromCache);
+        void onError(String errorMsg);
+    }
+
+    public interface RebuildCallback {
+        void onRebuilt(int summaryCount);
+        void onError(String errorMsg);
+    }
+
+    private MonthlySummaryRepository() {
+    }
+
+    public static synchronized MonthlySummaryRepository getInstance() {
+        if (instance == null) {
+            instance = new MonthlySummaryRepository();
+        }
+        return instance;
+    }
+
+    private FirebaseFirestore db() {
+        return FirebaseManager.firestore();
+    }
+
+    /**
+     * Forgets the summaries settled this session (the company changed).
+     */
+    public void clear() {
+        settledSummaries.evictAll();
+    }
+
+    public static String summaryId(String employeeId, String monthId) {
+        return employeeId + "_" + monthId;
+    }
+
+    private DocumentReference summaryRef(String employeeId, String monthId) {
+        return db().collection(COLLECTION).document(summaryId(employeeId, monthId));
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Incremental updates (same transaction as the materialized daily record)
+    // ---------------------------------------------------------------------------------------
+
+    /**
+     * Mirrors a change of one daily record (old materialized copy -> new fold) into the month:
+     * the day entry is overwritten and the month totals move by the difference. Applying the
+     * same change twice is harmless because the caller reads 'before' in the same transaction.
+     * The 'complete' flag is never written here: a summary this creates covers only the days
+     * punched since, and stays incomplete until saveFromRecords or rebuildMonth replaces it.
+     *
+     * @param before The daily record as stored before, or null if the day had none.
+     */
+    public void applyDayChange(@NonNull Transaction transaction, @Nullable AttendanceRecord before,
+                               @NonNull AttendanceRecord after) {
+        int presentDelta = (isPresent(after) ? 1 : 0) - (isPresent(before) ? 1 : 0);
+        long minutesDelta = workedMinutes(after) - workedMinutes(before);
+        int transitDelta = transitCount(after) - transitCount(before);
+
+        Map<String, Object> day = dayFields(after);
+        day.put("transitCount", transitCount(after));
+        day.put("workedMinutes", workedMinutes(after));
+
+        Map<String, Object> fields = headerFields(after);
+        if (presentDelta != 0) fields.put("daysPresent", FieldValue.increment(presentDelta));
+        if (minutesDelta != 0) fields.put("workedMinutes", FieldValue.increment(minutesDelta));
+        if (transitDelta != 0) fields.put("transitCount", FieldValue.increment(transitDelta));
+        fields.put("days", Collections.singletonMap(after.getDate(), day));
+        transaction.set(summaryRef(after.getEmployeeId(), monthOf(after)), fields, SetOptions.merge());
+    }
+
+    private static boolean isPresent(@Nullable AttendanceRecord record) {
+        return record != null && record.getCheckInTime() != null;
+    }
+
+    private static long workedMinutes(@Nullable AttendanceRecord record) {
+        if (record == null) return 0;
+        return Math.max(0, TimeUtils.calculateDurationMinutes(record.getCheckInTime(), record.getCheckOutTime()));
+    }
+
+    private static int transitCount(@Nullable AttendanceRecord record) {
+        if (record == null || record.getMovementLog() == null) return 0;
+        return Math.max(0, record.getMovementLog().size() - 1);
+    }
+
+    private static Map<String, Object> headerFields(AttendanceRecord record) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("employeeId", record.getEmployeeId());
+        fields.put("employeeName", record.getEmployeeName());
+        fields.put("month", monthOf(record));
+        fields.put("updatedAt", System.currentTimeMillis());
+        return fields;
+    }
+
+    /**
+     * Full day entry from the record, so a day whose check-in predates summaries is still complete.
+     */
+    private static Map<String, Object> dayFields(AttendanceRecord record) {
+        Map<String, Object> day = new HashMap<>();
+        day.put("checkInTime", record.getCheckInTime());
+        day.put("checkOutTime", record.getCheckOutTime());
+        day.put("totalHours", record.getTotalHours());
+        day.put("locationName", record.getLocationName());
+        day.put("distanceMeters", record.getDistanceMeters());
+        day.put("movementLog", record.getMovementLog() != null ? record.getMovementLog() : new ArrayList<String>());
+        day.put("fingerprintVerified", record.isFingerprintVerified());
+        day.put("gpsVerified", record.isGpsVerified());
+        return day;
+    }
+
+    private static String monthOf(AttendanceRecord record) {
+        return record.getDate().substring(0, 7); // yyyy-MM-dd -> yyyy-MM
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Reads
+    // ---------------------------------------------------------------------------------------
+
+    /**
+     * Reads one employee month with a single document read. Past months already confirmed
+     * by the server this session are answered from memory.
+     *
+     * @param month Any day inside the wanted month.
+     */
+    public void fetchSummary(@NonNull String employeeId, @NonNull Calendar month, @NonNull SummaryCallback callback) {
+        String monthId = TimeUtils.getMonthId(month);
+        String id = summaryId(employeeId, monthId);
+
+        MonthlySummary settled = settledSummaries.get(id);
+        if (settled != null) {
+            callback.onSummaryLoaded(settled, true);
+            return;
+        }
+
+        FirestoreMeter.getInstance().read("MonthlySummaryRepository.fetchSummary", summaryRef(employeeId, monthId).get())
+                .addOnSuccessListener(doc -> {
+                    MonthlySummary summary = settle(id, doc, month);
+                    callback.onSummaryLoaded(summary, doc.getMetadata().isFromCache());
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Summary fetch failed for " + id, e);
+                    callback.onError("Error loading month summary");
+                });
+    }
+
+    /**
+     * Warms the memory cache for a month the user is likely to open next.
+     */
+    public void prefetchSummary(@NonNull String employeeId, @NonNull Calendar month) {
+        if (TimeUtils.getMonthStart(month).getTimeInMillis() > System.currentTimeMillis()) return;
+
+        String monthId = TimeUtils.getMonthId(month);
+        String id = summaryId(employeeId, monthId);
+        if (settledSummaries.get(id) != null) return;
+
+        FirestoreMeter.getInstance().read("MonthlySummaryRepository.prefetchSummary", summaryRef(employeeId, monthId).get())
+                .addOnSuccessListener(doc -> settle(id, doc, month))
+                .addOnFailureListener(e -> Log.w(TAG, "Summary prefetch failed for " + id, e));
+    }
+
+    /**
+     * Blocking variant of fetchSummary for background jobs (ExportWorker). Must be called off the main thread.
+     *
+     * @return The summary, or null if the month has none yet.
+     */
+    @Nullable
+    @WorkerThread
+    public MonthlySummary loadSummary(@NonNull String employeeId, @NonNull Calendar month)
+            throws ExecutionException, InterruptedException {
+        String monthId = TimeUtils.getMonthId(month);
+        String id = summaryId(employeeId, monthId);
+
+        MonthlySummary settled = settledSummaries.get(id);
+        if (settled != null) return settled;
+
+        return settle(id, Tasks.await(FirestoreMeter.getInstance()
+                .read("MonthlySummaryRepository.loadSummary", summaryRef(employeeId, monthId).get())), month);
+    }
+
+    @Nullable
+    private MonthlySummary settle(String id, DocumentSnapshot doc, Calendar month) {
+        if (!doc.exists()) return null;
+        MonthlySummary summary = doc.toObject(MonthlySummary.class);
+        if (summary != null && !doc.getMetadata().isFromCache() && isPast(month)) {
+            settledSummaries.put(id, summary);
+        }
+        return summary;
+    }
+
+    private static boolean isPast(Calendar month) {
+        Calendar next = TimeUtils.getMonthStart(month);
+        next.add(Calendar.MONTH, 1);
+        return next.getTimeInMillis() <= System.currentTimeMillis();
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Rebuild
+    // ---------------------------------------------------------------------------------------
+
+    /**
+     * Overwrites one summary from raw records the caller already has (e.g. the month view's
+     * fallback read), so the next visit costs a single document read.
+     *
+     * @param records Every raw record of the month, as read from the server.
+     */
+    public void saveFromRecords(@NonNull String employeeId, @NonNull Calendar month,
+                                @NonNull List<AttendanceRecord> records) {
+        String monthId = TimeUtils.getMonthId(month);
+        MonthlySummary summary = buildSummary(employeeId, monthId, records);
+        FirestoreMeter.getInstance().write("MonthlySummaryRepository.saveFromRecords", 1,
+                        summaryRef(employeeId, monthId).set(summary))
+                .addOnSuccessListener(aVoid -> {
+                    // Drop an incomplete copy settled earlier this session
+                    settledSummaries.remove(summaryId(employeeId, monthId));
+                })
+                .addOnFailureListener(e -> Log.w(TAG, "Summary backfill failed for " + summaryId(employeeId, monthId), e));
+    }
+
+    /**
+     * Recomputes every employee's summary for one month from the raw 'attendance' documents.
+     * Costs one read per attendance record and per existing summary of that month; meant as an
+     * admin repair tool. Runs on a background thread; the callback runs on the main thread.
+     *
+     * Only a server answer is used: rebuilding from a partial local cache would overwrite good
+     * summaries with incomplete ones marked complete. Employees with no record left in the month
+     * get an empty summary, so a stale one does not outlive deleted records.
+     */
+    public void rebuildMonth(@NonNull Calendar month, @NonNull RebuildCallback callback) {
+        String monthId = TimeUtils.getMonthId(month);
+        FirebaseFirestore db = db(); // Bound to the current company for the whole run
+        rebuildExecutor.execute(() -> {
+            try {
+                int summaryCount = rebuild(db, month, monthId);
+                mainHandler.post(() -> callback.onRebuilt(summaryCount));
+            } catch (ExecutionException e) {
+                Log.e(TAG, "Summary rebuild failed for " + monthId, e);
+                mainHandler.post(() -> callback.onError("Failed to rebuild summaries for " + monthId
+                        + ". Check the connection and try again."));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                mainHandler.post(() -> callback.onError("Summary rebuild interrupted"));
+            }
+        });
+    }
+
+    @WorkerThread
+    private int rebuild(FirebaseFirestore db, Calendar month, String monthId)
+            throws ExecutionException, InterruptedException {
+        FirestoreMeter meter = FirestoreMeter.getInstance();
+        long start = TimeUtils.getMonthStart(month).getTimeInMillis();
+        Calendar next = TimeUtils.getMonthStart(month);
+        next.add(Calendar.MONTH, 1);
+
+        // 1. Page the month's records by timestamp, like ExportWorker.writeOrgMonths
+        Query monthQuery = db.collection(ATTENDANCE)
+                .whereGreaterThanOrEqualTo("timestamp", start)
+                .whereLessThan("timestamp", next.getTimeInMillis())
+                .orderBy("timestamp");
+        Map<String, List<AttendanceRecord>> byEmployee = new HashMap<>();
+        DocumentSnapshot cursor = null;
+        while (true) {
+            Query page = cursor == null ? monthQuery.limit(REBUILD_PAGE_SIZE) : monthQuery.startAfter(cursor).limit(REBUILD_PAGE_SIZE);
+            QuerySnapshot value = Tasks.await(meter.read("MonthlySummaryRepository.rebuildMonth", page.get(Source.SERVER)));
+            for (DocumentSnapshot doc : value.getDocuments()) {
+                AttendanceRecord record = doc.toObject(AttendanceRecord.class);
+                if (record == null || record.getEmployeeId() == null || record.getDate() == null) continue;
+                List<AttendanceRecord> list = byEmployee.get(record.getEmployeeId());
+                if (list == null) {
+                    list = new ArrayList<>();
+                    byEmployee.put(record.getEmployeeId(), list);
+                }
+                list.add(record);
+            }
+            if (value.size() < REBUILD_PAGE_SIZE) break;
+            cursor = value.getDocuments().get(value.size() - 1);
+        }
+
+        // 2. Summaries of employees without a record left in the month are reset to empty
+        QuerySnapshot existing = Tasks.await(meter.read("MonthlySummaryRepository.rebuildMonth",
+                db.collection(COLLECTION).whereEqualTo("month", monthId).get(Source.SERVER)));
+        List<String> employeeIds = new ArrayList<>(byEmployee.keySet());
+        for (DocumentSnapshot doc : existing.getDocuments()) {
+            String employeeId = doc.getString("employeeId");
+            if (employeeId != null && !byEmployee.containsKey(employeeId)) employeeIds.add(employeeId);
+        }
+
+        // 3. Overwrite, one batch at a time
+        WriteBatch batch = db.batch();
+        int pending = 0;
+        for (String employeeId : employeeIds) {
+            List<AttendanceRecord> records = byEmployee.get(employeeId);
+            MonthlySummary summary = buildSummary(employeeId, monthId,
+                    records != null ? records : Collections.<AttendanceRecord>emptyList());
+            batch.set(db.collection(COLLECTION).document(summaryId(employeeId, monthId)), summary);
+            if (++pending == BATCH_LIMIT) {
+                Tasks.await(meter.write("MonthlySummaryRepository.rebuildMonth", pending, batch.commit()));
+                batch = db.batch();
+                pending = 0;
+            }
+        }
+        if (pending > 0) {
+            Tasks.await(meter.write("MonthlySummaryRepository.rebuildMonth", pending, batch.commit()));
+        }
+
+        for (String employeeId : employeeIds) settledSummaries.remove(summaryId(employeeId, monthId));
+        return employeeIds.size();
+    }
+
+    /**
+     * Folds raw daily records (the whole month) into one complete summary. Days without a
+     * check-in are not stored.
+     */
+    public static MonthlySummary buildSummary(String employeeId, String monthId, List<AttendanceRecord> records) {
+        MonthlySummary summary = new MonthlySummary();
+        summary.setEmployeeId(employeeId);
+        summary.setMonth(monthId);
+        summary.setUpdatedAt(System.currentTimeMillis());
+        summary.setComplete(true);
+
+        Map<String, MonthlySummary.Day> days = new HashMap<>();
+        int daysPresent = 0;
+        long workedMinutes = 0;
+        int transitCount = 0;
+
+        for (AttendanceRecord record : records) {
+            if (record.getDate() == null || record.getCheckInTime() == null) continue;
+            if (summary.getEmployeeName() == null) summary.setEmployeeName(record.getEmployeeName());
+
+            MonthlySummary.Day day = MonthlySummary.Day.fromRecord(record);
+            if (record.getCheckOutTime() != null) {
+                day.setWorkedMinutes(Math.max(0, TimeUtils.calculateDurationMinutes(
+                        record.getCheckInTime(), record.getCheckOutTime())));
+            }
+            days.put(record.getDate(), day);
+
+            daysPresent++;
+            workedMinutes += day.getWorkedMinutes();
+            transitCount += day.getTransitCount();
+        }
+
+        summary.setDays(days);
+        summary.setDaysPresent(daysPresent);
+        summary.setWorkedMinutes(workedMinutes);
+        summary.setTransitCount(transitCount);
+        return summary;
+    }
+}
@@ -0,0 +1,33 @@
+package com.inout.app.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+/**
+ * Disk access for the punch journal. All methods block and must be called off the main thread.
+ */
+@Dao
+public abstract class PunchDao {
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    public abstract long insert(PunchEntity punch);
+
+    @Query("SELECT * FROM punch_journal WHERE syncedAt = 0 ORDER BY seq")
+    public abstract List<PunchEntity> getPending();
+
+    @Query("SELECT * FROM punch_journal WHERE syncedAt = 0 AND projectId = :projectId ORDER BY seq LIMIT :limit")
+    public abstract List<PunchEntity> getPendingForProject(String projectId, int limit);
+
+    @Query("UPDATE punch_journal SET syncedAt = :syncedAt WHERE punchId IN (:punchIds)")
+    public abstract void markSynced(List<String> punchIds, long syncedAt);
+
+    @Query("UPDATE punch_journal SET attempts = attempts + 1, lastError = :error WHERE punchId IN (:punchIds)")
+    public abstract void markFailed(List<String> punchIds, String error);
+
+    @Query("DELETE FROM punch_journal WHERE syncedAt > 0 AND syncedAt < :beforeMillis")
+    public abstract void pruneSynced(long beforeMillis);
+}
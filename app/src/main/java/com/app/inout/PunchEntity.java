@@ -0,0 +1,66 @@
+package com.inout.app.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import com.inout.app.models.PunchEvent;
+
+/**
+ * One row of the local punch journal: a check-in, transit or check-out exactly as the employee
+ * performed it, recorded before anything is sent to Firestore.
+ *
+ * Rows are append-only. seq gives the flush order; punchId is the idempotency key and the
+ * ID of the PunchEvent document the row becomes on the server.
+ */
+@Entity(tableName = "punch_journal",
+        indices = {@Index(value = "punchId", unique = true), @Index({"syncedAt", "seq"})})
+public class PunchEntity {
+
+    @PrimaryKey(autoGenerate = true)
+    public long seq;
+
+    @NonNull
+    public String punchId = "";     // UUID, generated on the device
+    public String type;             // PunchEvent.TYPE_IN / TYPE_TRANSIT / TYPE_OUT
+    public String projectId;        // Firebase project the punch belongs to (company switch safety)
+
+    public String recordId;         // {employeeId}_{yyyy-MM-dd}
+    public String employeeId;
+    public String employeeName;
+    public String date;             // YYYY-MM-DD
+    public String time;             // hh:mm a, as shown to the employee
+    public long timestamp;          // Device time of the punch
+
+    public double lat;
+    public double lng;
+    public String locationId;
+    public String locationName;
+    public float distanceMeters;    // Distance from the office at this punch
+
+    public long syncedAt;           // 0 while pending
+    public int attempts;
+    public String lastError;
+
+    /**
+     * The event as appended to attendance/{recordId}/punches/{punchId}.
+     */
+    public PunchEvent toEvent() {
+        PunchEvent event = new PunchEvent();
+        event.setPunchId(punchId);
+        event.setType(type);
+        event.setEmployeeId(employeeId);
+        event.setEmployeeName(employeeName);
+        event.setDate(date);
+        event.setTime(time);
+        event.setTimestamp(timestamp);
+        event.setSeq(seq);
+        event.setLat(lat);
+        event.setLng(lng);
+        event.setLocationId(locationId);
+        event.setLocationName(locationName);
+        event.setDistanceMeters(distanceMeters);
+        return event;
+    }
+}
@@ -0,0 +1,74 @@
+package com.inout.app.models;
+
+import com.google.firebase.firestore.IgnoreExtraProperties;
+
+/**
+ * One immutable punch, stored as attendance/{recordId}/punches/{punchId}.
+ * The daily AttendanceRecord is a fold of these events (see PunchLog); they are never updated,
+ * only appended, so concurrent punches cannot overwrite each other.
+ */
+@IgnoreExtraProperties
+public class PunchEvent {
+
+    public static final String TYPE_IN = "IN";
+    public static final String TYPE_TRANSIT = "TRANSIT";
+    public static final String TYPE_OUT = "OUT";
+
+    private String punchId;         // Same as the document ID; idempotency key
+    private String type;
+    private String employeeId;
+    private String employeeName;
+    private String date;            // YYYY-MM-DD
+    private String time;            // hh:mm a
+    private long timestamp;         // Device time, fold order
+    private long seq;               // Device journal order, tie-breaker for equal timestamps
+
+    private double lat;
+    private double lng;
+    private String locationId;
+    private String locationName;
+    private float distanceMeters;   // Distance from the office at this punch
+
+    public PunchEvent() {
+        // Default constructor required for Firestore
+    }
+
+    public String getPunchId() { return punchId; }
+    public void setPunchId(String punchId) { this.punchId = punchId; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public String getEmployeeId() { return employeeId; }
+    public void setEmployeeId(String employeeId) { this.employeeId = employeeId; }
+
+    public String getEmployeeName() { return employeeName; }
+    public void setEmployeeName(String employeeName) { this.employeeName = employeeName; }
+
+    public String getDate() { return date; }
+    public void setDate(String date) { this.date = date; }
+
+    public String getTime() { return time; }
+    public void setTime(String time) { this.time = time; }
+
+    public long getTimestamp() { return timestamp; }
+    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+
+    public long getSeq() { return seq; }
+    public void setSeq(long seq) { this.seq = seq; }
+
+    public double getLat() { return lat; }
+    public void setLat(double lat) { this.lat = lat; }
+
+    public double getLng() { return lng; }
+    public void setLng(double lng) { this.lng = lng; }
+
+    public String getLocationId() { return locationId; }
+    public void setLocationId(String locationId) { this.locationId = locationId; }
+
+    public String getLocationName() { return locationName; }
+    public void setLocationName(String locationName) { this.locationName = locationName; }
+
+    public float getDistanceMeters() { return distanceMeters; }
+    public void setDistanceMeters(float distanceMeters) { this.distanceMeters = distanceMeters; }
+}
@@ -0,0 +1,34 @@
+package com.inout.app.data;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Sends the punch journal to Firestore. Scheduled by PunchJournal with a network constraint;
+ * WorkManager retries it with exponential backoff until every pending punch is acknowledged.
+ */
+public class PunchFlushWorker extends Worker {
+
+    public PunchFlushWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        try {
+            PunchJournal.getInstance(getApplicationContext()).flush();
+            return Result.success();
+        } catch (ExecutionException e) {
+            return Result.retry();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+    }
+}
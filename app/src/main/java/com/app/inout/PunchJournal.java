@@ -0,0 +1,251 @@
+package com.inout.app.data;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+import com.inout.app.models.AttendanceRecord;
+import com.inout.app.models.PunchEvent;
+import com.inout.app.utils.FirebaseManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local, append-only journal of check-in / transit / check-out punches.
+ *
+ * A punch is recorded on disk first and shown at once (overlay()), so the buttons never wait
+ * on the network. PunchFlushWorker then sends pending punches to Firestore in device order,
+ * in batches, whenever connectivity is available, retrying with exponential backoff.
+ *
+ * A flush appends a batch of punches as events, attendance/{recordId}/punches/{punchId}, in one
+ * WriteBatch, then runs one PunchLog.materialize transaction per day the batch touched. That
+ * transaction folds all of the day's events into the daily record and applies the difference to
+ * the monthly summary.
+ *
+ * Idempotency: a punch keeps its UUID across retries, so re-sending it overwrites the same event
+ * document. The daily record stores the punchCount and lastPunchAt it was folded from;
+ * materialize skips the write when they already match the events, so a retry after a lost ack
+ * never moves the summary counters twice.
+ */
+public class PunchJournal {
+
+    private static final String TAG = "PunchJournal";
+    private static final String FLUSH_WORK = "punch_flush";
+    private static final int FLUSH_BATCH = 50;
+    private static final long KEEP_SYNCED_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+    private static PunchJournal instance;
+
+    private final Context appContext;
+    private final PunchDao dao;
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<OnPendingChangedListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Unsynced punches in journal order, mirrored in memory so screens can overlay them synchronously
+    private final List<PunchEntity> pending = new ArrayList<>();
+
+    public interface OnPendingChangedListener {
+        void onPendingChanged(int pendingCount);
+    }
+
+    private PunchJournal(Context context) {
+        this.appContext = context;
+        this.dao = InOutDatabase.getInstance(context).punchDao();
+
+        // Punches left over from a previous process (killed, offline) are flushed on start
+        diskExecutor.execute(() -> {
+            List<PunchEntity> rows = dao.getPending();
+            synchronized (pending) {
+                pending.addAll(0, rows);
+            }
+            notifyChanged();
+            if (!rows.isEmpty()) scheduleFlush();
+        });
+    }
+
+    public static synchronized PunchJournal getInstance(Context context) {
+        if (instance == null) {
+            instance = new PunchJournal(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Recording (main thread)
+    // ---------------------------------------------------------------------------------------
+
+    /**
+     * Appends a punch and schedules a flush. Returns immediately; the disk write and the
+     * Firestore write both happen in the background.
+     */
+    public void record(@NonNull PunchEntity punch) {
+        punch.punchId = UUID.randomUUID().toString();
+        punch.projectId = currentProjectId();
+        synchronized (pending) {
+            pending.add(punch);
+        }
+        notifyChanged();
+
+        diskExecutor.execute(() -> {
+            punch.seq = dao.insert(punch);
+            scheduleFlush();
+        });
+    }
+
+    /**
+     * @return The record with this device's unsynced punches folded on top of it (null if there is no record yet).
+     *         Punches the base already contains (not newer than its lastPunchAt) are not applied again.
+     */
+    @Nullable
+    public AttendanceRecord overlay(@NonNull String recordId, @Nullable AttendanceRecord base) {
+        String projectId = currentProjectId();
+        long folded = base != null ? base.getLastPunchAt() : 0;
+
+        List<PunchEvent> events = new ArrayList<>();
+        synchronized (pending) {
+            for (PunchEntity punch : pending) {
+                if (recordId.equals(punch.recordId) && equalsNullable(projectId, punch.projectId)
+                        && punch.timestamp > folded) {
+                    events.add(punch.toEvent());
+                }
+            }
+        }
+        return events.isEmpty() ? base : PunchLog.fold(base, events);
+    }
+
+    /**
+     * @return Unsynced punches of the current project (those of another company are not flushed while it is inactive).
+     */
+    public int getPendingCount() {
+        String projectId = currentProjectId();
+        int count = 0;
+        synchronized (pending) {
+            for (PunchEntity punch : pending) {
+                if (equalsNullable(projectId, punch.projectId)) count++;
+            }
+        }
+        return count;
+    }
+
+    public void addListener(OnPendingChangedListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(OnPendingChangedListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyChanged() {
+        int count = getPendingCount();
+        mainHandler.post(() -> {
+            for (OnPendingChangedListener listener : listeners) {
+                listener.onPendingChanged(count);
+            }
+        });
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Flushing (PunchFlushWorker)
+    // ---------------------------------------------------------------------------------------
+
+    private void scheduleFlush() {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(PunchFlushWorker.class)
+                .setConstraints(new Constraints.Builder().setRequiredNetworkType(NetworkType.CONNECTED).build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 15, TimeUnit.SECONDS)
+                .build();
+        // Append: a punch recorded while a flush is running gets a flush of its own afterwards
+        WorkManager.getInstance(appContext).enqueueUniqueWork(FLUSH_WORK, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+    }
+
+    /**
+     * Sends pending punches of the current project to Firestore, oldest first: each batch is
+     * appended as events in one write, then every day it touched is re-materialized.
+     * Stops at the first failing batch so a check-out never lands before its check-in.
+     */
+    @WorkerThread
+    void flush() throws ExecutionException, InterruptedException {
+        String projectId = currentProjectId();
+        if (projectId == null) return;
+        // Bound to this project's app, so a company switch during the flush cannot redirect the batch
+        FirebaseFirestore db = FirebaseFirestore.getInstance(FirebaseManager.getApp(projectId));
+
+        while (true) {
+            List<PunchEntity> batch = dao.getPendingForProject(projectId, FLUSH_BATCH);
+            if (batch.isEmpty()) break;
+
+            List<String> ids = new ArrayList<>(batch.size());
+            Set<String> days = new LinkedHashSet<>();
+            WriteBatch append = db.batch();
+            for (PunchEntity punch : batch) {
+                ids.add(punch.punchId);
+                days.add(punch.recordId);
+                append.set(PunchLog.eventRef(db, punch.recordId, punch.punchId), punch.toEvent());
+            }
+
+            try {
+                Tasks.await(FirestoreMeter.getInstance().write("PunchJournal.flush", batch.size(), append.commit()));
+                for (String recordId : days) {
+                    PunchLog.materialize(db, recordId);
+                }
+            } catch (ExecutionException e) {
+                // Events that did land are written again with the same IDs on the retry
+                Log.w(TAG, "Flush of " + batch.size() + " punches failed", e);
+                dao.markFailed(ids, String.valueOf(e.getCause()));
+                throw e;
+            }
+
+            dao.markSynced(ids, System.currentTimeMillis());
+            synchronized (pending) {
+                Set<String> done = new HashSet<>(ids);
+                for (Iterator<PunchEntity> it = pending.iterator(); it.hasNext(); ) {
+                    if (done.contains(it.next().punchId)) it.remove();
+                }
+            }
+            notifyChanged();
+            Log.d(TAG, "Flushed " + batch.size() + " punches");
+        }
+
+        dao.pruneSynced(System.currentTimeMillis() - KEEP_SYNCED_MILLIS);
+    }
+
+    // ---------------------------------------------------------------------------------------
+
+    /**
+     * Punches are tied to the Firebase project they were made in, so a company switch never
+     * sends them to the wrong organisation.
+     */
+    @Nullable
+    private static String currentProjectId() {
+        return FirebaseManager.getCurrentProjectId(); // Null if Firebase is not configured yet
+    }
+
+    private static boolean equalsNullable(@Nullable String a, @Nullable String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,243 @@
+package com.inout.app.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.inout.app.models.AttendanceRecord;
+import com.inout.app.models.PunchEvent;
+import com.inout.app.utils.TimeUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Event-sourced attendance: every punch is appended to attendance/{recordId}/punches and the
+ * daily AttendanceRecord is a fold of those events.
+ *
+ * Appending never reads or modifies shared state, so punches cannot be lost to concurrent
+ * updates, and repeated visits (A → B → A) stay in the route. materialize() folds all events of
+ * a day and stores the result as the daily document (plus the matching monthly summary change),
+ * which is what every screen reads.
+ */
+public final class PunchLog {
+
+    private static final String COLLECTION = "attendance";
+    private static final String PUNCHES = "punches";
+
+    // Fold order: device time, then the device journal order
+    private static final Comparator<PunchEvent> ORDER = (a, b) -> {
+        int byTime = Long.compare(a.getTimestamp(), b.getTimestamp());
+        return byTime != 0 ? byTime : Long.compare(a.getSeq(), b.getSeq());
+    };
+
+    private PunchLog() {
+    }
+
+    public static DocumentReference eventRef(FirebaseFirestore db, String recordId, String punchId) {
+        return db.collection(COLLECTION).document(recordId).collection(PUNCHES).document(punchId);
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Fold
+    // ---------------------------------------------------------------------------------------
+
+    /**
+     * Applies one event to a day record.
+     * - IN starts the day (a second IN is ignored).
+     * - TRANSIT appends the office to the route, repeats included, and adds its distance.
+     * - OUT closes the day once; hours are derived from the check-in time.
+     * Events that do not fit the current state (transit before check-in, anything after
+     * check-out) are ignored, so every ordering of events folds to a valid record.
+     *
+     * @return A new record, or the state itself if the event changes nothing. The state is
+     *         never modified (it may be shared through the repository cache).
+     */
+    @Nullable
+    public static AttendanceRecord step(@Nullable AttendanceRecord state, @NonNull PunchEvent event) {
+        if (PunchEvent.TYPE_IN.equals(event.getType())) {
+            if (state != null && state.getCheckInTime() != null) return state; // Already checked in
+
+            String recordId = event.getEmployeeId() + "_" + event.getDate();
+            AttendanceRecord record = new AttendanceRecord(event.getEmployeeId(), event.getEmployeeName(),
+                    event.getDate(), event.getTimestamp());
+            record.setRecordId(recordId);
+            record.setCheckInTime(event.getTime());
+            record.setCheckInLat(event.getLat());
+            record.setCheckInLng(event.getLng());
+            record.setFingerprintVerified(true);
+            record.setLocationVerified(true);
+            record.setDistanceMeters(event.getDistanceMeters());
+            record.setLocationName(event.getLocationName());
+
+            // Initialize Movement Log with the first location
+            List<String> moves = new ArrayList<>();
+            moves.add(event.getLocationName());
+            record.setMovementLog(moves);
+            record.setLastVerifiedLocationId(event.getLocationId());
+            return counted(record, event);
+        }
+
+        if (state == null || state.getCheckOutTime() != null) return state; // Not started / already out
+
+        AttendanceRecord record = copyOf(state);
+        if (PunchEvent.TYPE_TRANSIT.equals(event.getType())) {
+            record.setDistanceMeters(state.getDistanceMeters() + event.getDistanceMeters());
+            record.setLocationName(event.getLocationName());
+            record.setLastVerifiedLocationId(event.getLocationId());
+            record.getMovementLog().add(event.getLocationName());
+        } else if (PunchEvent.TYPE_OUT.equals(event.getType())) {
+            record.setCheckOutTime(event.getTime());
+            record.setCheckOutLat(event.getLat());
+            record.setCheckOutLng(event.getLng());
+            record.setTotalHours(TimeUtils.calculateDuration(state.getCheckInTime(), event.getTime()));
+        } else {
+            return state;
+        }
+        return counted(record, event);
+    }
+
+    /**
+     * Folds events, in punch order, on top of a starting state (null for a day that only has events).
+     */
+    @Nullable
+    public static AttendanceRecord fold(@Nullable AttendanceRecord base, List<PunchEvent> events) {
+        List<PunchEvent> ordered = new ArrayList<>(events);
+        Collections.sort(ordered, ORDER);
+
+        AttendanceRecord state = base;
+        for (PunchEvent event : ordered) {
+            state = step(state, event);
+        }
+        return state;
+    }
+
+    private static AttendanceRecord counted(AttendanceRecord record, PunchEvent event) {
+        record.setLastPunchAt(Math.max(record.getLastPunchAt(), event.getTimestamp()));
+        record.setPunchCount(record.getPunchCount() + 1);
+        return record;
+    }
+
+    private static AttendanceRecord copyOf(AttendanceRecord record) {
+        AttendanceRecord copy = AttendanceEntity.fromRecord(record.getRecordId(), record).toRecord();
+        copy.setMovementLog(new ArrayList<>(copy.getMovementLog()));
+        copy.setDayOfWeek(record.getDayOfWeek());
+        return copy;
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Materialization
+    // ---------------------------------------------------------------------------------------
+
+    /**
+     * Rebuilds the daily document of recordId from all of its events and applies the difference
+     * to the monthly summary. Idempotent: running it again on the same events changes nothing.
+     * Must be called off the main thread.
+     *
+     * Records written before punch events existed keep their content: they are converted to
+     * events (see legacyEvents) the first time a punch is added to them.
+     */
+    @WorkerThread
+    public static void materialize(FirebaseFirestore db, String recordId)
+            throws ExecutionException, InterruptedException {
+        DocumentReference dayRef = db.collection(COLLECTION).document(recordId);
+
+        FirestoreMeter meter = FirestoreMeter.getInstance();
+        QuerySnapshot snapshot = Tasks.await(meter.read("PunchLog.materialize", dayRef.collection(PUNCHES).get()));
+        List<PunchEvent> events = new ArrayList<>(snapshot.size());
+        for (DocumentSnapshot doc : snapshot.getDocuments()) {
+            PunchEvent event = doc.toObject(PunchEvent.class);
+            if (event != null) events.add(event);
+        }
+        if (events.isEmpty()) return;
+
+        int[] writes = new int[1]; // Of the attempt that committed; the function re-runs on contention
+        Tasks.await(db.runTransaction(transaction -> {
+            writes[0] = 0;
+            DocumentSnapshot doc = transaction.get(dayRef);
+            AttendanceRecord current = doc.exists() ? doc.toObject(AttendanceRecord.class) : null;
+            if (current != null) current.setRecordId(doc.getId());
+
+            // A record written before punch events existed becomes events itself, so it is part of every later fold
+            List<PunchEvent> all = new ArrayList<>(events);
+            if (current != null && current.getLastPunchAt() == 0 && current.getCheckInTime() != null) {
+                for (PunchEvent legacy : legacyEvents(current)) {
+                    transaction.set(eventRef(db, recordId, legacy.getPunchId()), legacy);
+                    all.add(legacy);
+                    writes[0]++;
+                }
+            }
+
+            AttendanceRecord folded = fold(null, all);
+            if (folded == null) return null;
+
+            if (current != null && current.getLastPunchAt() > 0) {
+                // Already materialized from these events, or another device folded more of them meanwhile
+                if (current.getPunchCount() > folded.getPunchCount()) return null;
+                if (current.getPunchCount() == folded.getPunchCount()
+                        && current.getLastPunchAt() == folded.getLastPunchAt()) return null;
+            }
+
+            transaction.set(dayRef, folded);
+            MonthlySummaryRepository.getInstance().applyDayChange(transaction, current, folded);
+            writes[0] += 2;
+            return null;
+        }));
+        meter.record("PunchLog.materialize", 1, writes[0]);
+    }
+
+    /**
+     * Replays a directly written (pre-event) record as events with fixed IDs, so converting it
+     * twice writes the same documents. Its total distance is carried by the check-in event.
+     */
+    static List<PunchEvent> legacyEvents(AttendanceRecord record) {
+        List<PunchEvent> events = new ArrayList<>();
+        List<String> route = record.getMovementLog() != null && !record.getMovementLog().isEmpty()
+                ? record.getMovementLog() : Collections.singletonList(record.getLocationName());
+        long start = record.getTimestamp();
+
+        PunchEvent in = legacyEvent(record, "legacy_in", PunchEvent.TYPE_IN, start, record.getCheckInTime());
+        in.setLat(record.getCheckInLat());
+        in.setLng(record.getCheckInLng());
+        in.setLocationName(route.get(0));
+        in.setLocationId(route.size() == 1 ? record.getLastVerifiedLocationId() : null);
+        in.setDistanceMeters(record.getDistanceMeters());
+        events.add(in);
+
+        for (int i = 1; i < route.size(); i++) {
+            PunchEvent transit = legacyEvent(record, "legacy_transit_" + i, PunchEvent.TYPE_TRANSIT, start + i, record.getCheckInTime());
+            transit.setLocationName(route.get(i));
+            transit.setLocationId(i == route.size() - 1 ? record.getLastVerifiedLocationId() : null);
+            events.add(transit);
+        }
+
+        if (record.getCheckOutTime() != null) {
+            PunchEvent out = legacyEvent(record, "legacy_out", PunchEvent.TYPE_OUT, start + route.size(), record.getCheckOutTime());
+            out.setLat(record.getCheckOutLat());
+            out.setLng(record.getCheckOutLng());
+            out.setLocationName(route.get(route.size() - 1));
+            events.add(out);
+        }
+        return events;
+    }
+
+    private static PunchEvent legacyEvent(AttendanceRecord record, String punchId, String type, long timestamp, String time) {
+        PunchEvent event = new PunchEvent();
+        event.setPunchId(punchId);
+        event.setType(type);
+        event.setEmployeeId(record.getEmployeeId());
+        event.setEmployeeName(record.getEmployeeName());
+        event.setDate(record.getDate());
+        event.setTime(time);
+        event.setTimestamp(timestamp);
+        return event;
+    }
+}
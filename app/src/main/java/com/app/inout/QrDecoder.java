@@ -0,0 +1,86 @@
+package com.inout.app.utils;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes a QR code from one grey camera frame. Two backends ship today, ML Kit and pure ZXing;
+ * QrDecoderBenchmark (debug builds) compares them on the same frames on a device so one can be
+ * dropped from the APK, and ZxingQrDecoderTest runs the ZXing backend over the generated ones.
+ */
+public interface QrDecoder {
+
+    enum Backend {
+        ML_KIT,
+        ZXING
+    }
+
+    /**
+     * Used by the camera scan until the benchmark says otherwise.
+     */
+    Backend DEFAULT_BACKEND = Backend.ML_KIT;
+
+    interface Callback {
+        /**
+         * @param rawValue The text of the first QR code found, or null if there is none.
+         */
+        void onDecoded(@Nullable String rawValue);
+
+        void onError(@NonNull Exception e);
+    }
+
+    /**
+     * Decodes asynchronously; the callback may run on any thread. The frame must not be modified
+     * until the callback ran.
+     *
+     * @param nv21 NV21 frame; only its first width * height bytes (the luma plane) are looked at.
+     */
+    void decode(@NonNull byte[] nv21, int width, int height, int rotationDegrees, @NonNull Callback callback);
+
+    /**
+     * Releases the backend. No decode may be started afterwards.
+     */
+    void close();
+
+    static QrDecoder create(@NonNull Backend backend) {
+        return backend == Backend.ZXING ? new ZxingQrDecoder() : new MlKitQrDecoder();
+    }
+
+    /**
+     * Decodes and waits for the result. Never call on the main thread (ML Kit answers there).
+     *
+     * @return The decoded text, or null if nothing was found, the decode failed or timed out.
+     */
+    @WorkerThread
+    @Nullable
+    static String decodeBlocking(@NonNull QrDecoder decoder, @NonNull byte[] nv21, int width, int height, long timeoutMs) {
+        CountDownLatch done = new CountDownLatch(1);
+        String[] value = new String[1];
+        decoder.decode(nv21, width, height, 0, new Callback() {
+            @Override
+            public void onDecoded(@Nullable String rawValue) {
+                value[0] = rawValue;
+                done.countDown();
+            }
+
+            @Override
+            public void onError(@NonNull Exception e) {
+                Log.w("QrDecoder", "Decode failed", e);
+                done.countDown();
+            }
+        });
+        try {
+            if (!done.await(timeoutMs, TimeUnit.MILLISECONDS)) return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        return value[0];
+    }
+}
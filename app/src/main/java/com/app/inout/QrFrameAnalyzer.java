@@ -0,0 +1,226 @@
+package com.inout.app;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.Size;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+
+import com.inout.app.utils.QrDecoder;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Camera frame analyzer of EmployeeQrScanActivity.
+ *
+ * - Only the part of the frame under the on-screen guide box (plus a margin) is decoded: its luma
+ *   is copied into a small grey NV21 image, and the camera frame is released right away.
+ * - Frames are throttled to the device class, and dropped while a decode is still running.
+ * - The first decoded value is delivered once; later frames are ignored until resume().
+ */
+public class QrFrameAnalyzer implements ImageAnalysis.Analyzer {
+
+    private static final String TAG = "QrFrameAnalyzer";
+
+    // Share of the guide box added on every side, so a code held slightly off-centre still decodes
+    private static final float ROI_MARGIN = 0.15f;
+
+    public interface Listener {
+        /**
+         * Called on the main thread with the first decoded QR value.
+         */
+        void onQrDecoded(@NonNull String rawValue);
+    }
+
+    /**
+     * Analysis settings for a class of device: budget phones get smaller frames, less often.
+     */
+    public static final class DeviceProfile {
+        public final Size targetResolution;
+        public final long minFrameIntervalMs;
+
+        private DeviceProfile(Size targetResolution, long minFrameIntervalMs) {
+            this.targetResolution = targetResolution;
+            this.minFrameIntervalMs = minFrameIntervalMs;
+        }
+
+        public static DeviceProfile forDevice(Context context) {
+            ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+            boolean lowEnd = activityManager.isLowRamDevice()
+                    || activityManager.getMemoryClass() <= 128
+                    || Runtime.getRuntime().availableProcessors() <= 4;
+            return lowEnd
+                    ? new DeviceProfile(new Size(640, 480), 200)    // ~5 decodes per second
+                    : new DeviceProfile(new Size(1280, 720), 100);  // ~10 decodes per second
+        }
+    }
+
+    private final QrDecoder decoder;
+    private final DeviceProfile profile;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Guide box in view coordinates normalized to the viewport (display orientation); null = whole frame
+    @Nullable
+    private volatile RectF regionOfInterest;
+    private volatile boolean delivered = false;
+    private volatile boolean decoding = false;
+    private long lastFrameAt = 0;
+
+    // Reused between frames: only one decode runs at a time
+    private byte[] nv21;
+
+    public QrFrameAnalyzer(@NonNull QrDecoder decoder, @NonNull DeviceProfile profile, @NonNull Listener listener) {
+        this.decoder = decoder;
+        this.profile = profile;
+        this.listener = listener;
+    }
+
+    /**
+     * @param guideInView Guide box relative to the PreviewView, divided by the PreviewView's size.
+     */
+    public void setRegionOfInterest(@Nullable RectF guideInView) {
+        if (guideInView == null) {
+            regionOfInterest = null;
+            return;
+        }
+        float marginX = guideInView.width() * ROI_MARGIN;
+        float marginY = guideInView.height() * ROI_MARGIN;
+        regionOfInterest = new RectF(
+                Math.max(0f, guideInView.left - marginX), Math.max(0f, guideInView.top - marginY),
+                Math.min(1f, guideInView.right + marginX), Math.min(1f, guideInView.bottom + marginY));
+    }
+
+    /**
+     * Delivers the next decoded value again, e.g. after the previous one was rejected.
+     */
+    public void resume() {
+        delivered = false;
+    }
+
+    @Override
+    public void analyze(@NonNull ImageProxy imageProxy) {
+        long now = SystemClock.elapsedRealtime();
+        if (delivered || decoding || now - lastFrameAt < profile.minFrameIntervalMs) {
+            imageProxy.close();
+            return;
+        }
+        lastFrameAt = now;
+
+        int rotation = imageProxy.getImageInfo().getRotationDegrees();
+        Rect roi = toBufferRect(imageProxy, rotation);
+        byte[] frame;
+        try {
+            frame = copyLuma(imageProxy, roi);
+        } finally {
+            imageProxy.close(); // Everything needed was copied; let the camera move on
+        }
+
+        decoding = true;
+        decoder.decode(frame, roi.width(), roi.height(), rotation, new QrDecoder.Callback() {
+            @Override
+            public void onDecoded(@Nullable String rawValue) {
+                decoding = false;
+                if (rawValue == null) return;
+                mainHandler.post(() -> {
+                    if (delivered) return;
+                    delivered = true;
+                    listener.onQrDecoded(rawValue);
+                });
+            }
+
+            @Override
+            public void onError(@NonNull Exception e) {
+                decoding = false;
+                Log.e(TAG, "Camera QR analysis failed", e);
+            }
+        });
+    }
+
+    /**
+     * Maps the region of interest onto the frame buffer (sensor orientation), inside the part of
+     * the frame the viewport shows. Even-aligned, as NV21 requires.
+     */
+    private Rect toBufferRect(ImageProxy imageProxy, int rotation) {
+        Rect crop = imageProxy.getCropRect();
+        RectF roi = regionOfInterest;
+        if (roi == null) roi = new RectF(0f, 0f, 1f, 1f);
+
+        // Display-normalized corners to buffer-normalized ones (undo the clockwise rotation)
+        float[] corners = {roi.left, roi.top, roi.right, roi.bottom};
+        for (int i = 0; i < corners.length; i += 2) {
+            float x = corners[i];
+            float y = corners[i + 1];
+            switch (rotation) {
+                case 90:
+                    corners[i] = y;
+                    corners[i + 1] = 1f - x;
+                    break;
+                case 180:
+                    corners[i] = 1f - x;
+                    corners[i + 1] = 1f - y;
+                    break;
+                case 270:
+                    corners[i] = 1f - y;
+                    corners[i + 1] = x;
+                    break;
+                default:
+                    break;
+            }
+        }
+        int left = crop.left + (int) (Math.min(corners[0], corners[2]) * crop.width());
+        int top = crop.top + (int) (Math.min(corners[1], corners[3]) * crop.height());
+        int right = crop.left + (int) (Math.max(corners[0], corners[2]) * crop.width());
+        int bottom = crop.top + (int) (Math.max(corners[1], corners[3]) * crop.height());
+
+        left = Math.max(0, left) & ~1;
+        top = Math.max(0, top) & ~1;
+        right = Math.min(imageProxy.getWidth(), right) & ~1;
+        bottom = Math.min(imageProxy.getHeight(), bottom) & ~1;
+        if (right - left < 2 || bottom - top < 2) {
+            return new Rect(0, 0, imageProxy.getWidth() & ~1, imageProxy.getHeight() & ~1);
+        }
+        return new Rect(left, top, right, bottom);
+    }
+
+    /**
+     * Copies the luma of roi into an NV21 buffer whose chroma is neutral grey (QR decoding only
+     * looks at brightness).
+     */
+    private byte[] copyLuma(ImageProxy imageProxy, Rect roi) {
+        int width = roi.width();
+        int height = roi.height();
+        int size = width * height + width * height / 2;
+        if (nv21 == null || nv21.length != size) {
+            nv21 = new byte[size];
+            Arrays.fill(nv21, width * height, size, (byte) 128);
+        }
+
+        ImageProxy.PlaneProxy plane = imageProxy.getPlanes()[0];
+        ByteBuffer buffer = plane.getBuffer();
+        int rowStride = plane.getRowStride();
+        int pixelStride = plane.getPixelStride();
+        for (int row = 0; row < height; row++) {
+            int rowStart = (roi.top + row) * rowStride + roi.left * pixelStride;
+            if (pixelStride == 1) {
+                buffer.position(rowStart);
+                buffer.get(nv21, row * width, width);
+            } else {
+                for (int col = 0; col < width; col++) {
+                    nv21[row * width + col] = buffer.get(rowStart + col * pixelStride);
+                }
+            }
+        }
+        return nv21;
+    }
+}
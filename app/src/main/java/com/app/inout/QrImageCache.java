@@ -0,0 +1,313 @@
+package com.inout.app.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Renders the company QR of AdminQrFragment once per tenant config and keeps it.
+ *
+ * Encrypting the payload and encoding the QR run on a background executor. The result is kept
+ * as 1-bit module data (one bit per QR module, quiet zone included) in memory and in the cache
+ * directory, keyed by a hash of the TenantConfig: the payload itself uses a random IV, so it
+ * changes on every encode while the config it carries does not. Redisplay and sharing scale the
+ * modules up instead of encoding again; a new config (other company, edited setup) gets a new key.
+ */
+public final class QrImageCache {
+
+    private static final String TAG = "QrImageCache";
+
+    private static final int FORMAT_VERSION = 1;
+    private static final int DISPLAY_SIDE = 512;          // Minimum side of the rendered bitmap, in pixels
+    private static final int QUIET_ZONE_MODULES = 4;
+    private static final int MIN_SIZE = 21 + 2 * QUIET_ZONE_MODULES;    // QR version 1
+    private static final int MAX_SIZE = 177 + 2 * QUIET_ZONE_MODULES;   // QR version 40
+    private static final String MODULES_DIR = "qr";       // Under the cache dir
+    private static final String SHARE_DIR = "images";     // Under the cache dir, exposed by the FileProvider
+    private static final String SHARE_FILE = "company_qr.png";
+
+    private static QrImageCache instance;
+
+    private final File cacheDir;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Last rendered code; read and written on the main thread only
+    @Nullable
+    private Entry current;
+
+    public interface Callback {
+        /**
+         * Called on the main thread.
+         */
+        void onReady(@NonNull Entry entry);
+
+        void onError(@NonNull Exception e);
+    }
+
+    public interface ShareCallback {
+        /**
+         * Called on the main thread with a PNG under cache/images/, ready for the FileProvider.
+         */
+        void onExported(@NonNull File png);
+
+        void onError(@NonNull Exception e);
+    }
+
+    /**
+     * A rendered company QR. Immutable; the bitmap must not be recycled by callers.
+     */
+    public static final class Entry {
+        @NonNull
+        public final String key;
+        @NonNull
+        public final Bitmap bitmap;
+        final int size;          // Modules per side, quiet zone included
+        final byte[] modules;    // size * size bits, row-major, 1 = dark
+
+        Entry(@NonNull String key, int size, byte[] modules) {
+            this.key = key;
+            this.size = size;
+            this.modules = modules;
+            this.bitmap = render(size, modules);
+        }
+    }
+
+    private QrImageCache(Context context) {
+        this.cacheDir = context.getCacheDir();
+    }
+
+    public static synchronized QrImageCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new QrImageCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Delivers the code for config: from memory, else from disk, else encoded now (background).
+     */
+    @MainThread
+    public void get(@NonNull Context context, @NonNull TenantConfig config, @NonNull Callback callback) {
+        load(context.getApplicationContext(), config, true, callback);
+    }
+
+    /**
+     * Like get(), but never encodes: callback is only called if the code for config was rendered
+     * before (e.g. to show it again when the screen is reopened).
+     */
+    @MainThread
+    public void peek(@NonNull Context context, @NonNull TenantConfig config, @NonNull Callback callback) {
+        load(context.getApplicationContext(), config, false, callback);
+    }
+
+    /**
+     * Writes entry as a PNG for sharing (background). The file is reused while the code is unchanged.
+     */
+    @MainThread
+    public void exportPng(@NonNull Entry entry, @NonNull ShareCallback callback) {
+        executor.execute(() -> {
+            try {
+                File png = writePng(entry);
+                mainHandler.post(() -> callback.onExported(png));
+            } catch (IOException e) {
+                mainHandler.post(() -> callback.onError(e));
+            }
+        });
+    }
+
+    private void load(Context appContext, TenantConfig config, boolean generate, Callback callback) {
+        String key = keyOf(config);
+        Entry cached = current;
+        if (cached != null && cached.key.equals(key)) {
+            callback.onReady(cached);
+            return;
+        }
+
+        executor.execute(() -> {
+            try {
+                Entry entry = readModules(key);
+                if (entry == null) {
+                    if (!generate) return;
+                    entry = encode(appContext, config, key);
+                }
+                Entry ready = entry;
+                mainHandler.post(() -> {
+                    current = ready;
+                    callback.onReady(ready);
+                });
+            } catch (GeneralSecurityException | WriterException e) {
+                mainHandler.post(() -> callback.onError(e));
+            }
+        });
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Encoding
+    // ---------------------------------------------------------------------------------------
+
+    @WorkerThread
+    private Entry encode(Context context, TenantConfig config, String key) throws GeneralSecurityException, WriterException {
+        // Compact, authenticated payload of only what FirebaseManager needs (see EnrollmentQr)
+        String payload = EnrollmentQr.encode(context, config);
+
+        // Requested size 0 yields one pixel per module
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.MARGIN, QUIET_ZONE_MODULES);
+        BitMatrix matrix = new QRCodeWriter().encode(payload, BarcodeFormat.QR_CODE, 0, 0, hints);
+
+        int size = matrix.getWidth();
+        byte[] modules = new byte[(size * size + 7) / 8];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (matrix.get(x, y)) {
+                    int bit = y * size + x;
+                    modules[bit >> 3] |= (byte) (1 << (bit & 7));
+                }
+            }
+        }
+
+        Entry entry = new Entry(key, size, modules);
+        writeModules(entry);
+        return entry;
+    }
+
+    /**
+     * Scales the modules up by a whole factor, so every module stays a crisp square.
+     */
+    private static Bitmap render(int size, byte[] modules) {
+        int scale = Math.max(1, (DISPLAY_SIDE + size - 1) / size);
+        int side = size * scale;
+        int[] pixels = new int[side * side];
+        for (int y = 0; y < side; y++) {
+            int row = (y / scale) * size;
+            for (int x = 0; x < side; x++) {
+                int bit = row + x / scale;
+                boolean dark = (modules[bit >> 3] & (1 << (bit & 7))) != 0;
+                pixels[y * side + x] = dark ? Color.BLACK : Color.WHITE;
+            }
+        }
+        return Bitmap.createBitmap(pixels, side, side, Bitmap.Config.ARGB_8888);
+    }
+
+    private static String keyOf(TenantConfig config) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(config.toStoredForm().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 12; i++) hex.append(String.format("%02x", hash[i]));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // SHA-256 is always available on Android
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Disk
+    // ---------------------------------------------------------------------------------------
+
+    @WorkerThread
+    @Nullable
+    private Entry readModules(String key) {
+        File file = new File(new File(cacheDir, MODULES_DIR), key + ".bin");
+        if (!file.exists()) return null;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != FORMAT_VERSION) return null;
+            int size = in.readInt();
+            if (size < MIN_SIZE || size > MAX_SIZE) return null;
+            byte[] modules = new byte[(size * size + 7) / 8];
+            in.readFully(modules);
+            return new Entry(key, size, modules);
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable QR cache " + file.getName(), e);
+            file.delete();
+            return null;
+        }
+    }
+
+    @WorkerThread
+    private void writeModules(Entry entry) {
+        File dir = new File(cacheDir, MODULES_DIR);
+        dir.mkdirs();
+        deleteAllBut(dir, entry.key + ".bin"); // Only the current company's code is worth keeping
+
+        File file = new File(dir, entry.key + ".bin");
+        File tmp = new File(dir, entry.key + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(entry.size);
+            out.write(entry.modules);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not cache QR modules", e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) tmp.delete();
+    }
+
+    /**
+     * The PNG lives in images/<key>/ so the shared file keeps its plain name and a stale one is
+     * never sent for a changed config.
+     */
+    @WorkerThread
+    private File writePng(Entry entry) throws IOException {
+        File shareRoot = new File(cacheDir, SHARE_DIR);
+        File dir = new File(shareRoot, entry.key);
+        File png = new File(dir, SHARE_FILE);
+        if (png.exists()) return png;
+
+        dir.mkdirs();
+        deleteAllBut(shareRoot, entry.key);
+        try (FileOutputStream out = new FileOutputStream(png)) {
+            if (!entry.bitmap.compress(Bitmap.CompressFormat.PNG, 100, out)) {
+                throw new IOException("PNG compression failed");
+            }
+        } catch (IOException e) {
+            png.delete();
+            throw e;
+        }
+        return png;
+    }
+
+    private static void deleteAllBut(File dir, String keepName) {
+        File[] children = dir.listFiles();
+        if (children == null) return;
+        for (File child : children) {
+            if (child.getName().equals(keepName)) continue;
+            File[] nested = child.listFiles();
+            if (nested != null) {
+                for (File file : nested) file.delete();
+            }
+            child.delete();
+        }
+    }
+}
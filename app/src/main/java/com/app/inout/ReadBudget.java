@@ -0,0 +1,97 @@
+package com.inout.app.data;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Firestore budget of one visit to a screen: the most document reads and writes the flow may
+ * cost, sized for the organisation below. FirestoreMeter checks every visit against it in
+ * debuggable builds, so a change that turns an O(month) screen into an O(history) one shows up
+ * in logcat during development instead of on the bill.
+ *
+ * A visit runs from the moment the screen is created or resumed until another screen takes over.
+ * Listener updates that arrive while the screen stays open count towards the same visit.
+ *
+ * Background jobs have no visit; their budgets (forPunchFlush, forEmployeeExport, forOrgExport)
+ * are checked against the BACKGROUND totals by FirestoreBudgetTest against the Firestore emulator.
+ */
+final class ReadBudget {
+
+    // Organisation size the budgets are sized for
+    static final int OFFICES = 50;
+    static final int EMPLOYEES = 300;
+    static final int MONTH = 31;            // Daily records in one month (also the history page size)
+    static final int BROWSED_MONTHS = 12;   // Months an admin may flip through in one profile dialog visit
+    static final int PUNCHES_PER_DAY = 10;  // Punch events of one employee-day
+
+    final int reads;
+    final int writes;
+
+    private ReadBudget(int reads, int writes) {
+        this.reads = reads;
+        this.writes = writes;
+    }
+
+    /**
+     * @return The budget of a screen, or null for screens without Firestore work worth watching.
+     */
+    @Nullable
+    static ReadBudget forScreen(String screen) {
+        switch (screen) {
+            case "LoginActivity":
+                // users/{uid} once (shared with the dashboard through SessionStore), profile create/update
+                return new ReadBudget(2, 2);
+            case "EmployeeDashboardActivity":
+                return new ReadBudget(2, 0);
+            case "EmployeeCheckInFragment":
+                // Profile, every office (shared registry), today's record and its updates. Punches are
+                // written by PunchFlushWorker and count as Background.
+                return new ReadBudget(1 + OFFICES + 10, 0);
+            case "EmployeeHistoryFragment":
+                // Profile, the live page and up to five older pages. Scrolling further is reported on
+                // purpose: it is the whole-history read this check exists for.
+                return new ReadBudget(1 + 6 * MONTH + 10, 0);
+            case "AttendanceProfileDialog":
+                // One summary per browsed month plus the two prefetched neighbours; raw records only
+                // for months without a complete summary (two of them here), each backfilled once
+                return new ReadBudget(3 * BROWSED_MONTHS + 2 * MONTH, 2);
+            case "EmployeeProfileActivity":
+                return new ReadBudget(1, 1);
+            case "AdminDashboardActivity":
+                return new ReadBudget(1, 0);
+            case "AdminEmployeesFragment":
+                // Every employee and office once, bulk actions write each selected employee
+                return new ReadBudget(EMPLOYEES + OFFICES + 10, EMPLOYEES);
+            case "AdminAttendanceFragment":
+                // Approved employees, today's record of each, every office
+                return new ReadBudget(2 * EMPLOYEES + OFFICES + 10, 0);
+            case "AdminLocationsFragment":
+                return new ReadBudget(OFFICES + 10, OFFICES);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * PunchJournal.flush of the given punches: one batch of events, then per day the day's events
+     * and one transaction (record + summary, plus any legacy events converted on the way).
+     */
+    static ReadBudget forPunchFlush(int punches, int days) {
+        return new ReadBudget(days * (PUNCHES_PER_DAY + 1), punches + days * (PUNCHES_PER_DAY + 2));
+    }
+
+    /**
+     * ExportWorker for one employee: a summary per month, the raw month where it is missing or
+     * incomplete, and the summary backfilled from it.
+     */
+    static ReadBudget forEmployeeExport(int months) {
+        return new ReadBudget(months * (1 + MONTH), months);
+    }
+
+    /**
+     * ExportWorker for the organisation: the employee directory, then every record of each month
+     * in pages (the last page may be empty).
+     */
+    static ReadBudget forOrgExport(int months) {
+        return new ReadBudget(EMPLOYEES + months * (EMPLOYEES * MONTH + 10), 0);
+    }
+}
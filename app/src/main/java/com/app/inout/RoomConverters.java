@@ -0,0 +1,36 @@
+package com.inout.app.data;
+
+import androidx.room.TypeConverter;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Type converters for columns Room cannot store natively.
+ */
+public class RoomConverters {
+
+    @TypeConverter
+    public static String fromStringList(List<String> list) {
+        if (list == null) return null;
+        return new JSONArray(list).toString();
+    }
+
+    @TypeConverter
+    public static List<String> toStringList(String json) {
+        List<String> list = new ArrayList<>();
+        if (json == null) return list;
+        try {
+            JSONArray array = new JSONArray(json);
+            for (int i = 0; i < array.length(); i++) {
+                list.add(array.getString(i));
+            }
+        } catch (JSONException e) {
+            // Corrupt row: fall back to an empty log rather than crashing the screen
+        }
+        return list;
+    }
+}
@@ -0,0 +1,269 @@
+package com.inout.app.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.MetadataChanges;
+import com.inout.app.models.User;
+import com.inout.app.utils.EncryptionHelper;
+import com.inout.app.utils.FirebaseManager;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Single owner of the signed-in users/{uid} document.
+ *
+ * Keeps one snapshot listener and one decoded User for the whole process and persists the
+ * last known value (encrypted, via EncryptionHelper) so screens can render it on the next
+ * launch before Firestore answers. The listener goes through ListenerHub, so it pauses while
+ * the app is in the background. Must be used from the main thread.
+ */
+public class SessionStore {
+
+    private static final String TAG = "SessionStore";
+
+    private static SessionStore instance;
+
+    private final EncryptionHelper storage;
+    private final List<UserListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<ServerCallback> serverCallbacks = new ArrayList<>();
+
+    private ListenerHub.Subscription subscription;
+    private String attachedUid;
+
+    @Nullable
+    private User currentUser;
+    @Nullable
+    private String currentJson;
+    private boolean loaded = false;
+    private boolean serverConfirmed = false;
+
+    public interface UserListener {
+        /**
+         * @param user      The decoded profile, or null if the document does not exist.
+         * @param fromCache True if the value came from disk or the Firestore cache.
+         */
+        void onUserChanged(@Nullable User user, boolean fromCache);
+    }
+
+    /**
+     * One-shot callback for flows that must see the server copy (e.g. the login role check).
+     */
+    public interface ServerCallback {
+        void onUserLoaded(@Nullable User user);
+
+        void onError(@NonNull Exception e);
+    }
+
+    private SessionStore(Context context) {
+        storage = EncryptionHelper.getInstance(context);
+    }
+
+    public static synchronized SessionStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new SessionStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * @return The last known profile of the signed-in user, or null if none is known yet.
+     */
+    @Nullable
+    public User getUser() {
+        start();
+        return currentUser;
+    }
+
+    /**
+     * Registers a change callback. A known value (live or restored from disk) is delivered immediately.
+     */
+    public void addListener(@NonNull UserListener listener) {
+        listeners.add(listener);
+        start();
+        if (loaded) listener.onUserChanged(currentUser, true);
+    }
+
+    public void removeListener(@Nullable UserListener listener) {
+        if (listener != null) listeners.remove(listener);
+    }
+
+    /**
+     * Delivers the profile once the server has confirmed it. Shares the store's listener,
+     * so the dashboard opened afterwards does not read the document again.
+     */
+    public void awaitServerUser(@NonNull ServerCallback callback) {
+        start();
+        if (serverConfirmed) {
+            callback.onUserLoaded(currentUser);
+            return;
+        }
+        serverCallbacks.add(callback);
+    }
+
+    /**
+     * Attaches the listener for the current Firebase user. Re-attaches if the signed-in account changed.
+     */
+    public void start() {
+        FirebaseUser firebaseUser = FirebaseManager.auth().getCurrentUser();
+        if (firebaseUser == null) return;
+
+        String uid = firebaseUser.getUid();
+        if (uid.equals(attachedUid)) return;
+        if (attachedUid != null) detach();
+
+        attachedUid = uid;
+        restoreFromDisk(uid);
+
+        // Metadata changes are needed to see the cache -> server transition when the data is unchanged
+        subscription = ListenerHub.getInstance().<DocumentSnapshot>subscribe(
+                "SessionStore.start", "users/" + uid + "?metadata",
+                listener -> FirebaseManager.firestore().collection("users").document(uid)
+                        .addSnapshotListener(MetadataChanges.INCLUDE, listener),
+                (snapshot, error, reset) -> {
+                    if (error != null) {
+                        Log.e(TAG, "User listener failed", error);
+                        failServerCallbacks(error);
+                        return;
+                    }
+                    if (snapshot != null) onSnapshot(snapshot);
+                });
+    }
+
+    /**
+     * Detaches the listener and forgets the persisted profile. Called on logout.
+     */
+    public void stop() {
+        detach();
+        storage.clearSessionUser();
+    }
+
+    private void detach() {
+        if (subscription != null) {
+            subscription.remove();
+            subscription = null;
+        }
+        attachedUid = null;
+        currentUser = null;
+        currentJson = null;
+        loaded = false;
+        serverConfirmed = false;
+    }
+
+    private void onSnapshot(DocumentSnapshot snapshot) {
+        boolean fromCache = snapshot.getMetadata().isFromCache();
+        User user = null;
+        if (snapshot.exists()) {
+            user = snapshot.toObject(User.class);
+            if (user != null) user.setUid(snapshot.getId());
+        }
+
+        // A missing document in the local cache only means it was never downloaded
+        if (user == null && fromCache) return;
+
+        String json = user != null ? toJson(user) : null;
+        boolean changed = !loaded || (json == null ? currentJson != null : !json.equals(currentJson));
+
+        if (changed) {
+            currentUser = user;
+            currentJson = json;
+            loaded = true;
+            if (json != null) {
+                storage.saveSessionUser(json);
+            } else {
+                storage.clearSessionUser();
+            }
+            for (UserListener listener : listeners) {
+                listener.onUserChanged(user, fromCache);
+            }
+        }
+
+        if (fromCache) return;
+        serverConfirmed = true;
+        if (!serverCallbacks.isEmpty()) {
+            List<ServerCallback> pending = new ArrayList<>(serverCallbacks);
+            serverCallbacks.clear();
+            for (ServerCallback callback : pending) callback.onUserLoaded(user);
+        }
+    }
+
+    private void failServerCallbacks(Exception e) {
+        List<ServerCallback> pending = new ArrayList<>(serverCallbacks);
+        serverCallbacks.clear();
+        for (ServerCallback callback : pending) callback.onError(e);
+        // Let the next start() retry
+        detach();
+    }
+
+    private void restoreFromDisk(String uid) {
+        String json = storage.getSessionUser();
+        if (json == null) return;
+
+        User user = fromJson(json);
+        if (user != null && uid.equals(user.getUid())) {
+            currentUser = user;
+            currentJson = json;
+            loaded = true;
+        }
+    }
+
+    private static String toJson(User user) {
+        try {
+            JSONObject json = new JSONObject();
+            json.put("uid", user.getUid());
+            json.put("name", user.getName());
+            json.put("email", user.getEmail());
+            json.put("phone", user.getPhone());
+            json.put("role", user.getRole());
+            json.put("approved", user.isApproved());
+            json.put("employeeId", user.getEmployeeId());
+            json.put("photoUrl", user.getPhotoUrl());
+            json.put("assignedLocationId", user.getAssignedLocationId());
+            if (user.getAllowedLocationIds() != null) {
+                json.put("allowedLocationIds", new JSONArray(user.getAllowedLocationIds()));
+            }
+            return json.toString();
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to serialize user", e);
+            return null;
+        }
+    }
+
+    @Nullable
+    private static User fromJson(String raw) {
+        try {
+            JSONObject json = new JSONObject(raw);
+            User user = new User();
+            user.setUid(json.optString("uid", null));
+            user.setName(json.optString("name", null));
+            user.setEmail(json.optString("email", null));
+            user.setPhone(json.optString("phone", null));
+            user.setRole(json.optString("role", null));
+            user.setApproved(json.optBoolean("approved", false));
+            user.setEmployeeId(json.optString("employeeId", null));
+            user.setPhotoUrl(json.optString("photoUrl", null));
+            user.setAssignedLocationId(json.optString("assignedLocationId", null));
+            JSONArray allowed = json.optJSONArray("allowedLocationIds");
+            if (allowed != null) {
+                List<String> allowedIds = new ArrayList<>();
+                for (int i = 0; i < allowed.length(); i++) allowedIds.add(allowed.getString(i));
+                user.setAllowedLocationIds(allowedIds);
+            }
+            return user;
+        } catch (JSONException e) {
+            Log.e(TAG, "Discarding unreadable cached user", e);
+            return null;
+        }
+    }
+}
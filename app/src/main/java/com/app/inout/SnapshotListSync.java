@@ -0,0 +1,169 @@
+package com.inout.app.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a backing list (usually the one given to a RecyclerView adapter) in sync with a
+ * Firestore snapshot listener without clearing and re-decoding the whole list on every event.
+ *
+ * apply() walks QuerySnapshot.getDocumentChanges() in order and only decodes documents
+ * that were added or modified, emitting the matching notifyItem* calls.
+ * replaceAll() covers sources that only hand over a full list (e.g. the repository cache)
+ * by diffing on the item key.
+ */
+public class SnapshotListSync<T> {
+
+    public interface Decoder<T> {
+        /**
+         * Converts a document into a list item. Must not return null for an existing document.
+         */
+        @NonNull
+        T decode(@NonNull DocumentSnapshot doc);
+    }
+
+    public interface KeyFunction<T> {
+        String keyOf(@NonNull T item);
+    }
+
+    private final List<T> items;
+    @Nullable
+    private final Decoder<T> decoder;
+    private final KeyFunction<T> keyFunction;
+    @Nullable
+    private RecyclerView.Adapter<?> adapter;
+
+    public SnapshotListSync(@NonNull List<T> items, @NonNull Decoder<T> decoder, @NonNull KeyFunction<T> keyFunction) {
+        this.items = items;
+        this.decoder = decoder;
+        this.keyFunction = keyFunction;
+    }
+
+    /**
+     * For lists fed only through replaceAll(), where items arrive already decoded.
+     */
+    public SnapshotListSync(@NonNull List<T> items, @NonNull KeyFunction<T> keyFunction) {
+        this.items = items;
+        this.decoder = null;
+        this.keyFunction = keyFunction;
+    }
+
+    /**
+     * Adapter to notify. Can be null for lists that back no view (e.g. spinner sources).
+     */
+    public SnapshotListSync<T> attachAdapter(@Nullable RecyclerView.Adapter<?> adapter) {
+        this.adapter = adapter;
+        return this;
+    }
+
+    /**
+     * Applies the document changes of one snapshot event. The old/new indexes reported by
+     * Firestore are only valid when changes are applied in order, which is done here.
+     */
+    public void apply(@NonNull QuerySnapshot snapshot) {
+        if (decoder == null) {
+            throw new IllegalStateException("apply() needs a Decoder; this list is fed through replaceAll()");
+        }
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            int oldIndex = change.getOldIndex();
+            int newIndex = change.getNewIndex();
+
+            switch (change.getType()) {
+                case ADDED:
+                    items.add(newIndex, decoder.decode(change.getDocument()));
+                    if (adapter != null) adapter.notifyItemInserted(newIndex);
+                    break;
+
+                case MODIFIED:
+                    T updated = decoder.decode(change.getDocument());
+                    if (oldIndex == newIndex) {
+                        items.set(newIndex, updated);
+                    } else {
+                        items.remove(oldIndex);
+                        items.add(newIndex, updated);
+                        if (adapter != null) adapter.notifyItemMoved(oldIndex, newIndex);
+                    }
+                    if (adapter != null) adapter.notifyItemChanged(newIndex);
+                    break;
+
+                case REMOVED:
+                    items.remove(oldIndex);
+                    if (adapter != null) adapter.notifyItemRemoved(oldIndex);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Like apply(), but for ListenerHub events: a reset snapshot is the full current state, so
+     * the list is rebuilt from its documents instead of applying its changes on top.
+     */
+    public void apply(@NonNull QuerySnapshot snapshot, boolean reset) {
+        if (!reset) {
+            apply(snapshot);
+            return;
+        }
+        if (decoder == null) {
+            throw new IllegalStateException("apply() needs a Decoder; this list is fed through replaceAll()");
+        }
+        List<T> decoded = new ArrayList<>(snapshot.size());
+        for (DocumentSnapshot doc : snapshot.getDocuments()) {
+            decoded.add(decoder.decode(doc));
+        }
+        replaceAll(decoded);
+    }
+
+    /**
+     * Replaces the list contents with a full new list, notifying only the rows that differ.
+     * Rows are matched by key; a row counts as unchanged only if it is the same instance,
+     * which holds for the repository because it reuses decoded objects for unchanged documents.
+     */
+    public void replaceAll(@NonNull List<T> newItems) {
+        final List<T> oldItems = new ArrayList<>(items);
+
+        DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldItems.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newItems.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                String oldKey = keyFunction.keyOf(oldItems.get(oldPosition));
+                return oldKey != null && oldKey.equals(keyFunction.keyOf(newItems.get(newPosition)));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return oldItems.get(oldPosition) == newItems.get(newPosition);
+            }
+        });
+
+        items.clear();
+        items.addAll(newItems);
+        if (adapter != null) diff.dispatchUpdatesTo(adapter);
+    }
+
+    /**
+     * Empties the list, e.g. before re-attaching a listener whose first event re-adds everything.
+     */
+    public void clear() {
+        int size = items.size();
+        items.clear();
+        if (adapter != null && size > 0) adapter.notifyItemRangeRemoved(0, size);
+    }
+}
@@ -0,0 +1,158 @@
+package com.inout.app.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.FirebaseOptions;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * The company (Firebase project) this device is set up for, parsed once from the uploaded or
+ * scanned google-services.json.
+ *
+ * Immutable. EncryptionHelper keeps the current instance in memory and persists it in the compact
+ * form below, so reading the company name, project or Web Client ID never re-parses the full JSON.
+ */
+public final class TenantConfig {
+
+    private static final int FORMAT_VERSION = 1;
+
+    @NonNull
+    public final String companyName;
+    @NonNull
+    public final String projectId;
+    @NonNull
+    public final String apiKey;
+    @NonNull
+    public final String applicationId;
+    @Nullable
+    public final String storageBucket;
+    // OAuth client of type 3 (Web), required by Google Sign-In's requestIdToken; null if the JSON has none
+    @Nullable
+    public final String webClientId;
+
+    TenantConfig(@NonNull String companyName, @NonNull String projectId, @NonNull String apiKey,
+                 @NonNull String applicationId, @Nullable String storageBucket, @Nullable String webClientId) {
+        this.companyName = companyName;
+        this.projectId = projectId;
+        this.apiKey = apiKey;
+        this.applicationId = applicationId;
+        this.storageBucket = storageBucket;
+        this.webClientId = webClientId;
+    }
+
+    /**
+     * Parses the content of a google-services.json file.
+     *
+     * @throws JSONException If the project, the Android client or its API key is missing.
+     */
+    @NonNull
+    public static TenantConfig parse(@NonNull String googleServicesJson, @NonNull String companyName,
+                                     @NonNull String projectId) throws JSONException {
+        JSONObject root = new JSONObject(googleServicesJson);
+
+        JSONObject projectInfo = root.getJSONObject("project_info");
+        String storageBucket = projectInfo.optString("storage_bucket", null);
+
+        // Usually the first client in the array is the Android one
+        JSONObject client = root.getJSONArray("client").getJSONObject(0);
+        String applicationId = client.getJSONObject("client_info").getString("mobilesdk_app_id");
+        String apiKey = client.getJSONArray("api_key").getJSONObject(0).getString("current_key");
+
+        String webClientId = null;
+        JSONArray oauthClients = client.optJSONArray("oauth_client");
+        if (oauthClients != null) {
+            for (int i = 0; i < oauthClients.length(); i++) {
+                JSONObject oauthClient = oauthClients.getJSONObject(i);
+                if (oauthClient.optInt("client_type") == 3) {
+                    webClientId = oauthClient.getString("client_id");
+                    break;
+                }
+            }
+        }
+
+        return new TenantConfig(companyName, projectId, apiKey, applicationId, storageBucket, webClientId);
+    }
+
+    @NonNull
+    public FirebaseOptions toFirebaseOptions() {
+        return new FirebaseOptions.Builder()
+                .setApiKey(apiKey)
+                .setApplicationId(applicationId)
+                .setProjectId(projectId)
+                .setStorageBucket(storageBucket)
+                .build();
+    }
+
+    /**
+     * Rebuilds a minimal google-services.json holding only the fields above, for a company that
+     * arrived through the compact QR (see EnrollmentQr). parse() of the result yields this config.
+     */
+    @NonNull
+    public String toGoogleServicesJson() {
+        try {
+            JSONObject projectInfo = new JSONObject().put("project_id", projectId);
+            if (storageBucket != null) projectInfo.put("storage_bucket", storageBucket);
+
+            JSONObject client = new JSONObject()
+                    .put("client_info", new JSONObject().put("mobilesdk_app_id", applicationId))
+                    .put("api_key", new JSONArray().put(new JSONObject().put("current_key", apiKey)));
+            if (webClientId != null) {
+                client.put("oauth_client", new JSONArray().put(
+                        new JSONObject().put("client_id", webClientId).put("client_type", 3)));
+            }
+
+            return new JSONObject()
+                    .put("project_info", projectInfo)
+                    .put("client", new JSONArray().put(client))
+                    .toString();
+        } catch (JSONException e) {
+            throw new IllegalStateException(e); // Only thrown for non-finite numbers
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Compact stored form
+    // ---------------------------------------------------------------------------------------
+
+    @NonNull
+    String toStoredForm() {
+        try {
+            JSONObject json = new JSONObject();
+            json.put("v", FORMAT_VERSION);
+            json.put("company", companyName);
+            json.put("project", projectId);
+            json.put("apiKey", apiKey);
+            json.put("appId", applicationId);
+            if (storageBucket != null) json.put("bucket", storageBucket);
+            if (webClientId != null) json.put("webClient", webClientId);
+            return json.toString();
+        } catch (JSONException e) {
+            throw new IllegalStateException(e); // Only thrown for non-finite numbers
+        }
+    }
+
+    /**
+     * @return The config, or null if the stored form is missing, corrupt or from another version.
+     */
+    @Nullable
+    static TenantConfig fromStoredForm(@Nullable String stored) {
+        if (stored == null) return null;
+        try {
+            JSONObject json = new JSONObject(stored);
+            if (json.optInt("v") != FORMAT_VERSION) return null;
+            return new TenantConfig(
+                    json.getString("company"),
+                    json.getString("project"),
+                    json.getString("apiKey"),
+                    json.getString("appId"),
+                    json.optString("bucket", null),
+                    json.optString("webClient", null));
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+}
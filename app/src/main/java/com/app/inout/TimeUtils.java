@@ -4,6 +4,7 @@ import android.util.Log;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
 import java.util.concurrent.TimeUnit;
@@ -55,6 +56,20 @@ public class TimeUtils {
     public static String calculateDuration(String checkInTimeStr, String checkOutTimeStr) {
         if (checkInTimeStr == null || checkOutTimeStr == null) return "0h 00m";
 
+        long totalMinutes = calculateDurationMinutes(checkInTimeStr, checkOutTimeStr);
+        if (totalMinutes < 0) return "Error";
+
+        return String.format(Locale.US, "%dh %02dm", totalMinutes / 60, totalMinutes % 60);
+    }
+
+    /**
+     * Same as calculateDuration, in whole minutes (used for the monthly totals).
+     *
+     * @return Minutes worked, 0 if either time is missing, or -1 if parsing fails.
+     */
+    public static long calculateDurationMinutes(String checkInTimeStr, String checkOutTimeStr) {
+        if (checkInTimeStr == null || checkOutTimeStr == null) return 0;
+
         try {
             // We need to parse relative to the same day to get the difference
             // Since the input is just time (HH:mm a), we use a dummy date.
@@ -69,18 +84,35 @@ public class TimeUtils {
                     diffMillis += TimeUnit.DAYS.toMillis(1);
                 }
 
-                long hours = TimeUnit.MILLISECONDS.toHours(diffMillis);
-                long minutes = TimeUnit.MILLISECONDS.toMinutes(diffMillis) % 60;
-
-                return String.format(Locale.US, "%dh %02dm", hours, minutes);
+                return TimeUnit.MILLISECONDS.toMinutes(diffMillis);
             }
         } catch (ParseException e) {
             Log.e(TAG, "Error calculating duration", e);
         }
-        return "Error";
+        return -1;
     }
     
     public static String formatTimestampToDate(long timestamp) {
         return DATE_ID_FORMAT.format(new Date(timestamp));
     }
-}
\ No newline at end of file
+
+    /**
+     * @return A new Calendar set to 00:00:00.000 on the 1st of the month containing the given calendar.
+     */
+    public static Calendar getMonthStart(Calendar anyDayInMonth) {
+        Calendar start = (Calendar) anyDayInMonth.clone();
+        start.set(Calendar.DAY_OF_MONTH, 1);
+        start.set(Calendar.HOUR_OF_DAY, 0);
+        start.set(Calendar.MINUTE, 0);
+        start.set(Calendar.SECOND, 0);
+        start.set(Calendar.MILLISECOND, 0);
+        return start;
+    }
+
+    /**
+     * @return Month key (e.g., "2026-01") used to tag month-scoped caches and documents.
+     */
+    public static String getMonthId(Calendar anyDayInMonth) {
+        return new SimpleDateFormat("yyyy-MM", Locale.US).format(anyDayInMonth.getTime());
+    }
+}
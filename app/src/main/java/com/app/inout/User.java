@@ -1,8 +1,12 @@
 package com.inout.app.models;
 
+import com.google.firebase.firestore.Exclude;
 import com.google.firebase.firestore.IgnoreExtraProperties;
 import com.google.firebase.firestore.PropertyName;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Model class representing a user in the 'users' Firestore collection.
  * This is the bridge between Firestore and the app memory.
@@ -23,6 +27,9 @@ public class User {
     // For Employees: The ID of the location they are assigned to for check-in
     private String assignedLocationId; 
 
+    // For Employees who rotate between sites: further offices where check-in is also allowed
+    private List<String> allowedLocationIds;
+
     public User() {
         // Default constructor required for Firestore
     }
@@ -125,4 +132,29 @@ public class User {
     public void setAssignedLocationId(String assignedLocationId) {
         this.assignedLocationId = assignedLocationId;
     }
-}
\ No newline at end of file
+
+    @PropertyName("allowedLocationIds")
+    public List<String> getAllowedLocationIds() {
+        return allowedLocationIds;
+    }
+
+    @PropertyName("allowedLocationIds")
+    public void setAllowedLocationIds(List<String> allowedLocationIds) {
+        this.allowedLocationIds = allowedLocationIds;
+    }
+
+    /**
+     * All offices this employee may punch at: the assigned one first, then the additional ones.
+     */
+    @Exclude
+    public List<String> getAllLocationIds() {
+        List<String> ids = new ArrayList<>();
+        if (assignedLocationId != null && !assignedLocationId.isEmpty()) ids.add(assignedLocationId);
+        if (allowedLocationIds != null) {
+            for (String id : allowedLocationIds) {
+                if (id != null && !id.isEmpty() && !ids.contains(id)) ids.add(id);
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,54 @@
+package com.inout.app.utils;
+
+import androidx.annotation.NonNull;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.ChecksumException;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.FormatException;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * QrDecoder on ZXing core. Decodes synchronously on the calling thread (the camera executor),
+ * so the callback runs there too. QR detection does not depend on orientation, so the rotation
+ * is ignored.
+ */
+class ZxingQrDecoder implements QrDecoder {
+
+    private final QRCodeReader reader = new QRCodeReader();
+    private final Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+
+    ZxingQrDecoder() {
+        hints.put(DecodeHintType.CHARACTER_SET, "UTF-8");
+    }
+
+    @Override
+    public void decode(@NonNull byte[] nv21, int width, int height, int rotationDegrees, @NonNull Callback callback) {
+        PlanarYUVLuminanceSource source = new PlanarYUVLuminanceSource(nv21, width, height, 0, 0, width, height, false);
+        String rawValue;
+        try {
+            Result result = reader.decode(new BinaryBitmap(new HybridBinarizer(source)), hints);
+            rawValue = result.getText();
+        } catch (NotFoundException | ChecksumException | FormatException e) {
+            rawValue = null; // No (readable) QR code in this frame
+        } catch (RuntimeException e) {
+            callback.onError(e);
+            return;
+        } finally {
+            reader.reset();
+        }
+        callback.onDecoded(rawValue);
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+}
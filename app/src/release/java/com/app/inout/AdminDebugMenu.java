@@ -0,0 +1,23 @@
+package com.inout.app;
+
+import android.app.Activity;
+import android.view.Menu;
+import android.view.MenuItem;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Release builds have no debug entries in the admin menu (see the debug version of this class).
+ */
+final class AdminDebugMenu {
+
+    private AdminDebugMenu() {
+    }
+
+    static void onCreateOptionsMenu(@NonNull Activity activity, @NonNull Menu menu) {
+    }
+
+    static boolean onOptionsItemSelected(@NonNull Activity activity, @NonNull MenuItem item) {
+        return false;
+    }
+}
@@ -0,0 +1,106 @@
+package com.inout.app.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The ZXing half of QrDecoderBenchmark, on the JVM: every frame SyntheticQrFrames generates is
+ * decoded with ZxingQrDecoder and checked against its expected text. A decode to the wrong text
+ * fails the test, and so does a case decoding fewer frames than its floor in MIN_DECODED.
+ *
+ * Lives in testDebug because the generator is debug-only, like the benchmark.
+ */
+public class ZxingQrDecoderTest {
+
+    // An "IO2:" payload of the size EnrollmentQr produces for a typical company; encoding a real
+    // one needs a Context
+    private static final String BASE45 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:";
+    private static final int COMPACT_LENGTH = 240;
+
+    // Frames out of FRAMES_PER_CASE that must decode. The corpus is seeded, so the floors of the
+    // degraded cases are exactly what ZXing manages today and any regression fails the build
+    private static final Map<String, Integer> MIN_DECODED = new HashMap<>();
+
+    static {
+        int all = SyntheticQrFrames.FRAMES_PER_CASE;
+        MIN_DECODED.put("compact", all);
+        MIN_DECODED.put("dense_legacy", all);
+        MIN_DECODED.put("small", all);
+        MIN_DECODED.put("glare", all);
+        MIN_DECODED.put("blur", 3);
+        MIN_DECODED.put("dim_noisy", 0);  // Below ZXing's binarizer; ML Kit's case
+    }
+
+    @Test
+    public void decodesCorpus() {
+        String compact = "IO2:" + SyntheticQrFrames.randomString(new Random(7), BASE45, COMPACT_LENGTH);
+        int width = SyntheticQrFrames.FRAME_WIDTH;
+        int height = SyntheticQrFrames.FRAME_HEIGHT;
+
+        ZxingQrDecoder decoder = new ZxingQrDecoder();
+        Map<String, Integer> decoded = new HashMap<>();
+        for (SyntheticQrFrames.Frame frame : SyntheticQrFrames.generate(compact)) {
+            String value = decode(decoder, toNv21(frame.luma, width, height), width, height);
+            if (value == null) continue;
+            assertEquals("Wrong text for " + frame.caseName, frame.expected, value);
+            Integer count = decoded.get(frame.caseName);
+            decoded.put(frame.caseName, count == null ? 1 : count + 1);
+        }
+        decoder.close();
+
+        for (SyntheticQrFrames.Case c : SyntheticQrFrames.CASES) {
+            Integer floor = MIN_DECODED.get(c.name);
+            Integer count = decoded.get(c.name);
+            int got = count == null ? 0 : count;
+            assertTrue("No floor for " + c.name, floor != null);
+            assertTrue(c.name + " decoded " + got + "/" + SyntheticQrFrames.FRAMES_PER_CASE
+                    + ", expected at least " + floor, got >= floor);
+        }
+    }
+
+    @Test
+    public void blankFrameHasNoCode() {
+        int width = SyntheticQrFrames.FRAME_WIDTH;
+        int height = SyntheticQrFrames.FRAME_HEIGHT;
+        byte[] luma = new byte[width * height];
+        Arrays.fill(luma, (byte) 110);
+        assertNull(decode(new ZxingQrDecoder(), toNv21(luma, width, height), width, height));
+    }
+
+    /**
+     * ZxingQrDecoder answers synchronously on the calling thread.
+     */
+    @Nullable
+    private static String decode(ZxingQrDecoder decoder, byte[] nv21, int width, int height) {
+        String[] value = new String[1];
+        decoder.decode(nv21, width, height, 0, new QrDecoder.Callback() {
+            @Override
+            public void onDecoded(@Nullable String rawValue) {
+                value[0] = rawValue;
+            }
+
+            @Override
+            public void onError(@NonNull Exception e) {
+                throw new AssertionError("Decode failed", e);
+            }
+        });
+        return value[0];
+    }
+
+    private static byte[] toNv21(byte[] luma, int width, int height) {
+        byte[] nv21 = Arrays.copyOf(luma, width * height * 3 / 2);
+        Arrays.fill(nv21, width * height, nv21.length, (byte) 128);
+        return nv21;
+    }
+}